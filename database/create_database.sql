@@ -30,8 +30,9 @@ COMMENT ON DATABASE carpa_contabilidade IS 'Banco de dados do sistema Carpa Cont
 
 \c carpa_contabilidade
 
--- 2. A tabela usuarios será criada automaticamente pelo Hibernate
--- Este é apenas um exemplo da estrutura que será criada:
+-- 2. As tabelas e índices são criados automaticamente pelas migrações do
+-- Flyway (src/main/resources/db/migration) na inicialização da aplicação.
+-- Este é apenas um exemplo da estrutura da tabela usuarios:
 
 /*
 CREATE TABLE IF NOT EXISTS usuarios (
@@ -0,0 +1,69 @@
+package com.carpa.contabilidade.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.CompositeCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuração dos caches da aplicação (Spring Cache com Caffeine).
+ *
+ * Cada cache tem tamanho máximo e TTL próprios (especificação do Caffeine em
+ * application.properties) e registra estatísticas, publicadas pelo Actuator como
+ * métricas cache.gets (hit/miss), cache.puts e cache.evictions.
+ *
+ * Os caches são transacionais: put e evict feitos dentro de uma transação só são
+ * aplicados após o commit, para que uma leitura concorrente não grave no cache dados
+ * que ainda podem sofrer rollback nem leia de volta dados antigos após a remoção.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Usuários por email (UsuarioRepository.findByEmail).
+     *
+     * Os caches são locais de cada nó: a remoção feita pelo UsuarioService ao alterar ou
+     * excluir um usuário só vale no nó que atendeu a alteração. Nos demais, a entrada antiga
+     * (por exemplo, um usuário desativado) vale até expirar, por isso o TTL deste cache é curto.
+     */
+    public static final String USUARIOS = "usuarios";
+
+    /**
+     * Dados do dashboard de um relatório, por ID do relatório e ID do usuário.
+     */
+    public static final String DASHBOARD_RELATORIO = "dashboardRelatorio";
+
+    /**
+     * Visões consolidadas (ano, 12 meses, trimestre) por usuário e período.
+     */
+    public static final String RELATORIOS_CONSOLIDADOS = "relatoriosConsolidados";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.usuarios:maximumSize=10000,expireAfterWrite=30s,recordStats}")
+            String especificacaoUsuarios,
+            @Value("${app.cache.dashboard-relatorio:maximumSize=1000,expireAfterAccess=30m,recordStats}")
+            String especificacaoDashboard,
+            @Value("${app.cache.relatorios-consolidados:maximumSize=1000,expireAfterWrite=10m,recordStats}")
+            String especificacaoConsolidados) {
+
+        CompositeCacheManager caches = new CompositeCacheManager(
+            caffeine(USUARIOS, especificacaoUsuarios),
+            caffeine(DASHBOARD_RELATORIO, especificacaoDashboard),
+            caffeine(RELATORIOS_CONSOLIDADOS, especificacaoConsolidados));
+
+        return new TransactionAwareCacheManagerProxy(caches);
+    }
+
+    private static CaffeineCacheManager caffeine(String nome, String especificacao) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(nome);
+        cacheManager.setCacheSpecification(especificacao);
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
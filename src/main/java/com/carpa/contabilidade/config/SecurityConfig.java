@@ -78,6 +78,9 @@ public class SecurityConfig {
                         .requestMatchers("/", "/css/**", "/js/**", "/images/**", "/login").permitAll()
                         // API de contato público
                         .requestMatchers("/api/contato/**").permitAll()
+                        // Saúde da aplicação é pública; métricas e caches do Actuator só para ADMIN
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         // Apenas ADMIN pode acessar rotas /admin/** e página de gerenciamento
                         .requestMatchers("/admin/**").hasRole("ADMIN")
                         .requestMatchers("/gerenciar-usuarios.html").hasRole("ADMIN")
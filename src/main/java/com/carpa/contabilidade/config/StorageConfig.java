@@ -0,0 +1,45 @@
+package com.carpa.contabilidade.config;
+
+import com.carpa.contabilidade.storage.ArmazenamentoArquivos;
+import com.carpa.contabilidade.storage.ArmazenamentoLocal;
+import com.carpa.contabilidade.storage.ArmazenamentoS3;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Configuração do armazenamento dos arquivos enviados (app.storage.tipo).
+ *
+ * local: diretório app.upload.dir, que precisa ser o mesmo em todos os nós (disco compartilhado).
+ * s3: bucket compatível com S3 (AWS, MinIO...), permitindo vários nós sem disco compartilhado.
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    public ArmazenamentoArquivos armazenamentoArquivos(
+            @Value("${app.storage.tipo:local}") String tipo,
+            @Value("${app.upload.dir:uploads}") String uploadDir,
+            @Value("${app.storage.s3.endpoint:}") String endpoint,
+            @Value("${app.storage.s3.bucket:}") String bucket,
+            @Value("${app.storage.s3.regiao:us-east-1}") String regiao,
+            @Value("${app.storage.s3.access-key:}") String chaveAcesso,
+            @Value("${app.storage.s3.secret-key:}") String chaveSecreta,
+            @Value("${app.storage.s3.tamanho-parte-mb:8}") int tamanhoParteMb) throws IOException {
+
+        return switch (tipo.toLowerCase()) {
+            case "local" -> new ArmazenamentoLocal(Paths.get(uploadDir));
+            case "s3" -> {
+                if (endpoint.isBlank() || bucket.isBlank()) {
+                    throw new IllegalStateException(
+                        "Informe app.storage.s3.endpoint e app.storage.s3.bucket para usar o storage S3");
+                }
+                yield new ArmazenamentoS3(endpoint, bucket, regiao, chaveAcesso, chaveSecreta, tamanhoParteMb);
+            }
+            default -> throw new IllegalStateException("app.storage.tipo inválido: " + tipo + " (use local ou s3)");
+        };
+    }
+}
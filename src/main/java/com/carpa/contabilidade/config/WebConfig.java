@@ -0,0 +1,23 @@
+package com.carpa.contabilidade.config;
+
+import com.carpa.contabilidade.security.UsuarioAtualArgumentResolver;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Configuração do Spring MVC.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Registra o resolver de parâmetros {@code @UsuarioAtual}.
+     */
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new UsuarioAtualArgumentResolver());
+    }
+}
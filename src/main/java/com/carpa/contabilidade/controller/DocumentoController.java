@@ -1,17 +1,28 @@
 package com.carpa.contabilidade.controller;
 
 import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.model.DocumentoResumoDTO;
+import com.carpa.contabilidade.model.ResultadoUploadLote;
+import com.carpa.contabilidade.model.SituacaoUploadRetomavel;
+import com.carpa.contabilidade.model.UploadRetomavel;
 import com.carpa.contabilidade.model.Usuario;
+import com.carpa.contabilidade.security.UsuarioAtual;
 import com.carpa.contabilidade.service.DocumentoService;
+import com.carpa.contabilidade.service.FileStorageService;
+import com.carpa.contabilidade.service.UploadLoteService;
+import com.carpa.contabilidade.service.UploadPipelineService;
+import com.carpa.contabilidade.service.UploadRetomavelService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,7 +38,9 @@ import java.util.Map;
 public class DocumentoController {
 
     private final DocumentoService documentoService;
-    private final com.carpa.contabilidade.repository.UsuarioRepository usuarioRepository;
+    private final UploadLoteService uploadLoteService;
+    private final UploadRetomavelService uploadRetomavelService;
+    private final UploadPipelineService uploadPipelineService;
 
     /**
      * Upload de documento.
@@ -37,31 +50,27 @@ public class DocumentoController {
      * @param file Arquivo CSV ou Excel
      * @param mesReferencia Mês de referência (1-12)
      * @param anoReferencia Ano de referência
-     * @param userDetails Usuário autenticado
-     * @return Documento salvo ou erro
+     * @param usuario Usuário autenticado
+     * @return Documento salvo como PENDENTE (202 Accepted) ou erro
      */
     @PostMapping("/upload")
     public ResponseEntity<?> uploadDocumento(
             @RequestParam("file") MultipartFile file,
             @RequestParam("mesReferencia") Integer mesReferencia,
             @RequestParam("anoReferencia") Integer anoReferencia,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @UsuarioAtual Usuario usuario) {
 
         try {
-            // Buscar usuário autenticado
-            Usuario usuario = usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
-
-            // Fazer upload e processar
+            // Fazer upload; o processamento continua em segundo plano
             Documento documento = documentoService.uploadDocumento(
                 file, usuario, mesReferencia, anoReferencia);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "Documento enviado e processado com sucesso");
+            response.put("message", "Documento enviado. O processamento será feito em segundo plano");
             response.put("documento", documento);
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
 
         } catch (IllegalArgumentException e) {
             log.warn("Erro de validação no upload: {}", e.getMessage());
@@ -79,18 +88,308 @@ public class DocumentoController {
         }
     }
 
+    /**
+     * Upload em lote: vários arquivos ou um ZIP (por exemplo, os 12 meses de um ano).
+     *
+     * POST /api/documentos/upload/lote
+     *
+     * @param files Arquivos CSV, Excel ou ZIP
+     * @param mesReferencia Mês de cada arquivo, na ordem dos arquivos (opcional: senão, vem do nome)
+     * @param anoReferencia Ano de cada arquivo, na ordem dos arquivos (opcional: senão, vem do nome)
+     * @param usuario Usuário autenticado
+     * @return Situação de cada arquivo (202 Accepted) ou erro
+     */
+    @PostMapping("/upload/lote")
+    public ResponseEntity<?> uploadLote(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "mesReferencia", required = false) List<Integer> mesReferencia,
+            @RequestParam(value = "anoReferencia", required = false) List<Integer> anoReferencia,
+            @UsuarioAtual Usuario usuario) {
+
+        try {
+            List<ResultadoUploadLote> resultados = uploadLoteService.uploadLote(
+                files, mesReferencia, anoReferencia, usuario);
+
+            long aceitos = resultados.stream()
+                .filter(r -> r.situacao() == ResultadoUploadLote.Situacao.ACEITO)
+                .count();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", aceitos > 0);
+            response.put("message", aceitos + " de " + resultados.size() +
+                " documento(s) enviado(s). O processamento será feito em segundo plano");
+            response.put("arquivos", resultados);
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Erro de validação no upload em lote: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+
+        } catch (Exception e) {
+            log.error("Erro ao fazer upload em lote", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Erro ao processar documentos: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Upload em pipeline: o arquivo vem no corpo da requisição (sem multipart) e o CSV é
+     * processado enquanto é recebido, retornando já com o relatório gerado.
+     *
+     * POST /api/documentos/upload/pipeline?nomeArquivo=extrato.csv&mesReferencia=5&anoReferencia=2024
+     *
+     * @param nomeArquivo Nome do arquivo CSV ou Excel
+     * @param mesReferencia Mês de referência (1-12)
+     * @param anoReferencia Ano de referência
+     * @param request Requisição, lida em streaming
+     * @param usuario Usuário autenticado
+     * @return Documento PROCESSADO (201 Created), ou com ERRO/PENDENTE (202 Accepted)
+     */
+    @PostMapping(value = "/upload/pipeline",
+                 consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "text/csv"})
+    public ResponseEntity<?> uploadEmPipeline(
+            @RequestParam("nomeArquivo") String nomeArquivo,
+            @RequestParam("mesReferencia") Integer mesReferencia,
+            @RequestParam("anoReferencia") Integer anoReferencia,
+            HttpServletRequest request,
+            @UsuarioAtual Usuario usuario) {
+
+        try {
+            long contentLength = request.getContentLengthLong();
+            DocumentoResumoDTO documento = uploadPipelineService.upload(nomeArquivo,
+                contentLength >= 0 ? contentLength : null, request.getInputStream(),
+                usuario, mesReferencia, anoReferencia);
+
+            boolean processado = documento.status() == Documento.StatusProcessamento.PROCESSADO;
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", documento.status() != Documento.StatusProcessamento.ERRO);
+            response.put("message", switch (documento.status()) {
+                case PROCESSADO -> "Documento processado com sucesso";
+                case ERRO -> "Erro ao processar documento: " + documento.mensagemErro();
+                default -> "Documento enviado. O processamento será feito em segundo plano";
+            });
+            response.put("documento", documento);
+
+            return ResponseEntity.status(processado ? HttpStatus.CREATED : HttpStatus.ACCEPTED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Erro de validação no upload em pipeline: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+
+        } catch (Exception e) {
+            log.error("Erro no upload em pipeline", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Erro ao processar documento: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Inicia um upload retomável (arquivo enviado em partes).
+     *
+     * POST /api/documentos/upload/retomavel
+     *
+     * @param nomeArquivo Nome do arquivo CSV ou Excel
+     * @param tamanho Tamanho total em bytes
+     * @param mesReferencia Mês de referência (1-12)
+     * @param anoReferencia Ano de referência
+     * @param sha256 SHA-256 do arquivo completo (opcional, conferido ao final)
+     * @param usuario Usuário autenticado
+     * @return Upload criado (201 Created), com o endereço para envio das partes
+     */
+    @PostMapping("/upload/retomavel")
+    public ResponseEntity<?> iniciarUploadRetomavel(
+            @RequestParam("nomeArquivo") String nomeArquivo,
+            @RequestParam("tamanho") Long tamanho,
+            @RequestParam("mesReferencia") Integer mesReferencia,
+            @RequestParam("anoReferencia") Integer anoReferencia,
+            @RequestParam(value = "sha256", required = false) String sha256,
+            @UsuarioAtual Usuario usuario) {
+
+        try {
+            UploadRetomavel upload = uploadRetomavelService.iniciar(
+                nomeArquivo, tamanho, mesReferencia, anoReferencia, sha256, usuario);
+
+            return ResponseEntity.created(URI.create("/api/documentos/upload/retomavel/" + upload.getId()))
+                .body(Map.of(
+                    "success", true,
+                    "upload", SituacaoUploadRetomavel.de(upload)
+                ));
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Erro de validação no upload retomável: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+
+        } catch (Exception e) {
+            log.error("Erro ao iniciar upload retomável", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Erro ao iniciar upload: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Consulta a posição de um upload retomável, para continuar após uma falha.
+     *
+     * GET /api/documentos/upload/retomavel/{id}
+     */
+    @GetMapping("/upload/retomavel/{id}")
+    public ResponseEntity<?> consultarUploadRetomavel(
+            @PathVariable String id,
+            @UsuarioAtual Long usuarioId) {
+
+        try {
+            UploadRetomavel upload = uploadRetomavelService.buscarDoUsuario(id, usuarioId);
+
+            return ResponseEntity.ok(SituacaoUploadRetomavel.de(upload));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Envia uma parte de um upload retomável. O corpo contém os bytes indicados no
+     * Content-Range (por exemplo, "bytes 0-1048575/5242880"), a partir da posição já recebida.
+     *
+     * PUT /api/documentos/upload/retomavel/{id}
+     *
+     * @param id ID do upload
+     * @param contentRange Intervalo da parte
+     * @param sha256Parte SHA-256 da parte (opcional)
+     * @param request Requisição, lida em streaming
+     * @param usuario Usuário autenticado
+     * @return Situação do upload; 202 Accepted com o documento quando o arquivo é concluído,
+     *         409 Conflict com a posição correta se a parte estiver fora de ordem, 410 Gone se as
+     *         partes já recebidas se perderam e o upload precisa ser reiniciado
+     */
+    @PutMapping("/upload/retomavel/{id}")
+    public ResponseEntity<?> enviarParte(
+            @PathVariable String id,
+            @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+            @RequestHeader(value = "X-Checksum-SHA256", required = false) String sha256Parte,
+            HttpServletRequest request,
+            @UsuarioAtual Usuario usuario) {
+
+        UploadRetomavel upload;
+        try {
+            upload = uploadRetomavelService.buscarDoUsuario(id, usuario.getId());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+
+        try {
+            SituacaoUploadRetomavel situacao = uploadRetomavelService.receberParte(
+                upload, usuario, contentRange, sha256Parte, request.getInputStream());
+
+            if (situacao.documentoId() == null) {
+                return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "upload", situacao
+                ));
+            }
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "success", true,
+                "message", "Documento enviado. O processamento será feito em segundo plano",
+                "upload", situacao
+            ));
+
+        } catch (FileStorageService.ArquivoParcialPerdidoException e) {
+            // Partes recebidas perdidas: o upload foi cancelado e o cliente começa outro
+            return ResponseEntity.status(HttpStatus.GONE).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+
+        } catch (IllegalStateException e) {
+            // Parte fora de ordem ou enviada em paralelo: o cliente continua da posição atual
+            log.warn("Conflito no upload retomável {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "success", false,
+                "message", e.getMessage(),
+                "upload", SituacaoUploadRetomavel.de(uploadRetomavelService.buscarDoUsuario(id, usuario.getId()))
+            ));
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Erro de validação no upload retomável {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+
+        } catch (Exception e) {
+            log.error("Erro ao receber parte do upload retomável {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Erro ao receber parte do arquivo: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Cancela um upload retomável.
+     *
+     * DELETE /api/documentos/upload/retomavel/{id}
+     */
+    @DeleteMapping("/upload/retomavel/{id}")
+    public ResponseEntity<?> cancelarUploadRetomavel(
+            @PathVariable String id,
+            @UsuarioAtual Long usuarioId) {
+
+        try {
+            uploadRetomavelService.cancelar(uploadRetomavelService.buscarDoUsuario(id, usuarioId));
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Upload cancelado"
+            ));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+
+        } catch (Exception e) {
+            log.error("Erro ao cancelar upload retomável", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Erro ao cancelar upload: " + e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Lista todos os documentos do usuário autenticado.
      *
      * GET /api/documentos
      */
     @GetMapping
-    public ResponseEntity<?> listarDocumentos(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> listarDocumentos(@UsuarioAtual Usuario usuario) {
         try {
-            Usuario usuario = usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
-
-            List<Documento> documentos = documentoService.listarDocumentosDoUsuario(usuario);
+            List<DocumentoResumoDTO> documentos = documentoService.listarDocumentosDoUsuario(usuario);
 
             return ResponseEntity.ok(documentos);
 
@@ -111,21 +410,11 @@ public class DocumentoController {
     @GetMapping("/{id}")
     public ResponseEntity<?> buscarPorId(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @UsuarioAtual Long usuarioId) {
 
         try {
-            Usuario usuario = usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
-
-            Documento documento = documentoService.buscarPorId(id);
-
-            // Verificar se o documento pertence ao usuário
-            if (!documento.getUsuario().getId().equals(usuario.getId())) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                    "success", false,
-                    "message", "Acesso negado a este documento"
-                ));
-            }
+            // Documentos de outros usuários não são encontrados
+            Documento documento = documentoService.buscarDoUsuario(id, usuarioId);
 
             return ResponseEntity.ok(documento);
 
@@ -151,25 +440,16 @@ public class DocumentoController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deletarDocumento(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @UsuarioAtual Long usuarioId) {
 
         try {
-            Usuario usuario = usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
-
-            documentoService.deletarDocumento(id, usuario);
+            documentoService.deletarDocumento(id, usuarioId);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "message", "Documento deletado com sucesso"
             ));
 
-        } catch (SecurityException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                "success", false,
-                "message", e.getMessage()
-            ));
-
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
                 "success", false,
@@ -1,21 +1,27 @@
 package com.carpa.contabilidade.controller;
 
-import com.carpa.contabilidade.model.ItemRelatorio;
+import com.carpa.contabilidade.model.AnalisesRelatorio;
+import com.carpa.contabilidade.model.DashboardRelatorio;
+import com.carpa.contabilidade.model.FiltroItensRelatorio;
 import com.carpa.contabilidade.model.Relatorio;
+import com.carpa.contabilidade.model.RelatorioConsolidado;
+import com.carpa.contabilidade.model.RelatorioResumoDTO;
 import com.carpa.contabilidade.model.Usuario;
-import com.carpa.contabilidade.repository.ItemRelatorioRepository;
+import com.carpa.contabilidade.security.UsuarioAtual;
+import com.carpa.contabilidade.service.ExportacaoItensService;
+import com.carpa.contabilidade.service.RelatorioConsolidadoService;
 import com.carpa.contabilidade.service.RelatorioService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * REST Controller para gerenciar relatórios mensais.
@@ -28,8 +34,8 @@ import java.util.stream.Collectors;
 public class RelatorioController {
 
     private final RelatorioService relatorioService;
-    private final ItemRelatorioRepository itemRelatorioRepository;
-    private final com.carpa.contabilidade.repository.UsuarioRepository usuarioRepository;
+    private final ExportacaoItensService exportacaoItensService;
+    private final RelatorioConsolidadoService relatorioConsolidadoService;
 
     /**
      * Lista todos os relatórios do usuário.
@@ -40,13 +46,10 @@ public class RelatorioController {
     public ResponseEntity<?> listarRelatorios(
             @RequestParam(required = false) Integer mes,
             @RequestParam(required = false) Integer ano,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @UsuarioAtual Usuario usuario) {
 
         try {
-            Usuario usuario = usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
-
-            List<Relatorio> relatorios;
+            List<RelatorioResumoDTO> relatorios;
 
             if (mes != null && ano != null) {
                 // Filtrar por período
@@ -75,60 +78,43 @@ public class RelatorioController {
     @GetMapping("/{id}/dados")
     public ResponseEntity<?> buscarDadosRelatorio(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @UsuarioAtual Long usuarioId) {
 
         try {
-            Usuario usuario = usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
-
-            Relatorio relatorio = relatorioService.buscarPorId(id);
-
-            // Verificar permissão
-            if (!relatorio.getUsuario().getId().equals(usuario.getId())) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                    "success", false,
-                    "message", "Acesso negado a este relatório"
-                ));
-            }
-
-            // Buscar itens do relatório
-            List<ItemRelatorio> itens = itemRelatorioRepository.findByRelatorioOrderByDataAsc(relatorio);
+            // Métricas e análises vêm do cache do dashboard, por relatório e usuário:
+            // relatórios de outros usuários não são encontrados, como nas demais consultas
+            DashboardRelatorio dashboard = relatorioService.buscarDashboard(id, usuarioId);
+            RelatorioResumoDTO relatorio = dashboard.relatorio();
 
             // Construir resposta completa com todas as análises
             Map<String, Object> dados = new HashMap<>();
 
             // 1. Informações básicas
-            dados.put("id", relatorio.getId());
-            dados.put("mesReferencia", relatorio.getMesReferencia());
-            dados.put("anoReferencia", relatorio.getAnoReferencia());
-            dados.put("dataGeracao", relatorio.getDataGeracao());
+            dados.put("id", relatorio.id());
+            dados.put("mesReferencia", relatorio.mesReferencia());
+            dados.put("anoReferencia", relatorio.anoReferencia());
+            dados.put("dataGeracao", relatorio.dataGeracao());
 
             // 2. Métricas principais (KPIs)
             Map<String, Object> metricas = new HashMap<>();
-            metricas.put("receitaTotal", relatorio.getReceitaTotal());
-            metricas.put("despesaTotal", relatorio.getDespesaTotal());
-            metricas.put("saldo", relatorio.getSaldo());
-            metricas.put("margemLucro", relatorio.getMargemLucro());
-            metricas.put("totalTransacoes", relatorio.getTotalTransacoes());
-            metricas.put("totalReceitas", relatorio.getTotalReceitas());
-            metricas.put("totalDespesas", relatorio.getTotalDespesas());
+            metricas.put("receitaTotal", relatorio.receitaTotal());
+            metricas.put("despesaTotal", relatorio.despesaTotal());
+            metricas.put("saldo", relatorio.saldo());
+            metricas.put("margemLucro", relatorio.margemLucro());
+            metricas.put("totalTransacoes", relatorio.totalTransacoes());
+            metricas.put("totalReceitas", relatorio.totalReceitas());
+            metricas.put("totalDespesas", relatorio.totalDespesas());
             dados.put("metricas", metricas);
 
-            // 3. Análise por Categoria
-            dados.put("porCategoria", analisarPorCategoria(itens));
+            // 3. Análises pré-calculadas na geração do relatório
+            AnalisesRelatorio analises = dashboard.analises();
+            dados.put("porCategoria", analises.getPorCategoria());
+            dados.put("porCentroCusto", analises.getPorCentroCusto());
+            dados.put("porFormaPagamento", analises.getPorFormaPagamento());
+            dados.put("top10Receitas", analises.getTop10Receitas());
+            dados.put("top10Despesas", analises.getTop10Despesas());
 
-            // 4. Análise por Centro de Custo
-            dados.put("porCentroCusto", analisarPorCentroCusto(itens));
-
-            // 5. Análise por Forma de Pagamento
-            dados.put("porFormaPagamento", analisarPorFormaPagamento(itens));
-
-            // 6. Top 10 Transações
-            dados.put("top10Receitas", obterTop10Receitas(itens));
-            dados.put("top10Despesas", obterTop10Despesas(itens));
-
-            // 7. Todos os itens
-            dados.put("itens", itens);
+            // Os itens são consultados em páginas por GET /api/relatorios/{id}/itens
 
             return ResponseEntity.ok(dados);
 
@@ -148,136 +134,191 @@ public class RelatorioController {
     }
 
     /**
-     * Busca os últimos 5 relatórios do usuário.
+     * Busca uma página dos itens do relatório, com filtros opcionais por tipo, categoria,
+     * centro de custo, período e faixa de valor. Para a próxima página, envie aposData e
+     * aposId recebidos em proximaData e proximoId.
      *
-     * GET /api/relatorios/recentes
+     * GET /api/relatorios/{id}/itens?tipo=DESPESA&dataInicio=2024-01-01&tamanho=50
      */
-    @GetMapping("/recentes")
-    public ResponseEntity<?> buscarRecentes(@AuthenticationPrincipal UserDetails userDetails) {
+    @GetMapping("/{id}/itens")
+    public ResponseEntity<?> buscarItens(
+            @PathVariable Long id,
+            FiltroItensRelatorio filtro,
+            @UsuarioAtual Long usuarioId) {
+
+        String erroFiltro = filtro.validar();
+        if (erroFiltro != null) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", erroFiltro
+            ));
+        }
+
         try {
-            Usuario usuario = usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
+            // Relatórios de outros usuários não são encontrados
+            Relatorio relatorio = relatorioService.buscarDoUsuario(id, usuarioId);
 
-            List<Relatorio> relatorios = relatorioService.buscarUltimosRelatorios(usuario);
+            return ResponseEntity.ok(relatorioService.buscarItens(relatorio, filtro));
 
-            return ResponseEntity.ok(relatorios);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
 
         } catch (Exception e) {
-            log.error("Erro ao buscar relatórios recentes", e);
+            log.error("Erro ao buscar itens do relatório", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
                 "success", false,
-                "message", "Erro ao buscar relatórios: " + e.getMessage()
+                "message", "Erro ao buscar itens: " + e.getMessage()
             ));
         }
     }
 
-    // ==================== MÉTODOS AUXILIARES DE ANÁLISE ====================
-
     /**
-     * Analisa transações por categoria.
+     * Exporta todos os itens do relatório em NDJSON (um objeto JSON por linha).
+     * Os itens são enviados à medida que são lidos do banco.
+     *
+     * GET /api/relatorios/{id}/itens/exportar
      */
-    private List<Map<String, Object>> analisarPorCategoria(List<ItemRelatorio> itens) {
-        Map<String, Map<String, Object>> categorias = new HashMap<>();
-
-        for (ItemRelatorio item : itens) {
-            String categoria = item.getCategoria();
-            categorias.putIfAbsent(categoria, new HashMap<>());
-
-            Map<String, Object> dados = categorias.get(categoria);
-            BigDecimal totalAtual = (BigDecimal) dados.getOrDefault("total", BigDecimal.ZERO);
-            Integer qtdAtual = (Integer) dados.getOrDefault("quantidade", 0);
+    @GetMapping("/{id}/itens/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarItens(
+            @PathVariable Long id,
+            @UsuarioAtual Long usuarioId) {
 
-            dados.put("categoria", categoria);
-            dados.put("total", totalAtual.add(item.getValor()));
-            dados.put("quantidade", qtdAtual + 1);
-            dados.put("tipo", item.getTipo().toString());
+        // Relatórios de outros usuários não são encontrados
+        Relatorio relatorio;
+        try {
+            relatorio = relatorioService.buscarDoUsuario(id, usuarioId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        return new ArrayList<>(categorias.values());
+        StreamingResponseBody corpo = saida -> exportacaoItensService.exportarRelatorioNdjson(relatorio, saida);
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"relatorio-" + id + ".ndjson\"")
+            .body(corpo);
     }
 
     /**
-     * Analisa transações por centro de custo.
+     * Exporta o relatório para planilha: XLSX com itens e análises, ou CSV com os itens.
+     * Os itens são lidos do banco em streaming; o arquivo pode ser reenviado como documento.
+     *
+     * GET /api/relatorios/{id}/exportar?formato=xlsx|csv
      */
-    private List<Map<String, Object>> analisarPorCentroCusto(List<ItemRelatorio> itens) {
-        Map<String, Map<String, Object>> centros = new HashMap<>();
-
-        for (ItemRelatorio item : itens) {
-            String centro = item.getCentroCusto() != null ? item.getCentroCusto() : "Não informado";
-            centros.putIfAbsent(centro, new HashMap<>());
-
-            Map<String, Object> dados = centros.get(centro);
-            BigDecimal receitaAtual = (BigDecimal) dados.getOrDefault("receitas", BigDecimal.ZERO);
-            BigDecimal despesaAtual = (BigDecimal) dados.getOrDefault("despesas", BigDecimal.ZERO);
+    @GetMapping("/{id}/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarRelatorio(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "xlsx") String formato,
+            @UsuarioAtual Long usuarioId) {
 
-            dados.put("centroCusto", centro);
+        boolean csv = formato.equalsIgnoreCase("csv");
+        if (!csv && !formato.equalsIgnoreCase("xlsx")) {
+            return ResponseEntity.badRequest().build();
+        }
 
-            if (item.getTipo() == ItemRelatorio.TipoTransacao.RECEITA) {
-                dados.put("receitas", receitaAtual.add(item.getValor()));
-                dados.put("despesas", despesaAtual);
-            } else {
-                dados.put("receitas", receitaAtual);
-                dados.put("despesas", despesaAtual.add(item.getValor()));
-            }
+        // Relatórios de outros usuários não são encontrados
+        Relatorio relatorio;
+        try {
+            relatorio = relatorioService.buscarDoUsuario(id, usuarioId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
 
-            BigDecimal receita = (BigDecimal) dados.get("receitas");
-            BigDecimal despesa = (BigDecimal) dados.get("despesas");
-            dados.put("resultado", receita.subtract(despesa));
+        String nomeArquivo = String.format("relatorio-%d-%02d.%s",
+            relatorio.getAnoReferencia(), relatorio.getMesReferencia(), csv ? "csv" : "xlsx");
+
+        StreamingResponseBody corpo;
+        MediaType tipoConteudo;
+        if (csv) {
+            corpo = saida -> exportacaoItensService.exportarRelatorioCsv(relatorio, saida);
+            tipoConteudo = new MediaType("text", "csv", StandardCharsets.UTF_8);
+        } else {
+            AnalisesRelatorio analises = relatorioService.obterAnalises(relatorio);
+            corpo = saida -> exportacaoItensService.exportarRelatorioXlsx(relatorio, analises, saida);
+            tipoConteudo = MediaType.parseMediaType(
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         }
 
-        return new ArrayList<>(centros.values());
+        return ResponseEntity.ok()
+            .contentType(tipoConteudo)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + nomeArquivo + "\"")
+            .body(corpo);
     }
 
     /**
-     * Analisa transações por forma de pagamento.
+     * Exporta em NDJSON os itens de todos os relatórios do usuário em um ano.
+     *
+     * GET /api/relatorios/exportar?ano=2024
      */
-    private List<Map<String, Object>> analisarPorFormaPagamento(List<ItemRelatorio> itens) {
-        Map<String, Map<String, Object>> formas = new HashMap<>();
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarAno(
+            @RequestParam Integer ano,
+            @UsuarioAtual Long usuarioId) {
 
-        for (ItemRelatorio item : itens) {
-            String forma = item.getFormaPagamento() != null ? item.getFormaPagamento() : "Não informado";
-            formas.putIfAbsent(forma, new HashMap<>());
+        StreamingResponseBody corpo = saida -> exportacaoItensService.exportarAnoNdjson(usuarioId, ano, saida);
 
-            Map<String, Object> dados = formas.get(forma);
-            BigDecimal receitaAtual = (BigDecimal) dados.getOrDefault("receitas", BigDecimal.ZERO);
-            BigDecimal despesaAtual = (BigDecimal) dados.getOrDefault("despesas", BigDecimal.ZERO);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"itens-" + ano + ".ndjson\"")
+            .body(corpo);
+    }
 
-            dados.put("formaPagamento", forma);
+    /**
+     * Consolida os relatórios do usuário em um período: ano até a data, últimos 12 meses
+     * ou trimestre. Retorna métricas do período, série mensal e totais por categoria.
+     *
+     * GET /api/relatorios/consolidado?periodo=ANO_ATUAL&ano=2024
+     * GET /api/relatorios/consolidado?periodo=ULTIMOS_12_MESES&ano=2024&mes=6
+     * GET /api/relatorios/consolidado?periodo=TRIMESTRE&ano=2024&trimestre=2
+     */
+    @GetMapping("/consolidado")
+    public ResponseEntity<?> buscarConsolidado(
+            @RequestParam(defaultValue = "ANO_ATUAL") RelatorioConsolidado.Periodo periodo,
+            @RequestParam(required = false) Integer ano,
+            @RequestParam(required = false) Integer mes,
+            @RequestParam(required = false) Integer trimestre,
+            @UsuarioAtual Long usuarioId) {
 
-            if (item.getTipo() == ItemRelatorio.TipoTransacao.RECEITA) {
-                dados.put("receitas", receitaAtual.add(item.getValor()));
-                dados.put("despesas", despesaAtual);
-            } else {
-                dados.put("receitas", receitaAtual);
-                dados.put("despesas", despesaAtual.add(item.getValor()));
-            }
+        try {
+            return ResponseEntity.ok(relatorioConsolidadoService.consolidar(
+                usuarioId, periodo, ano, mes, trimestre));
 
-            BigDecimal total = ((BigDecimal) dados.get("receitas")).add((BigDecimal) dados.get("despesas"));
-            dados.put("totalMovimentado", total);
-        }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
 
-        return new ArrayList<>(formas.values());
+        } catch (Exception e) {
+            log.error("Erro ao consolidar relatórios", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Erro ao consolidar relatórios: " + e.getMessage()
+            ));
+        }
     }
 
     /**
-     * Obtém as 10 maiores receitas.
+     * Busca os últimos 5 relatórios do usuário.
+     *
+     * GET /api/relatorios/recentes
      */
-    private List<ItemRelatorio> obterTop10Receitas(List<ItemRelatorio> itens) {
-        return itens.stream()
-            .filter(item -> item.getTipo() == ItemRelatorio.TipoTransacao.RECEITA)
-            .sorted((a, b) -> b.getValor().compareTo(a.getValor()))
-            .limit(10)
-            .collect(Collectors.toList());
-    }
+    @GetMapping("/recentes")
+    public ResponseEntity<?> buscarRecentes(@UsuarioAtual Usuario usuario) {
+        try {
+            List<RelatorioResumoDTO> relatorios = relatorioService.buscarUltimosRelatorios(usuario);
 
-    /**
-     * Obtém as 10 maiores despesas.
-     */
-    private List<ItemRelatorio> obterTop10Despesas(List<ItemRelatorio> itens) {
-        return itens.stream()
-            .filter(item -> item.getTipo() == ItemRelatorio.TipoTransacao.DESPESA)
-            .sorted((a, b) -> b.getValor().compareTo(a.getValor()))
-            .limit(10)
-            .collect(Collectors.toList());
+            return ResponseEntity.ok(relatorios);
+
+        } catch (Exception e) {
+            log.error("Erro ao buscar relatórios recentes", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Erro ao buscar relatórios: " + e.getMessage()
+            ));
+        }
     }
 }
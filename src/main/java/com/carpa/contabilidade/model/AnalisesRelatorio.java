@@ -0,0 +1,64 @@
+package com.carpa.contabilidade.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Análises pré-calculadas de um relatório, exibidas no dashboard.
+ * São calculadas uma única vez na geração do relatório e gravadas como JSONB
+ * na coluna analises da tabela relatorios.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalisesRelatorio {
+
+    private List<TotalCategoria> porCategoria = new ArrayList<>();
+
+    private List<TotalCentroCusto> porCentroCusto = new ArrayList<>();
+
+    private List<TotalFormaPagamento> porFormaPagamento = new ArrayList<>();
+
+    private List<Destaque> top10Receitas = new ArrayList<>();
+
+    private List<Destaque> top10Despesas = new ArrayList<>();
+
+    /**
+     * Total de uma categoria para um tipo de transação.
+     */
+    public record TotalCategoria(String categoria, ItemRelatorio.TipoTransacao tipo,
+                                 BigDecimal total, long quantidade) {
+    }
+
+    /**
+     * Receitas, despesas e resultado de um centro de custo.
+     */
+    public record TotalCentroCusto(String centroCusto, BigDecimal receitas,
+                                   BigDecimal despesas, BigDecimal resultado) {
+    }
+
+    /**
+     * Receitas, despesas e total movimentado de uma forma de pagamento.
+     */
+    public record TotalFormaPagamento(String formaPagamento, BigDecimal receitas,
+                                      BigDecimal despesas, BigDecimal totalMovimentado) {
+    }
+
+    /**
+     * Transação exibida nas listas de maiores receitas e despesas.
+     */
+    public record Destaque(LocalDate data, String descricao, String categoria,
+                           ItemRelatorio.TipoTransacao tipo, BigDecimal valor) {
+
+        public static Destaque de(ItemRelatorio item) {
+            return new Destaque(item.getData(), item.getDescricao(), item.getCategoria(),
+                                item.getTipo(), item.getValor());
+        }
+    }
+}
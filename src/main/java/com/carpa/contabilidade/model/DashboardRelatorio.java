@@ -0,0 +1,8 @@
+package com.carpa.contabilidade.model;
+
+/**
+ * Dados exibidos no dashboard de um relatório: métricas e análises pré-calculadas.
+ * Mantido em cache por ID do relatório e ID do usuário proprietário.
+ */
+public record DashboardRelatorio(RelatorioResumoDTO relatorio, AnalisesRelatorio analises) {
+}
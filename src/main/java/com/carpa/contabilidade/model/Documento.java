@@ -43,6 +43,9 @@ public class Documento {
     @Column(nullable = false, length = 500)
     private String caminhoStorage;
 
+    @Column(length = 64)
+    private String sha256; // SHA-256 do conteúdo, calculado na gravação
+
     @NotNull(message = "O mês de referência é obrigatório")
     @Min(value = 1, message = "Mês deve ser entre 1 e 12")
     @Max(value = 12, message = "Mês deve ser entre 1 e 12")
@@ -74,6 +77,19 @@ public class Documento {
     @Column
     private LocalDateTime dataProcessamento;
 
+    // Controle da fila de processamento
+    @Column
+    private Integer tentativas = 0; // Quantas vezes o processamento foi iniciado
+
+    @Column
+    private LocalDateTime proximaTentativa; // Backoff: não processar antes deste instante
+
+    @Column
+    private LocalDateTime leaseExpiraEm; // Até quando o worker atual detém o documento
+
+    @Column(length = 100)
+    private String processadoPor; // Identificação do nó que detém o documento
+
     /**
      * Enum que representa o status de processamento do documento
      */
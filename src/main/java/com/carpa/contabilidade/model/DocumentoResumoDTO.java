@@ -0,0 +1,21 @@
+package com.carpa.contabilidade.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO com os dados de um documento exibidos nas listagens.
+ * Preenchido diretamente pela consulta, sem o usuário, o caminho no storage e os campos da fila.
+ */
+public record DocumentoResumoDTO(
+    Long id,
+    String nomeArquivo,
+    String tipoArquivo,
+    Long tamanho,
+    Integer mesReferencia,
+    Integer anoReferencia,
+    Documento.StatusProcessamento status,
+    String mensagemErro,
+    LocalDateTime dataUpload,
+    LocalDateTime dataProcessamento
+) {
+}
@@ -0,0 +1,77 @@
+package com.carpa.contabilidade.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Filtros e cursor da consulta paginada de itens de um relatório.
+ * Preenchido a partir dos parâmetros da requisição; campos nulos não filtram.
+ *
+ * A paginação é por cursor na ordem (data, id): a próxima página é pedida com
+ * aposData e aposId iguais aos do último item recebido.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroItensRelatorio {
+
+    public static final int TAMANHO_PADRAO = 50;
+    public static final int TAMANHO_MAXIMO = 500;
+
+    private ItemRelatorio.TipoTransacao tipo;
+
+    private String categoria;
+
+    private String centroCusto;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate dataInicio;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate dataFim;
+
+    private BigDecimal valorMin;
+
+    private BigDecimal valorMax;
+
+    // Cursor: data e id do último item da página anterior
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate aposData;
+
+    private Long aposId;
+
+    private Integer tamanho;
+
+    /**
+     * Verifica a consistência dos filtros.
+     *
+     * @return Mensagem de erro, ou null se os filtros são válidos
+     */
+    public String validar() {
+        if ((aposData == null) != (aposId == null)) {
+            return "Informe aposData e aposId juntos";
+        }
+        if (dataInicio != null && dataFim != null && dataInicio.isAfter(dataFim)) {
+            return "dataInicio deve ser anterior ou igual a dataFim";
+        }
+        if (valorMin != null && valorMax != null && valorMin.compareTo(valorMax) > 0) {
+            return "valorMin deve ser menor ou igual a valorMax";
+        }
+        if (tamanho != null && (tamanho < 1 || tamanho > TAMANHO_MAXIMO)) {
+            return "tamanho deve ser entre 1 e " + TAMANHO_MAXIMO;
+        }
+        return null;
+    }
+
+    /**
+     * Tamanho da página, usando o padrão quando não informado.
+     */
+    public int tamanhoEfetivo() {
+        return tamanho != null ? tamanho : TAMANHO_PADRAO;
+    }
+}
@@ -1,6 +1,6 @@
 package com.carpa.contabilidade.model;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -14,6 +14,7 @@ import java.time.LocalDate;
 /**
  * Entidade que representa uma linha individual do CSV processado.
  * Corresponde a uma transação (receita ou despesa) registrada no documento.
+ * A tabela é particionada por mês de referência (ver V3__particionamento_itens_relatorio.sql).
  */
 @Entity
 @Table(name = "itens_relatorio")
@@ -29,9 +30,17 @@ public class ItemRelatorio {
     @NotNull(message = "O relatório é obrigatório")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "relatorio_id", nullable = false)
-    @JsonIgnoreProperties({"itens", "documento", "usuario"})
+    @JsonIgnore
     private Relatorio relatorio;
 
+    /**
+     * Primeiro dia do mês de referência do relatório. É a chave de partição da tabela:
+     * consultas que informam o período leem apenas a partição do mês.
+     */
+    @Column(nullable = false)
+    @JsonIgnore
+    private LocalDate periodoReferencia;
+
     @NotNull(message = "A data é obrigatória")
     @Column(nullable = false)
     private LocalDate data;
@@ -0,0 +1,16 @@
+package com.carpa.contabilidade.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Página da consulta de itens de um relatório.
+ *
+ * @param itens Itens da página, ordenados por data e id
+ * @param temMais Se existem itens após esta página
+ * @param proximaData Valor de aposData para buscar a próxima página (null se não houver)
+ * @param proximoId Valor de aposId para buscar a próxima página (null se não houver)
+ */
+public record PaginaItensRelatorio(List<ItemRelatorio> itens, boolean temMais,
+                                   LocalDate proximaData, Long proximoId) {
+}
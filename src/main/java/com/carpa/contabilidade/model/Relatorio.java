@@ -10,8 +10,11 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -76,6 +79,13 @@ public class Relatorio {
     @Column(nullable = false)
     private Integer totalDespesas = 0;
 
+    // Análises do dashboard (por categoria, centro de custo, forma de pagamento e top 10),
+    // calculadas na geração do relatório
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    @JsonIgnore
+    private AnalisesRelatorio analises;
+
     // Relacionamento com itens individuais do relatório
     @OneToMany(mappedBy = "relatorio", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
@@ -85,12 +95,24 @@ public class Relatorio {
     @Column(nullable = false, updatable = false)
     private LocalDateTime dataGeracao;
 
+    /**
+     * Primeiro dia do mês de referência: chave de partição dos itens do relatório.
+     */
+    @JsonIgnore
+    public LocalDate getPeriodoReferencia() {
+        if (anoReferencia == null || mesReferencia == null) {
+            return null;
+        }
+        return LocalDate.of(anoReferencia, mesReferencia, 1);
+    }
+
     /**
      * Método auxiliar para adicionar item ao relatório
      */
     public void addItem(ItemRelatorio item) {
         itens.add(item);
         item.setRelatorio(this);
+        item.setPeriodoReferencia(getPeriodoReferencia());
     }
 
     /**
@@ -0,0 +1,45 @@
+package com.carpa.contabilidade.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Visão consolidada dos relatórios de um usuário em um intervalo de meses
+ * (ano até a data, últimos 12 meses ou trimestre).
+ *
+ * @param periodo Tipo de período consolidado
+ * @param anoInicio Ano do primeiro mês do intervalo
+ * @param mesInicio Primeiro mês do intervalo
+ * @param anoFim Ano do último mês do intervalo
+ * @param mesFim Último mês do intervalo
+ * @param metricas Totais do intervalo
+ * @param serieMensal Totais de cada mês do intervalo, inclusive meses sem relatório
+ * @param porCategoria Totais por categoria e tipo no intervalo
+ */
+public record RelatorioConsolidado(Periodo periodo, int anoInicio, int mesInicio, int anoFim, int mesFim,
+                                   Metricas metricas, List<TotalMensal> serieMensal,
+                                   List<AnalisesRelatorio.TotalCategoria> porCategoria) {
+
+    /**
+     * Períodos de consolidação disponíveis.
+     */
+    public enum Periodo {
+        ANO_ATUAL,
+        ULTIMOS_12_MESES,
+        TRIMESTRE
+    }
+
+    /**
+     * Totais do intervalo inteiro.
+     */
+    public record Metricas(BigDecimal receitaTotal, BigDecimal despesaTotal, BigDecimal saldo,
+                           BigDecimal margemLucro, long totalTransacoes) {
+    }
+
+    /**
+     * Totais de um mês.
+     */
+    public record TotalMensal(int ano, int mes, BigDecimal receitas, BigDecimal despesas,
+                              BigDecimal saldo, long totalTransacoes) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.carpa.contabilidade.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO com os dados de um relatório exibidos nas listagens.
+ * Preenchido diretamente pela consulta (sem carregar a entidade, as análises ou as associações).
+ */
+public record RelatorioResumoDTO(
+    Long id,
+    Integer mesReferencia,
+    Integer anoReferencia,
+    BigDecimal receitaTotal,
+    BigDecimal despesaTotal,
+    BigDecimal saldo,
+    BigDecimal margemLucro,
+    Integer totalTransacoes,
+    Integer totalReceitas,
+    Integer totalDespesas,
+    LocalDateTime dataGeracao
+) {
+
+    public static RelatorioResumoDTO de(Relatorio relatorio) {
+        return new RelatorioResumoDTO(relatorio.getId(), relatorio.getMesReferencia(), relatorio.getAnoReferencia(),
+            relatorio.getReceitaTotal(), relatorio.getDespesaTotal(), relatorio.getSaldo(),
+            relatorio.getMargemLucro(), relatorio.getTotalTransacoes(), relatorio.getTotalReceitas(),
+            relatorio.getTotalDespesas(), relatorio.getDataGeracao());
+    }
+}
@@ -0,0 +1,32 @@
+package com.carpa.contabilidade.model;
+
+/**
+ * Resultado do upload de um arquivo enviado em lote (arquivo avulso ou entrada de um ZIP).
+ * Arquivos aceitos ficam PENDENTES e são processados em paralelo pelos workers;
+ * a rejeição de um arquivo não impede o envio dos demais.
+ */
+public record ResultadoUploadLote(
+    String nomeArquivo,
+    Integer mesReferencia,
+    Integer anoReferencia,
+    Situacao situacao,
+    Long documentoId,
+    String mensagem
+) {
+
+    public enum Situacao {
+        ACEITO,
+        REJEITADO
+    }
+
+    public static ResultadoUploadLote aceito(Documento documento) {
+        return new ResultadoUploadLote(documento.getNomeArquivo(), documento.getMesReferencia(),
+            documento.getAnoReferencia(), Situacao.ACEITO, documento.getId(), null);
+    }
+
+    public static ResultadoUploadLote rejeitado(String nomeArquivo, Integer mesReferencia,
+                                                Integer anoReferencia, String mensagem) {
+        return new ResultadoUploadLote(nomeArquivo, mesReferencia, anoReferencia,
+            Situacao.REJEITADO, null, mensagem);
+    }
+}
@@ -0,0 +1,53 @@
+package com.carpa.contabilidade.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Entidade de resumo (rollup) com o total mensal de cada categoria e tipo por usuário.
+ * É mantida de forma incremental: somada quando um relatório é gerado e subtraída
+ * quando o documento do relatório é excluído. Consultas de dashboard leem esta tabela
+ * em vez de percorrer itens_relatorio.
+ */
+@Entity
+@Table(name = "resumo_mensal_categoria",
+       uniqueConstraints = @UniqueConstraint(name = "uk_resumo_mensal_categoria",
+           columnNames = {"usuario_id", "ano", "mes", "categoria", "tipo"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoMensalCategoria {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    @JsonIgnore
+    private Usuario usuario;
+
+    @Column(nullable = false)
+    private Integer ano;
+
+    @Column(nullable = false)
+    private Integer mes;
+
+    @Column(nullable = false)
+    private String categoria;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ItemRelatorio.TipoTransacao tipo;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal total = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private Integer quantidade = 0;
+}
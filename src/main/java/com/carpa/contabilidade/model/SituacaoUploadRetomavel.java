@@ -0,0 +1,24 @@
+package com.carpa.contabilidade.model;
+
+/**
+ * Situação de um upload retomável: quantos bytes já foram recebidos (posição em que o
+ * cliente deve continuar) e, quando concluído, o ID do documento criado.
+ */
+public record SituacaoUploadRetomavel(
+    String id,
+    String nomeArquivo,
+    Long tamanho,
+    Long recebido,
+    Long documentoId
+) {
+
+    public static SituacaoUploadRetomavel de(UploadRetomavel upload) {
+        return new SituacaoUploadRetomavel(upload.getId(), upload.getNomeArquivo(),
+            upload.getTamanho(), upload.getRecebido(), null);
+    }
+
+    public static SituacaoUploadRetomavel concluido(UploadRetomavel upload, Documento documento) {
+        return new SituacaoUploadRetomavel(upload.getId(), upload.getNomeArquivo(),
+            upload.getTamanho(), upload.getTamanho(), documento.getId());
+    }
+}
@@ -0,0 +1,55 @@
+package com.carpa.contabilidade.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidade que representa um upload retomável em andamento: o arquivo é enviado em partes
+ * (Content-Range) e gravado em um arquivo temporário até que todos os bytes sejam recebidos.
+ * Só então o arquivo é movido para o storage e o Documento é criado.
+ */
+@Entity
+@Table(name = "uploads_retomaveis")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadRetomavel {
+
+    @Id
+    @Column(length = 36)
+    private String id; // UUID, também usado como nome do arquivo temporário
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    private Usuario usuario;
+
+    @Column(nullable = false)
+    private String nomeArquivo;
+
+    @Column(nullable = false)
+    private Long tamanho; // Tamanho total declarado, em bytes
+
+    @Column(nullable = false)
+    private Long recebido = 0L; // Bytes já gravados: posição da próxima parte
+
+    @Column(nullable = false)
+    private Integer mesReferencia;
+
+    @Column(nullable = false)
+    private Integer anoReferencia;
+
+    @Column(length = 64)
+    private String sha256; // Checksum do arquivo completo informado pelo cliente (opcional)
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime dataCriacao;
+
+    @Column(nullable = false)
+    private LocalDateTime dataAtualizacao; // Última parte recebida, usada para expirar uploads abandonados
+}
@@ -1,10 +1,18 @@
 package com.carpa.contabilidade.repository;
 
 import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.model.DocumentoResumoDTO;
 import com.carpa.contabilidade.model.Usuario;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,6 +47,14 @@ public interface DocumentoRepository extends JpaRepository<Documento, Long> {
     List<Documento> findByUsuarioAndMesReferenciaAndAnoReferencia(
             Usuario usuario, Integer mesReferencia, Integer anoReferencia);
 
+    /**
+     * Busca um documento pelo ID, desde que pertença ao usuário.
+     * @param id ID do documento
+     * @param usuarioId ID do usuário proprietário
+     * @return Optional contendo o documento se encontrado e do usuário
+     */
+    Optional<Documento> findByIdAndUsuarioId(Long id, Long usuarioId);
+
     /**
      * Verifica se já existe um documento para o usuário no mês/ano especificado.
      * @param usuario Usuário
@@ -49,6 +65,25 @@ public interface DocumentoRepository extends JpaRepository<Documento, Long> {
     boolean existsByUsuarioAndMesReferenciaAndAnoReferencia(
             Usuario usuario, Integer mesReferencia, Integer anoReferencia);
 
+    /**
+     * Busca o documento de um usuário no mês/ano especificado.
+     * @param usuario Usuário
+     * @param mesReferencia Mês
+     * @param anoReferencia Ano
+     * @return Optional contendo o documento do período, se houver
+     */
+    Optional<Documento> findFirstByUsuarioAndMesReferenciaAndAnoReferencia(
+            Usuario usuario, Integer mesReferencia, Integer anoReferencia);
+
+    /**
+     * Verifica se outro documento usa o mesmo arquivo (armazenamento por conteúdo).
+     * Usado como contagem de referências: o arquivo só é removido quando nenhum documento o usa.
+     * @param caminhoStorage Caminho relativo do arquivo
+     * @param id ID do documento a desconsiderar
+     * @return true se o arquivo é usado por outro documento
+     */
+    boolean existsByCaminhoStorageAndIdNot(String caminhoStorage, Long id);
+
     /**
      * Busca documentos de um usuário ordenados por data de upload decrescente.
      * @param usuario Usuário proprietário
@@ -56,6 +91,42 @@ public interface DocumentoRepository extends JpaRepository<Documento, Long> {
      */
     List<Documento> findByUsuarioOrderByDataUploadDesc(Usuario usuario);
 
+    /**
+     * Lista os resumos dos documentos de um usuário, mais recentes primeiro.
+     * Lê só as colunas da listagem, sem carregar o usuário.
+     * @param usuarioId ID do usuário
+     * @return Resumos dos documentos
+     */
+    @Query("SELECT new com.carpa.contabilidade.model.DocumentoResumoDTO(d.id, d.nomeArquivo, d.tipoArquivo, " +
+           "d.tamanho, d.mesReferencia, d.anoReferencia, d.status, d.mensagemErro, d.dataUpload, " +
+           "d.dataProcessamento) FROM Documento d WHERE d.usuario.id = :usuarioId ORDER BY d.dataUpload DESC")
+    List<DocumentoResumoDTO> listarResumos(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Busca o resumo de um documento.
+     * @param id ID do documento
+     * @return Optional contendo o resumo se encontrado
+     */
+    @Query("SELECT new com.carpa.contabilidade.model.DocumentoResumoDTO(d.id, d.nomeArquivo, d.tipoArquivo, " +
+           "d.tamanho, d.mesReferencia, d.anoReferencia, d.status, d.mensagemErro, d.dataUpload, " +
+           "d.dataProcessamento) FROM Documento d WHERE d.id = :id")
+    Optional<DocumentoResumoDTO> buscarResumo(@Param("id") Long id);
+
+    /**
+     * Atualiza o arquivo de um documento (upload em pipeline, cujo tamanho e conteúdo só são
+     * conhecidos ao final).
+     * @param id ID do documento
+     * @param tamanho Tamanho em bytes
+     * @param caminhoStorage Caminho relativo do arquivo
+     * @param sha256 SHA-256 do conteúdo
+     * @return Quantidade de documentos atualizados
+     */
+    @Modifying
+    @Query("UPDATE Documento d SET d.tamanho = :tamanho, d.caminhoStorage = :caminhoStorage, " +
+           "d.sha256 = :sha256 WHERE d.id = :id")
+    int atualizarArquivo(@Param("id") Long id, @Param("tamanho") Long tamanho,
+                         @Param("caminhoStorage") String caminhoStorage, @Param("sha256") String sha256);
+
     /**
      * Conta total de documentos de um usuário.
      * @param usuario Usuário proprietário
@@ -69,4 +140,83 @@ public interface DocumentoRepository extends JpaRepository<Documento, Long> {
      * @return Quantidade de documentos com o status
      */
     long countByStatus(Documento.StatusProcessamento status);
+
+    /**
+     * Busca e bloqueia documentos PROCESSANDO cujo lease expirou (o worker caiu ou travou).
+     * Linhas bloqueadas por outros nós são puladas (SKIP LOCKED).
+     * Deve ser chamado dentro de uma transação.
+     * @param agora Instante atual
+     * @param limite Quantidade máxima de documentos
+     * @return Documentos com lease expirado
+     */
+    @Query(value = "SELECT * FROM documentos " +
+                   "WHERE status = 'PROCESSANDO' AND lease_expira_em < :agora " +
+                   "ORDER BY lease_expira_em " +
+                   "LIMIT :limite " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Documento> bloquearComLeaseExpirado(@Param("agora") LocalDateTime agora,
+                                             @Param("limite") int limite);
+
+    /**
+     * Busca e bloqueia IDs de documentos prontos para processamento: PENDENTES cujo backoff
+     * já expirou. Documentos com lease expirado voltam antes para PENDENTE (ver
+     * bloquearComLeaseExpirado). Linhas bloqueadas por outros nós são puladas (SKIP LOCKED),
+     * então cada documento é reservado por um único worker.
+     * Deve ser chamado dentro de uma transação.
+     * @param agora Instante atual
+     * @param limite Quantidade máxima de documentos
+     * @return IDs reservados, em ordem de upload
+     */
+    @Query(value = "SELECT id FROM documentos " +
+                   "WHERE status = 'PENDENTE' AND (proxima_tentativa IS NULL OR proxima_tentativa <= :agora) " +
+                   "ORDER BY data_upload " +
+                   "LIMIT :limite " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> bloquearDisponiveisParaProcessamento(@Param("agora") LocalDateTime agora,
+                                                    @Param("limite") int limite);
+
+    /**
+     * Marca documentos como PROCESSANDO para um nó, com lease e contagem de tentativas.
+     * @param ids IDs previamente bloqueados
+     * @param status Status PROCESSANDO
+     * @param leaseExpiraEm Fim do lease
+     * @param processadoPor Identificação do nó
+     * @return Quantidade de documentos atualizados
+     */
+    @Modifying
+    @Query("UPDATE Documento d SET d.status = :status, d.leaseExpiraEm = :leaseExpiraEm, " +
+           "d.processadoPor = :processadoPor, d.tentativas = COALESCE(d.tentativas, 0) + 1 " +
+           "WHERE d.id IN :ids")
+    int reservar(@Param("ids") Collection<Long> ids,
+                 @Param("status") Documento.StatusProcessamento status,
+                 @Param("leaseExpiraEm") LocalDateTime leaseExpiraEm,
+                 @Param("processadoPor") String processadoPor);
+
+    /**
+     * Devolve à fila documentos reservados por um nó que não chegaram a ser processados:
+     * voltam para PENDENTE sem lease, e a tentativa contada na reserva é desfeita.
+     * @param ids IDs reservados
+     * @param status Status PENDENTE
+     * @param processadoPor Identificação do nó que os reservou
+     * @return Quantidade de documentos devolvidos
+     */
+    @Modifying
+    @Query("UPDATE Documento d SET d.status = :status, d.leaseExpiraEm = null, d.processadoPor = null, " +
+           "d.tentativas = d.tentativas - 1 " +
+           "WHERE d.id IN :ids AND d.processadoPor = :processadoPor")
+    int devolverParaFila(@Param("ids") Collection<Long> ids,
+                         @Param("status") Documento.StatusProcessamento status,
+                         @Param("processadoPor") String processadoPor);
+
+    /**
+     * Busca um documento bloqueando a linha (SELECT ... FOR UPDATE).
+     * Enquanto a transação estiver aberta, nenhum outro nó consegue reservá-lo.
+     * @param id ID do documento
+     * @return Optional contendo o documento se encontrado
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM Documento d WHERE d.id = :id")
+    Optional<Documento> buscarComBloqueio(@Param("id") Long id);
 }
@@ -0,0 +1,216 @@
+package com.carpa.contabilidade.repository;
+
+import com.carpa.contabilidade.model.ItemRelatorio;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Repository que grava itens de relatório com o COPY do PostgreSQL (formato CSV).
+ * A leitura do arquivo roda em uma thread produtora que codifica as linhas em blocos;
+ * a thread chamadora envia os blocos ao banco pela conexão da transação corrente,
+ * de modo que parse e carga acontecem ao mesmo tempo.
+ *
+ * É um @Component e não um @Repository: a tradução de exceções do @Repository transformaria
+ * a IllegalArgumentException de uma linha inválida em InvalidDataAccessApiUsageException,
+ * e o processamento a trataria como falha temporária.
+ */
+@Component
+@Slf4j
+public class ItemRelatorioCopyRepository {
+
+    private static final String SQL_COPY =
+        "COPY itens_relatorio (relatorio_id, periodo_referencia, data, descricao, categoria, tipo, valor, " +
+        "forma_pagamento, centro_custo, observacoes) FROM STDIN WITH (FORMAT csv)";
+
+    // Tamanho aproximado de cada bloco enviado ao COPY e quantidade máxima de blocos em espera
+    private static final int TAMANHO_BLOCO = 64 * 1024;
+    private static final int BLOCOS_EM_ESPERA = 16;
+
+    private static final byte[] FIM = new byte[0];
+
+    private final DataSource dataSource;
+    private final ExecutorService produtores;
+
+    public ItemRelatorioCopyRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        AtomicInteger contador = new AtomicInteger();
+        this.produtores = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "copy-produtor-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Fonte dos itens a gravar. Recebe o consumidor que deve ser chamado para cada item.
+     */
+    @FunctionalInterface
+    public interface ProdutorItens {
+        void produzir(Consumer<ItemRelatorio> consumidor) throws IOException;
+    }
+
+    /**
+     * Grava via COPY todos os itens entregues pelo produtor, vinculados ao relatório informado.
+     * Deve ser chamado dentro de uma transação, após o relatório ter sido inserido.
+     *
+     * @param relatorioId ID do relatório
+     * @param periodo Período de referência do relatório (chave de partição)
+     * @param produtor Fonte dos itens (executada em outra thread)
+     * @return Quantidade de itens gravados
+     * @throws IOException Se houver erro na leitura dos itens ou no COPY
+     */
+    public long copiar(Long relatorioId, LocalDate periodo, ProdutorItens produtor) throws IOException {
+        BlockingQueue<byte[]> blocos = new ArrayBlockingQueue<>(BLOCOS_EM_ESPERA);
+        String prefixo = relatorioId + "," + periodo + ",";
+
+        Future<Long> leitura = produtores.submit(() -> {
+            StringBuilder buffer = new StringBuilder(TAMANHO_BLOCO + 1024);
+            long[] total = {0};
+            boolean concluido = false;
+            try {
+                produtor.produzir(item -> {
+                    buffer.append(prefixo);
+                    escreverLinha(buffer, item);
+                    total[0]++;
+                    if (buffer.length() >= TAMANHO_BLOCO) {
+                        enfileirar(blocos, buffer.toString().getBytes(StandardCharsets.UTF_8));
+                        buffer.setLength(0);
+                    }
+                });
+                if (buffer.length() > 0) {
+                    enfileirar(blocos, buffer.toString().getBytes(StandardCharsets.UTF_8));
+                }
+                concluido = true;
+                return total[0];
+            } finally {
+                // Sempre sinaliza o fim; em caso de erro descarta os blocos pendentes
+                if (!concluido) {
+                    blocos.clear();
+                }
+                blocos.put(FIM);
+            }
+        });
+
+        Connection conexao = DataSourceUtils.getConnection(dataSource);
+        CopyIn copy = null;
+        try {
+            CopyManager copyManager = conexao.unwrap(PGConnection.class).getCopyAPI();
+            copy = copyManager.copyIn(SQL_COPY);
+
+            byte[] bloco;
+            while ((bloco = blocos.take()) != FIM) {
+                copy.writeToCopy(bloco, 0, bloco.length);
+            }
+
+            // Propaga erro de leitura antes de confirmar o COPY
+            long total = aguardar(leitura);
+            long gravados = copy.endCopy();
+            copy = null;
+
+            log.info("COPY concluído para relatório {}: {} itens", relatorioId, gravados);
+            return total;
+
+        } catch (SQLException e) {
+            throw new IOException("Erro ao gravar itens via COPY: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Gravação via COPY interrompida", e);
+        } finally {
+            leitura.cancel(true);
+            if (copy != null && copy.isActive()) {
+                try {
+                    copy.cancelCopy();
+                } catch (SQLException e) {
+                    log.warn("Erro ao cancelar COPY: {}", e.getMessage());
+                }
+            }
+            DataSourceUtils.releaseConnection(conexao, dataSource);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        produtores.shutdownNow();
+    }
+
+    /**
+     * Aguarda a thread produtora e repassa seus erros com o tipo original quando possível.
+     */
+    private static long aguardar(Future<Long> leitura) throws IOException, InterruptedException {
+        try {
+            return leitura.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (causa instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Erro ao ler itens: " + causa.getMessage(), causa);
+        }
+    }
+
+    private static void enfileirar(BlockingQueue<byte[]> blocos, byte[] bloco) {
+        try {
+            blocos.put(bloco);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Leitura interrompida", e);
+        }
+    }
+
+    /**
+     * Escreve os campos do item (exceto relatorio_id e periodo_referencia) como uma linha CSV do COPY.
+     * Textos vão sempre entre aspas; campo vazio sem aspas é NULL.
+     */
+    private static void escreverLinha(StringBuilder buffer, ItemRelatorio item) {
+        buffer.append(item.getData()).append(',');
+        escreverTexto(buffer, item.getDescricao());
+        buffer.append(',');
+        escreverTexto(buffer, item.getCategoria());
+        buffer.append(',').append(item.getTipo().name()).append(',');
+        buffer.append(item.getValor().toPlainString()).append(',');
+        escreverTexto(buffer, item.getFormaPagamento());
+        buffer.append(',');
+        escreverTexto(buffer, item.getCentroCusto());
+        buffer.append(',');
+        escreverTexto(buffer, item.getObservacoes());
+        buffer.append('\n');
+    }
+
+    private static void escreverTexto(StringBuilder buffer, String texto) {
+        if (texto == null) {
+            return;
+        }
+        buffer.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+}
@@ -0,0 +1,62 @@
+package com.carpa.contabilidade.repository;
+
+import com.carpa.contabilidade.model.ItemRelatorio;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository JDBC para inserção em lote dos itens de relatório.
+ * Os itens usam id IDENTITY, o que impede o Hibernate de agrupar os INSERTs;
+ * aqui cada lote vira um único batch JDBC (reescrito em INSERT multi-linha pelo
+ * driver do PostgreSQL com reWriteBatchedInserts=true).
+ */
+@Repository
+@RequiredArgsConstructor
+public class ItemRelatorioJdbcRepository {
+
+    private static final String SQL_INSERT =
+        "INSERT INTO itens_relatorio (relatorio_id, periodo_referencia, data, descricao, categoria, tipo, valor, " +
+        "forma_pagamento, centro_custo, observacoes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insere um lote de itens vinculados a um relatório já persistido.
+     *
+     * @param relatorioId ID do relatório
+     * @param periodo Período de referência do relatório (chave de partição)
+     * @param itens Itens a inserir
+     */
+    public void inserirEmLote(Long relatorioId, LocalDate periodo, List<ItemRelatorio> itens) {
+        Date periodoReferencia = Date.valueOf(periodo);
+        jdbcTemplate.batchUpdate(SQL_INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ItemRelatorio item = itens.get(i);
+                ps.setLong(1, relatorioId);
+                ps.setDate(2, periodoReferencia);
+                ps.setDate(3, Date.valueOf(item.getData()));
+                ps.setString(4, item.getDescricao());
+                ps.setString(5, item.getCategoria());
+                ps.setString(6, item.getTipo().name());
+                ps.setBigDecimal(7, item.getValor());
+                ps.setString(8, item.getFormaPagamento());
+                ps.setString(9, item.getCentroCusto());
+                ps.setString(10, item.getObservacoes());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return itens.size();
+            }
+        });
+    }
+}
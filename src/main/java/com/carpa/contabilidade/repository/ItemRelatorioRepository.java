@@ -3,19 +3,31 @@ package com.carpa.contabilidade.repository;
 import com.carpa.contabilidade.model.ItemRelatorio;
 import com.carpa.contabilidade.model.Relatorio;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Repository para gerenciar operações de banco de dados da entidade ItemRelatorio.
+ * Consultas com filtros opcionais usam {@link ItemRelatorioSpecifications}.
+ *
+ * A tabela é particionada por mês de referência: as consultas por relatório recebem também
+ * o período (Relatorio.getPeriodoReferencia()) para que o banco leia só a partição do mês.
+ * As buscas que recebem apenas a entidade Relatorio percorrem o índice de todas as partições.
  */
 @Repository
-public interface ItemRelatorioRepository extends JpaRepository<ItemRelatorio, Long> {
+public interface ItemRelatorioRepository extends JpaRepository<ItemRelatorio, Long>,
+        JpaSpecificationExecutor<ItemRelatorio> {
 
     /**
      * Busca todos os itens de um relatório.
@@ -60,4 +72,106 @@ public interface ItemRelatorioRepository extends JpaRepository<ItemRelatorio, Lo
      * @return Lista com os maiores itens
      */
     List<ItemRelatorio> findTop10ByRelatorioOrderByValorDesc(Relatorio relatorio);
+
+    /**
+     * Busca os 10 maiores itens de um tipo por valor.
+     * @param relatorioId ID do relatório
+     * @param periodo Período de referência do relatório
+     * @param tipo Tipo da transação
+     * @return Lista com os maiores itens do tipo
+     */
+    List<ItemRelatorio> findTop10ByRelatorioIdAndPeriodoReferenciaAndTipoOrderByValorDesc(
+            Long relatorioId, LocalDate periodo, ItemRelatorio.TipoTransacao tipo);
+
+    /**
+     * Totaliza os itens de um relatório por categoria e tipo.
+     * @param relatorioId ID do relatório
+     * @param periodo Período de referência do relatório
+     * @return Totais agrupados
+     */
+    @Query("SELECT i.categoria AS chave, i.tipo AS tipo, SUM(i.valor) AS total, COUNT(i) AS quantidade " +
+           "FROM ItemRelatorio i WHERE i.relatorio.id = :relatorioId AND i.periodoReferencia = :periodo " +
+           "GROUP BY i.categoria, i.tipo")
+    List<TotalAgrupado> totalizarPorCategoria(@Param("relatorioId") Long relatorioId,
+                                              @Param("periodo") LocalDate periodo);
+
+    /**
+     * Totaliza os itens de um relatório por centro de custo e tipo.
+     * @param relatorioId ID do relatório
+     * @param periodo Período de referência do relatório
+     * @return Totais agrupados (chave nula quando o centro de custo não foi informado)
+     */
+    @Query("SELECT i.centroCusto AS chave, i.tipo AS tipo, SUM(i.valor) AS total, COUNT(i) AS quantidade " +
+           "FROM ItemRelatorio i WHERE i.relatorio.id = :relatorioId AND i.periodoReferencia = :periodo " +
+           "GROUP BY i.centroCusto, i.tipo")
+    List<TotalAgrupado> totalizarPorCentroCusto(@Param("relatorioId") Long relatorioId,
+                                                @Param("periodo") LocalDate periodo);
+
+    /**
+     * Totaliza os itens de um relatório por forma de pagamento e tipo.
+     * @param relatorioId ID do relatório
+     * @param periodo Período de referência do relatório
+     * @return Totais agrupados (chave nula quando a forma de pagamento não foi informada)
+     */
+    @Query("SELECT i.formaPagamento AS chave, i.tipo AS tipo, SUM(i.valor) AS total, COUNT(i) AS quantidade " +
+           "FROM ItemRelatorio i WHERE i.relatorio.id = :relatorioId AND i.periodoReferencia = :periodo " +
+           "GROUP BY i.formaPagamento, i.tipo")
+    List<TotalAgrupado> totalizarPorFormaPagamento(@Param("relatorioId") Long relatorioId,
+                                                   @Param("periodo") LocalDate periodo);
+
+    /**
+     * Exclui todos os itens de um relatório com um único DELETE.
+     * @param relatorioId ID do relatório
+     * @param periodo Período de referência do relatório
+     * @return Quantidade de itens excluídos
+     */
+    @Modifying
+    @Query("DELETE FROM ItemRelatorio i WHERE i.relatorio.id = :relatorioId AND i.periodoReferencia = :periodo")
+    int excluirPorRelatorio(@Param("relatorioId") Long relatorioId,
+                            @Param("periodo") LocalDate periodo);
+
+    /**
+     * Percorre os itens de um relatório com um cursor do banco, em ordem de data e id.
+     * Deve ser consumido dentro de uma transação e fechado ao final.
+     * @param relatorioId ID do relatório
+     * @param periodo Período de referência do relatório
+     * @return Stream dos itens, lidos em blocos do tamanho do fetch size
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT i FROM ItemRelatorio i WHERE i.relatorio.id = :relatorioId " +
+           "AND i.periodoReferencia = :periodo ORDER BY i.data, i.id")
+    Stream<ItemRelatorio> streamPorRelatorio(@Param("relatorioId") Long relatorioId,
+                                             @Param("periodo") LocalDate periodo);
+
+    /**
+     * Percorre os itens de todos os relatórios de um usuário em um intervalo de períodos de
+     * referência, em ordem de data e id. Só as partições do intervalo são lidas.
+     * Deve ser consumido dentro de uma transação e fechado ao final.
+     * @param usuarioId ID do usuário
+     * @param inicio Primeiro período de referência (primeiro dia do mês)
+     * @param fim Último período de referência (primeiro dia do mês)
+     * @return Stream dos itens, lidos em blocos do tamanho do fetch size
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT i FROM ItemRelatorio i WHERE i.relatorio.usuario.id = :usuarioId " +
+           "AND i.periodoReferencia BETWEEN :inicio AND :fim ORDER BY i.data, i.id")
+    Stream<ItemRelatorio> streamPorUsuarioEPeriodo(@Param("usuarioId") Long usuarioId,
+                                                   @Param("inicio") LocalDate inicio,
+                                                   @Param("fim") LocalDate fim);
+
+    /**
+     * Projeção de um total agrupado por uma chave e pelo tipo da transação.
+     */
+    interface TotalAgrupado {
+        String getChave();
+        ItemRelatorio.TipoTransacao getTipo();
+        BigDecimal getTotal();
+        Long getQuantidade();
+    }
 }
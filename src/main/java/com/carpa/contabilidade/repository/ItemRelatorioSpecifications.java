@@ -0,0 +1,72 @@
+package com.carpa.contabilidade.repository;
+
+import com.carpa.contabilidade.model.FiltroItensRelatorio;
+import com.carpa.contabilidade.model.ItemRelatorio;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Specifications para consultas filtradas de itens de relatório.
+ * Só os filtros informados entram no WHERE, evitando condições do tipo
+ * "(:param IS NULL OR ...)" que atrapalham o planejador do banco.
+ */
+public final class ItemRelatorioSpecifications {
+
+    private ItemRelatorioSpecifications() {
+    }
+
+    /**
+     * Itens de um relatório que atendem aos filtros e estão após o cursor (data, id).
+     * O período de referência restringe a consulta à partição do mês.
+     *
+     * @param relatorioId ID do relatório
+     * @param periodo Período de referência do relatório
+     * @param filtro Filtros e cursor
+     * @return Specification correspondente
+     */
+    public static Specification<ItemRelatorio> doRelatorio(Long relatorioId, LocalDate periodo,
+                                                             FiltroItensRelatorio filtro) {
+        return (root, query, cb) -> {
+            List<Predicate> condicoes = new ArrayList<>();
+            condicoes.add(cb.equal(root.get("relatorio").get("id"), relatorioId));
+            condicoes.add(cb.equal(root.get("periodoReferencia"), periodo));
+
+            if (filtro.getTipo() != null) {
+                condicoes.add(cb.equal(root.get("tipo"), filtro.getTipo()));
+            }
+            if (filtro.getCategoria() != null && !filtro.getCategoria().isBlank()) {
+                condicoes.add(cb.equal(root.get("categoria"), filtro.getCategoria()));
+            }
+            if (filtro.getCentroCusto() != null && !filtro.getCentroCusto().isBlank()) {
+                condicoes.add(cb.equal(root.get("centroCusto"), filtro.getCentroCusto()));
+            }
+            if (filtro.getDataInicio() != null) {
+                condicoes.add(cb.greaterThanOrEqualTo(root.get("data"), filtro.getDataInicio()));
+            }
+            if (filtro.getDataFim() != null) {
+                condicoes.add(cb.lessThanOrEqualTo(root.get("data"), filtro.getDataFim()));
+            }
+            if (filtro.getValorMin() != null) {
+                condicoes.add(cb.greaterThanOrEqualTo(root.get("valor"), filtro.getValorMin()));
+            }
+            if (filtro.getValorMax() != null) {
+                condicoes.add(cb.lessThanOrEqualTo(root.get("valor"), filtro.getValorMax()));
+            }
+
+            // Cursor: (data, id) > (aposData, aposId)
+            if (filtro.getAposData() != null && filtro.getAposId() != null) {
+                condicoes.add(cb.or(
+                    cb.greaterThan(root.get("data"), filtro.getAposData()),
+                    cb.and(
+                        cb.equal(root.get("data"), filtro.getAposData()),
+                        cb.greaterThan(root.get("id"), filtro.getAposId()))));
+            }
+
+            return cb.and(condicoes.toArray(new Predicate[0]));
+        };
+    }
+}
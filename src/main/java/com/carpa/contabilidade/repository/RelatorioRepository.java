@@ -2,10 +2,15 @@ package com.carpa.contabilidade.repository;
 
 import com.carpa.contabilidade.model.Documento;
 import com.carpa.contabilidade.model.Relatorio;
+import com.carpa.contabilidade.model.RelatorioResumoDTO;
 import com.carpa.contabilidade.model.Usuario;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +20,11 @@ import java.util.Optional;
 @Repository
 public interface RelatorioRepository extends JpaRepository<Relatorio, Long> {
 
+    String SELECT_RESUMO =
+        "SELECT new com.carpa.contabilidade.model.RelatorioResumoDTO(r.id, r.mesReferencia, r.anoReferencia, " +
+        "r.receitaTotal, r.despesaTotal, r.saldo, r.margemLucro, r.totalTransacoes, r.totalReceitas, " +
+        "r.totalDespesas, r.dataGeracao) FROM Relatorio r ";
+
     /**
      * Busca todos os relatórios de um usuário.
      * @param usuario Usuário proprietário
@@ -40,6 +50,14 @@ public interface RelatorioRepository extends JpaRepository<Relatorio, Long> {
     List<Relatorio> findByUsuarioAndMesReferenciaAndAnoReferencia(
             Usuario usuario, Integer mesReferencia, Integer anoReferencia);
 
+    /**
+     * Busca um relatório pelo ID, desde que pertença ao usuário.
+     * @param id ID do relatório
+     * @param usuarioId ID do usuário proprietário
+     * @return Optional contendo o relatório se encontrado e do usuário
+     */
+    Optional<Relatorio> findByIdAndUsuarioId(Long id, Long usuarioId);
+
     /**
      * Busca relatório de um documento específico.
      * @param documento Documento de origem
@@ -61,6 +79,29 @@ public interface RelatorioRepository extends JpaRepository<Relatorio, Long> {
      */
     List<Relatorio> findTop5ByUsuarioOrderByDataGeracaoDesc(Usuario usuario);
 
+    /**
+     * Lista os resumos dos relatórios de um usuário, mais recentes primeiro.
+     * Lê só as colunas da listagem (sem as análises em JSONB).
+     * @param usuarioId ID do usuário
+     * @param pagina Página a retornar (Pageable.unpaged() para todos)
+     * @return Resumos dos relatórios
+     */
+    @Query(SELECT_RESUMO + "WHERE r.usuario.id = :usuarioId ORDER BY r.dataGeracao DESC")
+    List<RelatorioResumoDTO> listarResumos(@Param("usuarioId") Long usuarioId, Pageable pagina);
+
+    /**
+     * Lista os resumos dos relatórios de um usuário em um mês de referência.
+     * @param usuarioId ID do usuário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     * @return Resumos dos relatórios do período
+     */
+    @Query(SELECT_RESUMO + "WHERE r.usuario.id = :usuarioId AND r.mesReferencia = :mes " +
+           "AND r.anoReferencia = :ano ORDER BY r.dataGeracao DESC")
+    List<RelatorioResumoDTO> listarResumosPorPeriodo(@Param("usuarioId") Long usuarioId,
+                                                     @Param("mes") Integer mesReferencia,
+                                                     @Param("ano") Integer anoReferencia);
+
     /**
      * Conta relatórios por mês e ano de referência.
      * @param mesReferencia Mês de referência
@@ -68,4 +109,31 @@ public interface RelatorioRepository extends JpaRepository<Relatorio, Long> {
      * @return Quantidade de relatórios no período
      */
     long countByMesReferenciaAndAnoReferencia(Integer mesReferencia, Integer anoReferencia);
+
+    /**
+     * Totaliza por mês as métricas dos relatórios de um usuário em um intervalo de meses.
+     * Os meses são numerados como ano * 12 + (mês - 1).
+     * @param usuarioId ID do usuário
+     * @param inicio Primeiro mês do intervalo (inclusive)
+     * @param fim Último mês do intervalo (inclusive)
+     * @return Totais por mês, em ordem cronológica
+     */
+    @Query("SELECT r.anoReferencia AS ano, r.mesReferencia AS mes, SUM(r.receitaTotal) AS receitas, " +
+           "SUM(r.despesaTotal) AS despesas, SUM(r.totalTransacoes) AS totalTransacoes " +
+           "FROM Relatorio r WHERE r.usuario.id = :usuarioId " +
+           "AND r.anoReferencia * 12 + r.mesReferencia - 1 BETWEEN :inicio AND :fim " +
+           "GROUP BY r.anoReferencia, r.mesReferencia ORDER BY r.anoReferencia, r.mesReferencia")
+    List<TotalMes> totalizarPorMes(@Param("usuarioId") Long usuarioId,
+                                   @Param("inicio") int inicio, @Param("fim") int fim);
+
+    /**
+     * Projeção dos totais de um mês.
+     */
+    interface TotalMes {
+        Integer getAno();
+        Integer getMes();
+        BigDecimal getReceitas();
+        BigDecimal getDespesas();
+        Long getTotalTransacoes();
+    }
 }
@@ -0,0 +1,81 @@
+package com.carpa.contabilidade.repository;
+
+import com.carpa.contabilidade.model.AnalisesRelatorio;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Repository JDBC que mantém o resumo mensal por categoria de forma incremental,
+ * com INSERT ... ON CONFLICT DO UPDATE do PostgreSQL (um batch por relatório).
+ */
+@Repository
+@RequiredArgsConstructor
+public class ResumoMensalCategoriaJdbcRepository {
+
+    private static final String SQL_SOMAR =
+        "INSERT INTO resumo_mensal_categoria (usuario_id, ano, mes, categoria, tipo, total, quantidade) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (usuario_id, ano, mes, categoria, tipo) DO UPDATE SET " +
+        "total = resumo_mensal_categoria.total + EXCLUDED.total, " +
+        "quantidade = resumo_mensal_categoria.quantidade + EXCLUDED.quantidade";
+
+    private static final String SQL_REMOVER_VAZIOS =
+        "DELETE FROM resumo_mensal_categoria WHERE usuario_id = ? AND ano = ? AND mes = ? AND quantidade <= 0";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Soma os totais por categoria de um relatório ao resumo do mês.
+     *
+     * @param usuarioId ID do usuário
+     * @param ano Ano de referência
+     * @param mes Mês de referência
+     * @param totais Totais por categoria e tipo do relatório
+     */
+    public void somar(Long usuarioId, int ano, int mes, List<AnalisesRelatorio.TotalCategoria> totais) {
+        aplicar(usuarioId, ano, mes, totais, false);
+    }
+
+    /**
+     * Subtrai os totais por categoria de um relatório do resumo do mês,
+     * removendo as linhas que ficam sem itens.
+     *
+     * @param usuarioId ID do usuário
+     * @param ano Ano de referência
+     * @param mes Mês de referência
+     * @param totais Totais por categoria e tipo do relatório
+     */
+    public void subtrair(Long usuarioId, int ano, int mes, List<AnalisesRelatorio.TotalCategoria> totais) {
+        aplicar(usuarioId, ano, mes, totais, true);
+        jdbcTemplate.update(SQL_REMOVER_VAZIOS, usuarioId, ano, mes);
+    }
+
+    private void aplicar(Long usuarioId, int ano, int mes, List<AnalisesRelatorio.TotalCategoria> totais,
+                         boolean negativo) {
+        jdbcTemplate.batchUpdate(SQL_SOMAR, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                AnalisesRelatorio.TotalCategoria total = totais.get(i);
+                ps.setLong(1, usuarioId);
+                ps.setInt(2, ano);
+                ps.setInt(3, mes);
+                ps.setString(4, total.categoria());
+                ps.setString(5, total.tipo().name());
+                ps.setBigDecimal(6, negativo ? total.total().negate() : total.total());
+                int quantidade = Math.toIntExact(total.quantidade());
+                ps.setInt(7, negativo ? -quantidade : quantidade);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return totais.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package com.carpa.contabilidade.repository;
+
+import com.carpa.contabilidade.model.ResumoMensalCategoria;
+import com.carpa.contabilidade.repository.ItemRelatorioRepository.TotalAgrupado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository para consultas ao resumo mensal por categoria.
+ * A manutenção incremental do resumo é feita por {@link ResumoMensalCategoriaJdbcRepository}.
+ */
+@Repository
+public interface ResumoMensalCategoriaRepository extends JpaRepository<ResumoMensalCategoria, Long> {
+
+    /**
+     * Totaliza por categoria e tipo o resumo de um usuário em um intervalo de meses.
+     * Os meses são numerados como ano * 12 + (mês - 1).
+     * @param usuarioId ID do usuário
+     * @param inicio Primeiro mês do intervalo (inclusive)
+     * @param fim Último mês do intervalo (inclusive)
+     * @return Totais agrupados
+     */
+    @Query("SELECT r.categoria AS chave, r.tipo AS tipo, SUM(r.total) AS total, SUM(r.quantidade) AS quantidade " +
+           "FROM ResumoMensalCategoria r WHERE r.usuario.id = :usuarioId " +
+           "AND r.ano * 12 + r.mes - 1 BETWEEN :inicio AND :fim " +
+           "GROUP BY r.categoria, r.tipo")
+    List<TotalAgrupado> totalizarPorCategoria(@Param("usuarioId") Long usuarioId,
+                                              @Param("inicio") int inicio, @Param("fim") int fim);
+}
@@ -0,0 +1,60 @@
+package com.carpa.contabilidade.repository;
+
+import com.carpa.contabilidade.model.UploadRetomavel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository para gerenciar operações de banco de dados da entidade UploadRetomavel.
+ */
+@Repository
+public interface UploadRetomavelRepository extends JpaRepository<UploadRetomavel, String> {
+
+    /**
+     * Busca um upload pelo ID, desde que pertença ao usuário.
+     * @param id ID do upload
+     * @param usuarioId ID do usuário proprietário
+     * @return Optional contendo o upload se encontrado e do usuário
+     */
+    Optional<UploadRetomavel> findByIdAndUsuarioId(String id, Long usuarioId);
+
+    /**
+     * Busca uploads sem partes recebidas desde o limite (abandonados).
+     * @param limite Instante limite
+     * @return Uploads expirados
+     */
+    List<UploadRetomavel> findByDataAtualizacaoBefore(LocalDateTime limite);
+
+    /**
+     * Busca a posição confirmada do upload, lida do banco (sem o cache da sessão).
+     * @param id ID do upload
+     * @return Optional contendo a posição, se o upload existir
+     */
+    @Query("SELECT u.recebido FROM UploadRetomavel u WHERE u.id = :id")
+    Optional<Long> buscarRecebido(@Param("id") String id);
+
+    /**
+     * Avança a posição do upload somente se ela ainda for a esperada, para que duas
+     * requisições com a mesma parte não avancem a posição duas vezes.
+     * Deve ser chamado dentro de uma transação.
+     * @param id ID do upload
+     * @param esperado Posição em que a parte foi gravada
+     * @param recebido Nova posição
+     * @param agora Instante atual
+     * @return 1 se a posição foi atualizada, 0 se outra requisição a alterou antes
+     */
+    @Modifying
+    @Query("UPDATE UploadRetomavel u SET u.recebido = :recebido, u.dataAtualizacao = :agora " +
+           "WHERE u.id = :id AND u.recebido = :esperado")
+    int avancar(@Param("id") String id,
+                @Param("esperado") Long esperado,
+                @Param("recebido") Long recebido,
+                @Param("agora") LocalDateTime agora);
+}
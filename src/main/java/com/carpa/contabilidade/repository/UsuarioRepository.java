@@ -1,7 +1,9 @@
 package com.carpa.contabilidade.repository;
 
+import com.carpa.contabilidade.config.CacheConfig;
 import com.carpa.contabilidade.model.TipoUsuario;
 import com.carpa.contabilidade.model.Usuario;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -15,9 +17,12 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
     /**
      * Busca um usuário pelo email.
+     * Usada no login e em toda requisição da API, por isso fica em cache; o UsuarioService
+     * remove a entrada ao atualizar ou excluir o usuário.
      * @param email Email do usuário
      * @return Optional contendo o usuário se encontrado
      */
+    @Cacheable(cacheNames = CacheConfig.USUARIOS, key = "#email", unless = "#result == null")
     Optional<Usuario> findByEmail(String email);
 
     /**
@@ -3,17 +3,11 @@ package com.carpa.contabilidade.security;
 import com.carpa.contabilidade.model.Usuario;
 import com.carpa.contabilidade.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Serviço customizado para carregar detalhes do usuário no processo de autenticação.
  * Implementa a interface UserDetailsService do Spring Security.
@@ -29,7 +23,7 @@ public class CustomUserDetailsService implements UserDetailsService {
      * Método usado pelo Spring Security durante o processo de autenticação.
      *
      * @param email Email do usuário (usado como username)
-     * @return UserDetails contendo informações do usuário
+     * @return UsuarioAutenticado com ID, tipo e senha do usuário
      * @throws UsernameNotFoundException se o usuário não for encontrado
      */
     @Override
@@ -42,19 +36,7 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("Usuário inativo: " + email);
         }
 
-        // Cria as autoridades (roles) baseadas no tipo de usuário
-        List<GrantedAuthority> authorities = new ArrayList<>();
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + usuario.getTipoUsuario().name()));
-
-        // Retorna um UserDetails com as informações do usuário
-        return User.builder()
-                .username(usuario.getEmail())
-                .password(usuario.getSenha())
-                .authorities(authorities)
-                .accountExpired(false)
-                .accountLocked(!usuario.getAtivo())
-                .credentialsExpired(false)
-                .disabled(!usuario.getAtivo())
-                .build();
+        // Principal com ID e tipo do usuário, usado pelas requisições sem nova consulta ao banco
+        return new UsuarioAutenticado(usuario);
     }
 }
@@ -0,0 +1,23 @@
+package com.carpa.contabilidade.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injeta o usuário autenticado em um parâmetro de controller, sem consultar o banco.
+ *
+ * Tipos suportados:
+ * - Long: ID do usuário;
+ * - Usuario: usuário desanexado com os dados da sessão (sem a senha);
+ * - UsuarioAutenticado: o principal da sessão.
+ *
+ * Resolvido por {@link UsuarioAtualArgumentResolver}.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface UsuarioAtual {
+}
@@ -0,0 +1,44 @@
+package com.carpa.contabilidade.security;
+
+import com.carpa.contabilidade.model.Usuario;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolve os parâmetros anotados com {@link UsuarioAtual} a partir do principal da sessão.
+ */
+public class UsuarioAtualArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        if (!parameter.hasParameterAnnotation(UsuarioAtual.class)) {
+            return false;
+        }
+        Class<?> tipo = parameter.getParameterType();
+        return tipo == Long.class || tipo == Usuario.class || tipo == UsuarioAutenticado.class;
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacao == null || !(autenticacao.getPrincipal() instanceof UsuarioAutenticado usuario)) {
+            throw new AuthenticationCredentialsNotFoundException("Usuário não autenticado");
+        }
+
+        Class<?> tipo = parameter.getParameterType();
+        if (tipo == Long.class) {
+            return usuario.getId();
+        }
+        if (tipo == Usuario.class) {
+            return usuario.paraUsuario();
+        }
+        return usuario;
+    }
+}
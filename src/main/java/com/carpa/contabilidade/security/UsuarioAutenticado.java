@@ -0,0 +1,101 @@
+package com.carpa.contabilidade.security;
+
+import com.carpa.contabilidade.model.TipoUsuario;
+import com.carpa.contabilidade.model.Usuario;
+import lombok.Getter;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Usuário autenticado, guardado na sessão pelo Spring Security.
+ * Carrega o ID, o nome e o tipo do usuário, para que as requisições não precisem
+ * buscá-lo novamente no banco (ver {@link UsuarioAtual}).
+ */
+@Getter
+public class UsuarioAutenticado implements UserDetails, CredentialsContainer {
+
+    // Serializado na sessão HTTP: mantenha o valor enquanto os campos forem compatíveis
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String nome;
+    private final String email;
+    private final TipoUsuario tipoUsuario;
+    private final boolean ativo;
+    private final List<GrantedAuthority> authorities;
+    private String senha;
+
+    public UsuarioAutenticado(Usuario usuario) {
+        this.id = usuario.getId();
+        this.nome = usuario.getNome();
+        this.email = usuario.getEmail();
+        this.tipoUsuario = usuario.getTipoUsuario();
+        this.ativo = Boolean.TRUE.equals(usuario.getAtivo());
+        this.senha = usuario.getSenha();
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + usuario.getTipoUsuario().name()));
+    }
+
+    /**
+     * Cria um Usuario com os dados da sessão (sem a senha), que pode ser usado como
+     * referência em associações sem consultar o banco.
+     *
+     * @return Usuário desanexado com ID, nome, email, tipo e status
+     */
+    public Usuario paraUsuario() {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setNome(nome);
+        usuario.setEmail(email);
+        usuario.setTipoUsuario(tipoUsuario);
+        usuario.setAtivo(ativo);
+        return usuario;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return senha;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return ativo;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ativo;
+    }
+
+    /**
+     * Remove a senha após a autenticação, para que ela não fique na sessão.
+     */
+    @Override
+    public void eraseCredentials() {
+        senha = null;
+    }
+}
@@ -0,0 +1,219 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.AnalisesRelatorio;
+import com.carpa.contabilidade.model.ItemRelatorio;
+import com.carpa.contabilidade.model.Relatorio;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Agrega os itens de um relatório em uma única passada: métricas principais, totais por
+ * categoria, centro de custo e forma de pagamento, e as maiores receitas e despesas.
+ *
+ * Os valores são somados em centavos (long) e convertidos para BigDecimal só no final.
+ * As listas de maiores valores usam heaps limitados, sem ordenar todos os itens.
+ * Não é thread-safe: use um agregador por relatório, alimentado por uma thread de cada vez.
+ */
+public class AgregadorRelatorio {
+
+    private static final String NAO_INFORMADO = "Não informado";
+    private static final int TAMANHO_TOP = 10;
+
+    private long receitaTotal;
+    private long despesaTotal;
+    private int totalReceitas;
+    private int totalDespesas;
+
+    private final Map<ChaveCategoria, Totais> porCategoria = new HashMap<>();
+    private final Map<String, Totais> porCentroCusto = new LinkedHashMap<>();
+    private final Map<String, Totais> porFormaPagamento = new LinkedHashMap<>();
+
+    private final MaioresValores<AnalisesRelatorio.Destaque> maioresReceitas = new MaioresValores<>(TAMANHO_TOP);
+    private final MaioresValores<AnalisesRelatorio.Destaque> maioresDespesas = new MaioresValores<>(TAMANHO_TOP);
+
+    /**
+     * Soma um item a todas as agregações.
+     *
+     * @param item Item lido do arquivo
+     */
+    public void adicionar(ItemRelatorio item) {
+        long centavos = centavos(item.getValor());
+        boolean receita = item.getTipo() == ItemRelatorio.TipoTransacao.RECEITA;
+
+        if (receita) {
+            receitaTotal += centavos;
+            totalReceitas++;
+            maioresReceitas.oferecer(centavos, item, AnalisesRelatorio.Destaque::de);
+        } else {
+            despesaTotal += centavos;
+            totalDespesas++;
+            maioresDespesas.oferecer(centavos, item, AnalisesRelatorio.Destaque::de);
+        }
+
+        porCategoria.computeIfAbsent(new ChaveCategoria(item.getCategoria(), item.getTipo()), k -> new Totais())
+            .somar(receita, centavos);
+        porCentroCusto.computeIfAbsent(chaveOuNaoInformado(item.getCentroCusto()), k -> new Totais())
+            .somar(receita, centavos);
+        porFormaPagamento.computeIfAbsent(chaveOuNaoInformado(item.getFormaPagamento()), k -> new Totais())
+            .somar(receita, centavos);
+    }
+
+    /**
+     * Quantidade de itens agregados.
+     */
+    public int getTotalItens() {
+        return totalReceitas + totalDespesas;
+    }
+
+    /**
+     * Calcula saldo e margem e atualiza as métricas principais do relatório.
+     *
+     * @param relatorio Relatório a atualizar
+     */
+    public void aplicarMetricas(Relatorio relatorio) {
+        BigDecimal receita = valor(receitaTotal);
+        BigDecimal despesa = valor(despesaTotal);
+        BigDecimal saldo = valor(receitaTotal - despesaTotal);
+
+        // Calcular margem de lucro (%)
+        BigDecimal margemLucro = BigDecimal.ZERO;
+        if (receitaTotal > 0) {
+            margemLucro = saldo
+                .multiply(BigDecimal.valueOf(100))
+                .divide(receita, 2, RoundingMode.HALF_UP);
+        }
+
+        relatorio.setReceitaTotal(receita);
+        relatorio.setDespesaTotal(despesa);
+        relatorio.setSaldo(saldo);
+        relatorio.setMargemLucro(margemLucro);
+        relatorio.setTotalTransacoes(getTotalItens());
+        relatorio.setTotalReceitas(totalReceitas);
+        relatorio.setTotalDespesas(totalDespesas);
+    }
+
+    /**
+     * Monta as análises do dashboard com os totais acumulados.
+     *
+     * @return Análises do relatório
+     */
+    public AnalisesRelatorio gerarAnalises() {
+        AnalisesRelatorio analises = new AnalisesRelatorio();
+
+        porCategoria.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<ChaveCategoria, Totais> e) -> e.getValue().total()).reversed())
+            .forEach(e -> analises.getPorCategoria().add(new AnalisesRelatorio.TotalCategoria(
+                e.getKey().categoria(), e.getKey().tipo(), valor(e.getValue().total()), e.getValue().quantidade)));
+
+        porCentroCusto.forEach((centro, totais) -> analises.getPorCentroCusto().add(
+            new AnalisesRelatorio.TotalCentroCusto(centro, valor(totais.receitas), valor(totais.despesas),
+                                                  valor(totais.receitas - totais.despesas))));
+
+        porFormaPagamento.forEach((forma, totais) -> analises.getPorFormaPagamento().add(
+            new AnalisesRelatorio.TotalFormaPagamento(forma, valor(totais.receitas), valor(totais.despesas),
+                                                     valor(totais.receitas + totais.despesas))));
+
+        analises.setTop10Receitas(maioresReceitas.emOrdemDecrescente());
+        analises.setTop10Despesas(maioresDespesas.emOrdemDecrescente());
+
+        return analises;
+    }
+
+    private static String chaveOuNaoInformado(String chave) {
+        return chave != null ? chave : NAO_INFORMADO;
+    }
+
+    /**
+     * Converte um valor monetário para centavos, arredondando casas extras (HALF_UP).
+     */
+    static long centavos(BigDecimal valor) {
+        if (valor.scale() != 2) {
+            valor = valor.setScale(2, RoundingMode.HALF_UP);
+        }
+        return valor.unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal valor(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    private record ChaveCategoria(String categoria, ItemRelatorio.TipoTransacao tipo) {
+    }
+
+    /**
+     * Totais de uma chave de agrupamento, em centavos.
+     */
+    private static final class Totais {
+
+        private long receitas;
+        private long despesas;
+        private int quantidade;
+
+        void somar(boolean receita, long centavos) {
+            if (receita) {
+                receitas += centavos;
+            } else {
+                despesas += centavos;
+            }
+            quantidade++;
+        }
+
+        long total() {
+            return receitas + despesas;
+        }
+    }
+
+    /**
+     * Mantém os N maiores valores vistos em um heap mínimo de tamanho N.
+     * Em caso de empate, o elemento oferecido primeiro é mantido (como uma ordenação estável).
+     * O elemento só é construído quando entra no heap.
+     */
+    static final class MaioresValores<T> {
+
+        private record Entrada<T>(long valor, long ordem, T elemento) {
+        }
+
+        // O topo do heap é o menor valor; entre iguais, o mais recente (primeiro a sair)
+        private static final Comparator<Entrada<?>> ORDEM = Comparator
+            .comparingLong((Entrada<?> e) -> e.valor())
+            .thenComparing(Comparator.comparingLong((Entrada<?> e) -> e.ordem()).reversed());
+
+        private final int limite;
+        private final PriorityQueue<Entrada<T>> heap;
+        private long oferecidos;
+
+        MaioresValores(int limite) {
+            this.limite = limite;
+            this.heap = new PriorityQueue<>(limite + 1, ORDEM);
+        }
+
+        <F> void oferecer(long valor, F fonte, Function<F, T> construtor) {
+            long ordem = oferecidos++;
+            if (heap.size() < limite) {
+                heap.add(new Entrada<>(valor, ordem, construtor.apply(fonte)));
+            } else if (valor > heap.peek().valor()) {
+                heap.poll();
+                heap.add(new Entrada<>(valor, ordem, construtor.apply(fonte)));
+            }
+        }
+
+        List<T> emOrdemDecrescente() {
+            List<Entrada<T>> entradas = new ArrayList<>(heap);
+            entradas.sort(ORDEM.reversed());
+            List<T> elementos = new ArrayList<>(entradas.size());
+            for (Entrada<T> entrada : entradas) {
+                elementos.add(entrada.elemento());
+            }
+            return elementos;
+        }
+    }
+}
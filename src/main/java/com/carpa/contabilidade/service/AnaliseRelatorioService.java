@@ -0,0 +1,104 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.AnalisesRelatorio;
+import com.carpa.contabilidade.model.ItemRelatorio;
+import com.carpa.contabilidade.model.Relatorio;
+import com.carpa.contabilidade.repository.ItemRelatorioRepository;
+import com.carpa.contabilidade.repository.ItemRelatorioRepository.TotalAgrupado;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service que calcula as análises do dashboard de um relatório
+ * (por categoria, centro de custo, forma de pagamento e top 10).
+ * As totalizações são feitas no banco com GROUP BY sobre itens_relatorio.
+ *
+ * Na geração do relatório as análises vêm do {@link AgregadorRelatorio}, na mesma passada
+ * da leitura do arquivo; este service atende relatórios gerados antes disso.
+ */
+@Service
+@RequiredArgsConstructor
+public class AnaliseRelatorioService {
+
+    private static final String NAO_INFORMADO = "Não informado";
+
+    private final ItemRelatorioRepository itemRelatorioRepository;
+
+    /**
+     * Calcula todas as análises de um relatório já gravado.
+     *
+     * @param relatorio Relatório
+     * @return Análises calculadas
+     */
+    public AnalisesRelatorio calcular(Relatorio relatorio) {
+        Long relatorioId = relatorio.getId();
+        LocalDate periodo = relatorio.getPeriodoReferencia();
+        AnalisesRelatorio analises = new AnalisesRelatorio();
+
+        // 1. Por categoria, maiores totais primeiro
+        for (TotalAgrupado total : itemRelatorioRepository.totalizarPorCategoria(relatorioId, periodo)) {
+            analises.getPorCategoria().add(new AnalisesRelatorio.TotalCategoria(
+                total.getChave(), total.getTipo(), total.getTotal(), total.getQuantidade()));
+        }
+        analises.getPorCategoria().sort(
+            Comparator.comparing(AnalisesRelatorio.TotalCategoria::total).reversed());
+
+        // 2. Por centro de custo
+        for (Map.Entry<String, BigDecimal[]> entrada :
+                somarPorTipo(itemRelatorioRepository.totalizarPorCentroCusto(relatorioId, periodo)).entrySet()) {
+            BigDecimal receitas = entrada.getValue()[0];
+            BigDecimal despesas = entrada.getValue()[1];
+            analises.getPorCentroCusto().add(new AnalisesRelatorio.TotalCentroCusto(
+                entrada.getKey(), receitas, despesas, receitas.subtract(despesas)));
+        }
+
+        // 3. Por forma de pagamento
+        for (Map.Entry<String, BigDecimal[]> entrada :
+                somarPorTipo(itemRelatorioRepository.totalizarPorFormaPagamento(relatorioId, periodo)).entrySet()) {
+            BigDecimal receitas = entrada.getValue()[0];
+            BigDecimal despesas = entrada.getValue()[1];
+            analises.getPorFormaPagamento().add(new AnalisesRelatorio.TotalFormaPagamento(
+                entrada.getKey(), receitas, despesas, receitas.add(despesas)));
+        }
+
+        // 4. Top 10 receitas e despesas
+        analises.setTop10Receitas(buscarTop10(relatorioId, periodo, ItemRelatorio.TipoTransacao.RECEITA));
+        analises.setTop10Despesas(buscarTop10(relatorioId, periodo, ItemRelatorio.TipoTransacao.DESPESA));
+
+        return analises;
+    }
+
+    /**
+     * Junta os totais de receita (posição 0) e despesa (posição 1) de cada chave.
+     * Chaves nulas são agrupadas como "Não informado".
+     */
+    private static Map<String, BigDecimal[]> somarPorTipo(List<TotalAgrupado> totais) {
+        Map<String, BigDecimal[]> porChave = new LinkedHashMap<>();
+        for (TotalAgrupado total : totais) {
+            String chave = total.getChave() != null ? total.getChave() : NAO_INFORMADO;
+            BigDecimal[] valores = porChave.computeIfAbsent(chave,
+                k -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO});
+            int posicao = total.getTipo() == ItemRelatorio.TipoTransacao.RECEITA ? 0 : 1;
+            valores[posicao] = valores[posicao].add(total.getTotal());
+        }
+        return porChave;
+    }
+
+    private List<AnalisesRelatorio.Destaque> buscarTop10(Long relatorioId, LocalDate periodo,
+                                                         ItemRelatorio.TipoTransacao tipo) {
+        List<AnalisesRelatorio.Destaque> destaques = new ArrayList<>();
+        for (ItemRelatorio item : itemRelatorioRepository
+                .findTop10ByRelatorioIdAndPeriodoReferenciaAndTipoOrderByValorDesc(relatorioId, periodo, tipo)) {
+            destaques.add(AnalisesRelatorio.Destaque.de(item));
+        }
+        return destaques;
+    }
+}
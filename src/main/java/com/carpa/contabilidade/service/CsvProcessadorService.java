@@ -1,39 +1,44 @@
 package com.carpa.contabilidade.service;
 
 import com.carpa.contabilidade.model.ItemRelatorio;
+import com.carpa.contabilidade.service.LeitorPlanilhaXlsx.Celula;
+import com.carpa.contabilidade.service.LeitorPlanilhaXlsx.LinhaPlanilha;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
 import org.springframework.stereotype.Service;
 
-import java.io.FileInputStream;
-import java.io.FileReader;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Service responsável por processar arquivos CSV e Excel.
  * Lê os arquivos e converte em objetos ItemRelatorio.
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class CsvProcessadorService {
 
-    private static final String[] FORMATOS_DATA = {
-        "dd/MM/yyyy", "yyyy-MM-dd", "dd-MM-yyyy", "MM/dd/yyyy"
-    };
+    private final ParserData parserData;
+    private final ParserValor parserValor;
 
     /**
      * Processa um arquivo CSV ou Excel e retorna lista de itens.
@@ -44,54 +49,122 @@ public class CsvProcessadorService {
      * @throws IOException Se houver erro ao ler o arquivo
      */
     public List<ItemRelatorio> processarArquivo(Path caminhoArquivo, String tipoArquivo) throws IOException {
+        List<ItemRelatorio> itens = new ArrayList<>();
+        processarArquivo(caminhoArquivo, tipoArquivo, itens::add);
+        return itens;
+    }
+
+    /**
+     * Processa um arquivo CSV ou Excel linha a linha, entregando cada item ao consumidor
+     * assim que ele é lido e validado. Nenhuma lista intermediária de linhas é mantida.
+     *
+     * @param caminhoArquivo Path do arquivo
+     * @param tipoArquivo Tipo do arquivo (CSV ou XLSX)
+     * @param consumidor Recebe cada ItemRelatorio processado
+     * @return Quantidade de itens processados
+     * @throws IOException Se houver erro ao ler o arquivo
+     */
+    public int processarArquivo(Path caminhoArquivo, String tipoArquivo,
+                                Consumer<ItemRelatorio> consumidor) throws IOException {
         log.info("Processando arquivo: {} (tipo: {})", caminhoArquivo, tipoArquivo);
 
         if (tipoArquivo.equalsIgnoreCase("CSV")) {
-            return processarCsv(caminhoArquivo);
+            return processarCsv(caminhoArquivo, consumidor);
         } else if (tipoArquivo.equalsIgnoreCase("XLSX") || tipoArquivo.equalsIgnoreCase("XLS")) {
-            return processarExcel(caminhoArquivo);
+            return processarExcel(caminhoArquivo, consumidor);
         } else {
             throw new IllegalArgumentException("Tipo de arquivo não suportado: " + tipoArquivo);
         }
     }
 
     /**
-     * Processa arquivo CSV.
+     * Processa um arquivo CSV ou Excel lido de um stream (por exemplo, do storage S3),
+     * entregando cada item ao consumidor. O CSV é lido diretamente do stream; a planilha
+     * (um ZIP, que exige acesso aleatório) é copiada antes para um arquivo temporário.
+     *
+     * @param conteudo Conteúdo do arquivo, a ser fechado por quem chama
+     * @param tipoArquivo Tipo do arquivo (CSV ou XLSX)
+     * @param consumidor Recebe cada ItemRelatorio processado
+     * @return Quantidade de itens processados
+     * @throws IOException Se houver erro ao ler o arquivo
      */
-    private List<ItemRelatorio> processarCsv(Path caminhoArquivo) throws IOException {
-        List<ItemRelatorio> itens = new ArrayList<>();
+    public int processarArquivo(InputStream conteudo, String tipoArquivo,
+                                Consumer<ItemRelatorio> consumidor) throws IOException {
+        if (tipoArquivo.equalsIgnoreCase("CSV")) {
+            return processarCsv(conteudo, consumidor);
+        } else if (tipoArquivo.equalsIgnoreCase("XLSX") || tipoArquivo.equalsIgnoreCase("XLS")) {
+            Path temporario = Files.createTempFile("planilha-", "." + tipoArquivo.toLowerCase());
+            try {
+                Files.copy(conteudo, temporario, StandardCopyOption.REPLACE_EXISTING);
+                return processarArquivo(temporario, tipoArquivo, consumidor);
+            } finally {
+                Files.deleteIfExists(temporario);
+            }
+        } else {
+            throw new IllegalArgumentException("Tipo de arquivo não suportado: " + tipoArquivo);
+        }
+    }
+
+    /**
+     * Processa um CSV lido diretamente de um stream (por exemplo, o corpo de um upload
+     * em andamento), entregando cada item ao consumidor. O stream é fechado ao final.
+     *
+     * @param conteudo Conteúdo do CSV em UTF-8
+     * @param consumidor Recebe cada ItemRelatorio processado
+     * @return Quantidade de itens processados
+     * @throws IOException Se houver erro ao ler o stream
+     */
+    public int processarCsv(InputStream conteudo, Consumer<ItemRelatorio> consumidor) throws IOException {
+        log.info("Processando CSV a partir de stream");
+        return processarCsv(new BufferedReader(new InputStreamReader(conteudo, StandardCharsets.UTF_8)),
+                            consumidor);
+    }
 
-        try (CSVReader reader = new CSVReader(new FileReader(caminhoArquivo.toFile()))) {
-            List<String[]> linhas = reader.readAll();
+    /**
+     * Processa arquivo CSV em streaming (uma linha por vez).
+     */
+    private int processarCsv(Path caminhoArquivo, Consumer<ItemRelatorio> consumidor) throws IOException {
+        return processarCsv(Files.newBufferedReader(caminhoArquivo, StandardCharsets.UTF_8), consumidor);
+    }
 
-            if (linhas.isEmpty()) {
+    private int processarCsv(Reader leitor, Consumer<ItemRelatorio> consumidor) throws IOException {
+        try (CSVReader reader = new CSVReader(leitor)) {
+            // Primeira linha é o cabeçalho
+            String[] cabecalho = reader.readNext();
+
+            if (cabecalho == null) {
                 throw new IllegalArgumentException("Arquivo CSV está vazio");
             }
 
-            // Primeira linha é o cabeçalho
-            String[] cabecalho = linhas.get(0);
             validarCabecalho(cabecalho);
 
-            // Processar linhas de dados (começando da linha 1)
-            for (int i = 1; i < linhas.size(); i++) {
-                String[] linha = linhas.get(i);
+            ParserData.Leitura leituraDatas = parserData.novaLeitura();
+            int numeroLinha = 1;
+            int totalItens = 0;
+            String[] linha;
+
+            while ((linha = reader.readNext()) != null) {
+                numeroLinha++;
 
                 // Ignorar linhas vazias
                 if (isLinhaVazia(linha)) {
                     continue;
                 }
 
+                ItemRelatorio item;
                 try {
-                    ItemRelatorio item = criarItemDeLinha(linha, i + 1);
-                    itens.add(item);
+                    item = criarItemDeLinha(linha, numeroLinha, leituraDatas);
                 } catch (Exception e) {
-                    log.warn("Erro ao processar linha {}: {}", i + 1, e.getMessage());
-                    throw new IllegalArgumentException("Erro na linha " + (i + 1) + ": " + e.getMessage());
+                    log.warn("Erro ao processar linha {}: {}", numeroLinha, e.getMessage());
+                    throw new IllegalArgumentException("Erro na linha " + numeroLinha + ": " + e.getMessage());
                 }
+
+                consumidor.accept(item);
+                totalItens++;
             }
 
-            log.info("CSV processado com sucesso: {} itens", itens.size());
-            return itens;
+            log.info("CSV processado com sucesso: {} itens", totalItens);
+            return totalItens;
 
         } catch (CsvException e) {
             log.error("Erro ao ler arquivo CSV", e);
@@ -100,44 +173,44 @@ public class CsvProcessadorService {
     }
 
     /**
-     * Processa arquivo Excel.
+     * Processa arquivo Excel em streaming, usando o modelo de eventos (SAX) do POI.
+     * Apenas a linha corrente fica em memória, independentemente do tamanho da planilha.
      */
-    private List<ItemRelatorio> processarExcel(Path caminhoArquivo) throws IOException {
-        List<ItemRelatorio> itens = new ArrayList<>();
-
-        try (FileInputStream fis = new FileInputStream(caminhoArquivo.toFile());
-             Workbook workbook = new XSSFWorkbook(fis)) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-
-            if (sheet.getPhysicalNumberOfRows() == 0) {
-                throw new IllegalArgumentException("Planilha Excel está vazia");
-            }
+    private int processarExcel(Path caminhoArquivo, Consumer<ItemRelatorio> consumidor) throws IOException {
+        AtomicBoolean cabecalhoValidado = new AtomicBoolean(false);
+        AtomicInteger totalItens = new AtomicInteger();
+        ParserData.Leitura leituraDatas = parserData.novaLeitura();
 
+        int totalLinhas = LeitorPlanilhaXlsx.lerPrimeiraAba(caminhoArquivo, linha -> {
             // Primeira linha é o cabeçalho
-            Row cabecalhoRow = sheet.getRow(0);
-            validarCabecalhoExcel(cabecalhoRow);
-
-            // Processar linhas de dados
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
+            if (!cabecalhoValidado.getAndSet(true)) {
+                validarCabecalhoExcel(linha.indice() == 0 ? linha : null);
+                return;
+            }
 
-                if (row == null || isLinhaVaziaExcel(row)) {
-                    continue;
-                }
+            if (isLinhaVaziaExcel(linha)) {
+                return;
+            }
 
-                try {
-                    ItemRelatorio item = criarItemDeLinhaExcel(row, i + 1);
-                    itens.add(item);
-                } catch (Exception e) {
-                    log.warn("Erro ao processar linha {}: {}", i + 1, e.getMessage());
-                    throw new IllegalArgumentException("Erro na linha " + (i + 1) + ": " + e.getMessage());
-                }
+            int numeroLinha = linha.indice() + 1;
+            ItemRelatorio item;
+            try {
+                item = criarItemDeLinhaExcel(linha, numeroLinha, leituraDatas);
+            } catch (Exception e) {
+                log.warn("Erro ao processar linha {}: {}", numeroLinha, e.getMessage());
+                throw new IllegalArgumentException("Erro na linha " + numeroLinha + ": " + e.getMessage());
             }
 
-            log.info("Excel processado com sucesso: {} itens", itens.size());
-            return itens;
+            consumidor.accept(item);
+            totalItens.incrementAndGet();
+        });
+
+        if (totalLinhas == 0) {
+            throw new IllegalArgumentException("Planilha Excel está vazia");
         }
+
+        log.info("Excel processado com sucesso: {} itens", totalItens.get());
+        return totalItens.get();
     }
 
     /**
@@ -153,8 +226,8 @@ public class CsvProcessadorService {
     /**
      * Valida o cabeçalho do Excel.
      */
-    private void validarCabecalhoExcel(Row cabecalho) {
-        if (cabecalho == null || cabecalho.getPhysicalNumberOfCells() < 7) {
+    private void validarCabecalhoExcel(LinhaPlanilha cabecalho) {
+        if (cabecalho == null || cabecalho.quantidadeCelulas() < 7) {
             throw new IllegalArgumentException(
                 "Excel deve ter pelo menos 7 colunas: Data,Descrição,Categoria,Tipo,Valor,Forma_Pagamento,Centro_Custo");
         }
@@ -164,12 +237,12 @@ public class CsvProcessadorService {
      * Cria ItemRelatorio a partir de linha CSV.
      * Formato esperado: Data,Descrição,Categoria,Tipo,Valor,Forma_Pagamento,Centro_Custo,Observações
      */
-    private ItemRelatorio criarItemDeLinha(String[] linha, int numeroLinha) {
+    private ItemRelatorio criarItemDeLinha(String[] linha, int numeroLinha, ParserData.Leitura leituraDatas) {
         ItemRelatorio item = new ItemRelatorio();
 
         try {
             // Coluna 0: Data
-            item.setData(parseData(linha[0].trim()));
+            item.setData(leituraDatas.parse(linha[0].trim()));
 
             // Coluna 1: Descrição
             item.setDescricao(linha[1].trim());
@@ -179,12 +252,15 @@ public class CsvProcessadorService {
 
             // Coluna 2: Categoria
             item.setCategoria(linha[2].trim());
+            if (item.getCategoria().isEmpty()) {
+                throw new IllegalArgumentException("Categoria não pode estar vazia");
+            }
 
             // Coluna 3: Tipo (Receita ou Despesa)
             item.setTipo(parseTipo(linha[3].trim()));
 
             // Coluna 4: Valor
-            item.setValor(parseValor(linha[4].trim()));
+            item.setValor(parserValor.parse(linha[4].trim()));
 
             // Coluna 5: Forma de Pagamento
             item.setFormaPagamento(linha.length > 5 ? linha[5].trim() : null);
@@ -205,37 +281,41 @@ public class CsvProcessadorService {
     /**
      * Cria ItemRelatorio a partir de linha Excel.
      */
-    private ItemRelatorio criarItemDeLinhaExcel(Row row, int numeroLinha) {
+    private ItemRelatorio criarItemDeLinhaExcel(LinhaPlanilha row, int numeroLinha,
+                                                ParserData.Leitura leituraDatas) {
         ItemRelatorio item = new ItemRelatorio();
 
         try {
             // Coluna 0: Data
-            Cell dataCell = row.getCell(0);
-            item.setData(parseDataExcel(dataCell));
+            Celula dataCell = row.celula(0);
+            item.setData(parseDataExcel(dataCell, leituraDatas));
 
             // Coluna 1: Descrição
-            item.setDescricao(getCellValueAsString(row.getCell(1)));
+            item.setDescricao(getCellValueAsString(row.celula(1)));
             if (item.getDescricao().isEmpty()) {
                 throw new IllegalArgumentException("Descrição não pode estar vazia");
             }
 
             // Coluna 2: Categoria
-            item.setCategoria(getCellValueAsString(row.getCell(2)));
+            item.setCategoria(getCellValueAsString(row.celula(2)));
+            if (item.getCategoria().isEmpty()) {
+                throw new IllegalArgumentException("Categoria não pode estar vazia");
+            }
 
             // Coluna 3: Tipo
-            item.setTipo(parseTipo(getCellValueAsString(row.getCell(3))));
+            item.setTipo(parseTipo(getCellValueAsString(row.celula(3))));
 
             // Coluna 4: Valor
-            item.setValor(parseValorExcel(row.getCell(4)));
+            item.setValor(parseValorExcel(row.celula(4)));
 
             // Coluna 5: Forma de Pagamento
-            item.setFormaPagamento(getCellValueAsString(row.getCell(5)));
+            item.setFormaPagamento(getCellValueAsString(row.celula(5)));
 
             // Coluna 6: Centro de Custo
-            item.setCentroCusto(getCellValueAsString(row.getCell(6)));
+            item.setCentroCusto(getCellValueAsString(row.celula(6)));
 
             // Coluna 7: Observações (opcional)
-            Cell obsCell = row.getCell(7);
+            Celula obsCell = row.celula(7);
             item.setObservacoes(obsCell != null ? getCellValueAsString(obsCell) : null);
 
         } catch (Exception e) {
@@ -245,32 +325,17 @@ public class CsvProcessadorService {
         return item;
     }
 
-    /**
-     * Converte string para LocalDate tentando vários formatos.
-     */
-    private LocalDate parseData(String dataStr) {
-        for (String formato : FORMATOS_DATA) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat(formato);
-                sdf.setLenient(false);
-                Date date = sdf.parse(dataStr);
-                return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-            } catch (ParseException e) {
-                // Tentar próximo formato
-            }
-        }
-        throw new IllegalArgumentException("Formato de data inválido: " + dataStr +
-            ". Use DD/MM/AAAA ou AAAA-MM-DD");
-    }
-
     /**
      * Parse data de célula Excel.
      */
-    private LocalDate parseDataExcel(Cell cell) {
-        if (cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
-            return cell.getLocalDateTimeCellValue().toLocalDate();
-        } else if (cell.getCellType() == CellType.STRING) {
-            return parseData(cell.getStringCellValue());
+    private LocalDate parseDataExcel(Celula cell, ParserData.Leitura leituraDatas) {
+        if (cell == null) {
+            throw new IllegalArgumentException("Formato de data inválido na célula");
+        }
+        if (cell.tipo() == CellType.NUMERIC && cell.data()) {
+            return DateUtil.getLocalDateTime(cell.numero()).toLocalDate();
+        } else if (cell.tipo() == CellType.STRING) {
+            return leituraDatas.parse(cell.texto());
         }
         throw new IllegalArgumentException("Formato de data inválido na célula");
     }
@@ -287,44 +352,17 @@ public class CsvProcessadorService {
         }
     }
 
-    /**
-     * Converte string para BigDecimal.
-     */
-    private BigDecimal parseValor(String valorStr) {
-        try {
-            // Aceitar tanto vírgula quanto ponto como separador decimal
-            DecimalFormatSymbols symbols = new DecimalFormatSymbols();
-            symbols.setDecimalSeparator(',');
-            symbols.setGroupingSeparator('.');
-
-            DecimalFormat format = new DecimalFormat("#,##0.00", symbols);
-            format.setParseBigDecimal(true);
-
-            // Remover espaços e símbolo de moeda se houver
-            String cleanValue = valorStr.trim()
-                .replace("R$", "")
-                .replace(" ", "");
-
-            // Tentar parse com vírgula
-            try {
-                return (BigDecimal) format.parse(cleanValue);
-            } catch (ParseException e) {
-                // Tentar com ponto
-                return new BigDecimal(cleanValue.replace(',', '.'));
-            }
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Valor inválido: " + valorStr);
-        }
-    }
-
     /**
      * Parse valor de célula Excel.
      */
-    private BigDecimal parseValorExcel(Cell cell) {
-        if (cell.getCellType() == CellType.NUMERIC) {
-            return BigDecimal.valueOf(cell.getNumericCellValue());
-        } else if (cell.getCellType() == CellType.STRING) {
-            return parseValor(cell.getStringCellValue());
+    private BigDecimal parseValorExcel(Celula cell) {
+        if (cell == null) {
+            throw new IllegalArgumentException("Valor inválido na célula");
+        }
+        if (cell.tipo() == CellType.NUMERIC) {
+            return BigDecimal.valueOf(cell.numero());
+        } else if (cell.tipo() == CellType.STRING) {
+            return parserValor.parse(cell.texto());
         }
         throw new IllegalArgumentException("Valor inválido na célula");
     }
@@ -332,15 +370,15 @@ public class CsvProcessadorService {
     /**
      * Obtém valor de célula como String.
      */
-    private String getCellValueAsString(Cell cell) {
+    private String getCellValueAsString(Celula cell) {
         if (cell == null) {
             return "";
         }
 
-        return switch (cell.getCellType()) {
-            case STRING -> cell.getStringCellValue().trim();
-            case NUMERIC -> String.valueOf(cell.getNumericCellValue());
-            case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
+        return switch (cell.tipo()) {
+            case STRING -> cell.texto().trim();
+            case NUMERIC -> String.valueOf(cell.numero());
+            case BOOLEAN -> cell.texto();
             default -> "";
         };
     }
@@ -363,13 +401,9 @@ public class CsvProcessadorService {
     /**
      * Verifica se linha Excel está vazia.
      */
-    private boolean isLinhaVaziaExcel(Row row) {
-        if (row == null) {
-            return true;
-        }
-        for (int i = 0; i < row.getLastCellNum(); i++) {
-            Cell cell = row.getCell(i);
-            if (cell != null && cell.getCellType() != CellType.BLANK) {
+    private boolean isLinhaVaziaExcel(LinhaPlanilha row) {
+        for (Celula cell : row.celulas()) {
+            if (cell != null && cell.tipo() != CellType.BLANK) {
                 return false;
             }
         }
@@ -1,21 +1,34 @@
 package com.carpa.contabilidade.service;
 
 import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.model.DocumentoResumoDTO;
 import com.carpa.contabilidade.model.Usuario;
 import com.carpa.contabilidade.repository.DocumentoRepository;
+import com.carpa.contabilidade.service.FileStorageService.ArquivoGravado;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Service para gerenciar documentos (CSV/Excel) enviados pelos clientes.
+ *
+ * Com o armazenamento por conteúdo, documentos com o mesmo SHA-256 compartilham um único
+ * arquivo; a contagem de referências é a própria tabela de documentos. Reenviar o mesmo
+ * arquivo para um período que já tem esse conteúdo devolve o documento existente, sem
+ * nova cópia nem novo processamento.
  */
 @Service
 @RequiredArgsConstructor
@@ -24,12 +37,21 @@ public class DocumentoService {
 
     private final DocumentoRepository documentoRepository;
     private final FileStorageService fileStorageService;
+    private final ProcessamentoDocumentoService processamentoDocumentoService;
     private final RelatorioService relatorioService;
+    private final JdbcTemplate jdbcTemplate;
 
-    private static final long MAX_FILE_SIZE_MB = 10;
+    @Value("${app.upload.max-file-size-mb:10}")
+    private long maxFileSizeMb;
+
+    @Value("${app.upload.armazenamento-por-conteudo:true}")
+    private boolean armazenamentoPorConteudo;
 
     /**
-     * Faz upload de um documento e processa automaticamente.
+     * Faz upload de um documento e o envia para processamento em segundo plano.
+     * O documento é salvo como PENDENTE; após o commit ele entra na fila de processamento.
+     * Se o período já tiver um documento com o mesmo conteúdo (processado ou na fila), ele é
+     * devolvido sem reprocessar.
      *
      * @param file Arquivo enviado
      * @param usuario Usuário proprietário
@@ -44,81 +66,273 @@ public class DocumentoService {
 
         // Validações
         validarUpload(file, usuario, mesReferencia, anoReferencia);
-
-        // Verificar se já existe documento para este mês/ano
-        if (documentoRepository.existsByUsuarioAndMesReferenciaAndAnoReferencia(
-                usuario, mesReferencia, anoReferencia)) {
-            throw new IllegalArgumentException(
-                "Já existe um documento para " + mesReferencia + "/" + anoReferencia +
-                ". Exclua o anterior antes de enviar um novo.");
+        if (!armazenamentoPorConteudo) {
+            verificarDocumentoExistente(usuario, mesReferencia, anoReferencia);
         }
 
         // Salvar arquivo no sistema de arquivos
-        String caminhoArquivo = fileStorageService.salvarArquivo(
+        ArquivoGravado arquivo = fileStorageService.salvarArquivo(
             file, usuario.getId(), mesReferencia, anoReferencia);
 
-        // Criar e salvar entidade Documento
-        Documento documento = new Documento();
-        documento.setNomeArquivo(file.getOriginalFilename());
-        documento.setTipoArquivo(FilenameUtils.getExtension(file.getOriginalFilename()).toUpperCase());
-        documento.setTamanho(file.getSize());
-        documento.setCaminhoStorage(caminhoArquivo);
-        documento.setMesReferencia(mesReferencia);
-        documento.setAnoReferencia(anoReferencia);
-        documento.setUsuario(usuario);
-        documento.setStatus(Documento.StatusProcessamento.PENDENTE);
+        return registrarNovoArquivo(file.getOriginalFilename(), arquivo, usuario, mesReferencia, anoReferencia);
+    }
 
-        documento = documentoRepository.save(documento);
-        log.info("Documento salvo: ID={}, Usuario={}", documento.getId(), usuario.getEmail());
+    /**
+     * Faz upload de um documento lido de um stream (por exemplo, uma entrada de um ZIP),
+     * gravando-o em disco à medida que é lido. O tamanho é validado durante a gravação.
+     *
+     * @param nomeArquivo Nome original do arquivo
+     * @param conteudo Conteúdo do arquivo (não é fechado)
+     * @param usuario Usuário proprietário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     * @return Documento salvo
+     * @throws IOException Se houver erro no upload
+     */
+    @Transactional
+    public Documento uploadDocumento(String nomeArquivo, InputStream conteudo, Usuario usuario,
+                                     Integer mesReferencia, Integer anoReferencia) throws IOException {
+
+        validarDados(nomeArquivo, usuario, mesReferencia, anoReferencia);
+        if (!armazenamentoPorConteudo) {
+            verificarDocumentoExistente(usuario, mesReferencia, anoReferencia);
+        }
+
+        ArquivoGravado arquivo = fileStorageService.salvarArquivo(
+            conteudo, nomeArquivo, usuario.getId(), mesReferencia, anoReferencia, maxFileSizeMb * 1024 * 1024);
+
+        return registrarNovoArquivo(nomeArquivo, arquivo, usuario, mesReferencia, anoReferencia);
+    }
+
+    /**
+     * Valida os dados de um upload que será enviado em partes, antes de receber o arquivo.
+     *
+     * @param nomeArquivo Nome original do arquivo
+     * @param tamanho Tamanho total declarado em bytes (null se desconhecido: validado na gravação)
+     * @param usuario Usuário proprietário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     */
+    public void validarNovoUpload(String nomeArquivo, Long tamanho, Usuario usuario,
+                                  Integer mesReferencia, Integer anoReferencia) {
+        validarNovoUpload(nomeArquivo, tamanho, maxFileSizeMb, usuario, mesReferencia, anoReferencia);
+    }
+
+    /**
+     * Valida os dados de um upload com um tamanho máximo próprio (uploads retomáveis).
+     *
+     * @param nomeArquivo Nome original do arquivo
+     * @param tamanho Tamanho total declarado em bytes (null se desconhecido: validado na gravação)
+     * @param tamanhoMaximoMb Tamanho máximo do arquivo em MB
+     * @param usuario Usuário proprietário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     */
+    public void validarNovoUpload(String nomeArquivo, Long tamanho, long tamanhoMaximoMb, Usuario usuario,
+                                  Integer mesReferencia, Integer anoReferencia) {
+        if (tamanho != null && tamanho <= 0) {
+            throw new IllegalArgumentException("Arquivo não pode ser vazio");
+        }
+        if (tamanho != null && tamanho > tamanhoMaximoMb * 1024 * 1024) {
+            throw new IllegalArgumentException(
+                "Arquivo muito grande. Tamanho máximo: " + tamanhoMaximoMb + "MB");
+        }
+
+        validarDados(nomeArquivo, usuario, mesReferencia, anoReferencia);
+        verificarDocumentoExistente(usuario, mesReferencia, anoReferencia);
+    }
+
+    /**
+     * Cria o documento de um upload retomável cujo arquivo já foi recebido por completo,
+     * movendo o arquivo temporário para o storage.
+     *
+     * @param uploadId ID do upload retomável
+     * @param nomeArquivo Nome original do arquivo
+     * @param usuario Usuário proprietário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     * @return Documento salvo
+     * @throws IOException Se houver erro ao mover o arquivo
+     */
+    @Transactional
+    public Documento registrarUploadRetomavel(String uploadId, String nomeArquivo, Usuario usuario,
+                                              Integer mesReferencia, Integer anoReferencia) throws IOException {
+
+        // Outro documento do período pode ter sido enviado durante o upload
+        verificarDocumentoExistente(usuario, mesReferencia, anoReferencia);
+
+        ArquivoGravado arquivo = fileStorageService.concluirArquivoParcial(
+            uploadId, nomeArquivo, usuario.getId(), mesReferencia, anoReferencia);
+
+        return registrarDocumento(nomeArquivo, arquivo, usuario, mesReferencia, anoReferencia);
+    }
+
+    /**
+     * Registra um documento cujo arquivo ainda será recebido e processado ao mesmo tempo
+     * (upload em pipeline). O documento já nasce reservado para o worker deste nó, fora da fila.
+     *
+     * @param nomeArquivo Nome original do arquivo
+     * @param tamanho Tamanho declarado (Content-Length), ou null se desconhecido
+     * @param usuario Usuário proprietário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     * @return Documento salvo como PROCESSANDO, com o caminho do arquivo reservado
+     * @throws IOException Se houver erro ao reservar o caminho
+     */
+    @Transactional
+    public Documento registrarUploadEmPipeline(String nomeArquivo, Long tamanho, Usuario usuario,
+                                               Integer mesReferencia, Integer anoReferencia) throws IOException {
+
+        validarNovoUpload(nomeArquivo, tamanho, usuario, mesReferencia, anoReferencia);
 
-        // Processar documento assincronamente
-        processarDocumento(documento);
+        String caminhoArquivo = fileStorageService.reservarCaminho(
+            nomeArquivo, usuario.getId(), mesReferencia, anoReferencia);
 
+        Documento documento = novoDocumento(nomeArquivo, tamanho != null ? tamanho : 0L, caminhoArquivo,
+                                            usuario, mesReferencia, anoReferencia);
+        processamentoDocumentoService.reservarParaEsteNo(documento);
+
+        documento = documentoRepository.save(documento);
+        log.info("Documento em pipeline: ID={}, Usuario={}", documento.getId(), usuario.getEmail());
         return documento;
     }
 
     /**
-     * Processa um documento e gera o relatório.
+     * Atualiza o arquivo de um documento recebido em pipeline, após a gravação completa,
+     * movendo-o para o armazenamento por conteúdo se habilitado.
      *
-     * @param documento Documento a ser processado
+     * @param documentoId ID do documento
+     * @param arquivo Arquivo gravado
+     * @return Resumo do documento, com a situação do processamento
+     * @throws IOException Se houver erro ao mover o arquivo
      */
     @Transactional
-    public void processarDocumento(Documento documento) {
-        try {
-            log.info("Iniciando processamento do documento: {}", documento.getId());
+    public DocumentoResumoDTO concluirUploadEmPipeline(Long documentoId, ArquivoGravado arquivo) throws IOException {
+        documentoRepository.atualizarArquivo(documentoId, arquivo.tamanho(), armazenar(arquivo), arquivo.sha256());
+        return buscarResumo(documentoId);
+    }
+
+    /**
+     * Remove um documento cujo upload em pipeline falhou, com o arquivo parcial, se houver.
+     *
+     * @param documento Documento registrado para o upload
+     * @throws IOException Se houver erro ao remover o arquivo
+     */
+    @Transactional
+    public void descartarUploadEmPipeline(Documento documento) throws IOException {
+        documentoRepository.deleteById(documento.getId());
+        fileStorageService.deletarArquivo(documento.getCaminhoStorage());
+        log.info("Upload em pipeline descartado: documento {}", documento.getId());
+    }
 
-            // Atualizar status para PROCESSANDO
-            documento.setStatus(Documento.StatusProcessamento.PROCESSANDO);
-            documentoRepository.save(documento);
+    /**
+     * Verifica se já existe documento do usuário para o mês/ano.
+     */
+    private void verificarDocumentoExistente(Usuario usuario, Integer mesReferencia, Integer anoReferencia) {
+        if (documentoRepository.existsByUsuarioAndMesReferenciaAndAnoReferencia(
+                usuario, mesReferencia, anoReferencia)) {
+            throw periodoOcupado(mesReferencia, anoReferencia);
+        }
+    }
 
-            // Processar arquivo e gerar relatório
-            relatorioService.gerarRelatorio(documento);
+    private static IllegalArgumentException periodoOcupado(Integer mesReferencia, Integer anoReferencia) {
+        return new IllegalArgumentException(
+            "Já existe um documento para " + mesReferencia + "/" + anoReferencia +
+            ". Exclua o anterior antes de enviar um novo.");
+    }
 
-            // Atualizar status para PROCESSADO
-            documento.setStatus(Documento.StatusProcessamento.PROCESSADO);
-            documento.setDataProcessamento(LocalDateTime.now());
-            documento.setMensagemErro(null);
-            documentoRepository.save(documento);
+    /**
+     * Registra um arquivo recém-gravado. Com o armazenamento por conteúdo, o período só é
+     * verificado depois da gravação, quando o SHA-256 é conhecido: se o documento do período
+     * tiver o mesmo conteúdo, o arquivo gravado é descartado e o documento existente é
+     * devolvido como está (já processado ou na fila). Um documento com ERRO não é devolvido:
+     * o mesmo conteúdo falharia de novo, então vale a regra do período ocupado.
+     */
+    private Documento registrarNovoArquivo(String nomeArquivo, ArquivoGravado arquivo, Usuario usuario,
+                                           Integer mesReferencia, Integer anoReferencia) throws IOException {
+        if (armazenamentoPorConteudo) {
+            Optional<Documento> existente = documentoRepository.findFirstByUsuarioAndMesReferenciaAndAnoReferencia(
+                usuario, mesReferencia, anoReferencia);
+            if (existente.isPresent()) {
+                fileStorageService.deletarArquivo(arquivo.caminho());
+                if (!arquivo.sha256().equalsIgnoreCase(existente.get().getSha256())
+                        || existente.get().getStatus() == Documento.StatusProcessamento.ERRO) {
+                    throw periodoOcupado(mesReferencia, anoReferencia);
+                }
+                log.info("Arquivo idêntico ao documento {} do período, reprocessamento ignorado",
+                         existente.get().getId());
+                return existente.get();
+            }
+        }
+        return registrarDocumento(nomeArquivo, arquivo, usuario, mesReferencia, anoReferencia);
+    }
 
-            log.info("Documento processado com sucesso: {}", documento.getId());
+    /**
+     * Salva o documento como PENDENTE e o enfileira para processamento após o commit.
+     */
+    private Documento registrarDocumento(String nomeArquivo, ArquivoGravado arquivo, Usuario usuario,
+                                         Integer mesReferencia, Integer anoReferencia) throws IOException {
+        // Criar e salvar entidade Documento
+        Documento documento = novoDocumento(nomeArquivo, arquivo.tamanho(), armazenar(arquivo),
+                                            usuario, mesReferencia, anoReferencia);
+        documento.setSha256(arquivo.sha256());
+        documento = documentoRepository.save(documento);
+        log.info("Documento salvo: ID={}, Usuario={}", documento.getId(), usuario.getEmail());
 
-        } catch (Exception e) {
-            log.error("Erro ao processar documento: {}", documento.getId(), e);
+        // Enfileirar para processamento somente após o commit do upload
+        Long documentoId = documento.getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                processamentoDocumentoService.enfileirar(documentoId);
+            }
+        });
 
-            // Atualizar status para ERRO
-            documento.setStatus(Documento.StatusProcessamento.ERRO);
-            documento.setMensagemErro(e.getMessage());
-            documentoRepository.save(documento);
+        return documento;
+    }
 
-            throw new RuntimeException("Erro ao processar documento: " + e.getMessage(), e);
+    /**
+     * Move o arquivo para o armazenamento por conteúdo, se habilitado, com o SHA-256 bloqueado
+     * até o fim da transação para que uma exclusão concorrente não remova o arquivo compartilhado.
+     *
+     * @return Caminho relativo definitivo do arquivo
+     */
+    private String armazenar(ArquivoGravado arquivo) throws IOException {
+        if (!armazenamentoPorConteudo) {
+            return arquivo.caminho();
         }
+        bloquearConteudo(arquivo.sha256());
+        return fileStorageService.armazenarPorConteudo(arquivo);
     }
 
     /**
-     * Busca todos os documentos de um usuário.
+     * Bloqueia um conteúdo até o fim da transação (advisory lock do PostgreSQL), serializando
+     * o armazenamento e a remoção do arquivo compartilhado entre os nós.
      */
-    public List<Documento> listarDocumentosDoUsuario(Usuario usuario) {
-        return documentoRepository.findByUsuarioOrderByDataUploadDesc(usuario);
+    private void bloquearConteudo(String sha256) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", (RowCallbackHandler) rs -> { },
+                           sha256.toLowerCase());
+    }
+
+    private static Documento novoDocumento(String nomeArquivo, long tamanho, String caminhoArquivo,
+                                           Usuario usuario, Integer mesReferencia, Integer anoReferencia) {
+        Documento documento = new Documento();
+        documento.setNomeArquivo(nomeArquivo);
+        documento.setTipoArquivo(FilenameUtils.getExtension(nomeArquivo).toUpperCase());
+        documento.setTamanho(tamanho);
+        documento.setCaminhoStorage(caminhoArquivo);
+        documento.setMesReferencia(mesReferencia);
+        documento.setAnoReferencia(anoReferencia);
+        documento.setUsuario(usuario);
+        documento.setStatus(Documento.StatusProcessamento.PENDENTE);
+        return documento;
+    }
+
+    /**
+     * Busca o resumo de todos os documentos de um usuário.
+     */
+    public List<DocumentoResumoDTO> listarDocumentosDoUsuario(Usuario usuario) {
+        return documentoRepository.listarResumos(usuario.getId());
     }
 
     /**
@@ -129,6 +343,23 @@ public class DocumentoService {
             .orElseThrow(() -> new IllegalArgumentException("Documento não encontrado"));
     }
 
+    /**
+     * Busca o resumo de um documento por ID.
+     */
+    public DocumentoResumoDTO buscarResumo(Long id) {
+        return documentoRepository.buscarResumo(id)
+            .orElseThrow(() -> new IllegalArgumentException("Documento não encontrado"));
+    }
+
+    /**
+     * Busca um documento do usuário. Documentos de outros usuários são tratados como
+     * inexistentes, com a verificação feita na própria consulta.
+     */
+    public Documento buscarDoUsuario(Long id, Long usuarioId) {
+        return documentoRepository.findByIdAndUsuarioId(id, usuarioId)
+            .orElseThrow(() -> new IllegalArgumentException("Documento não encontrado"));
+    }
+
     /**
      * Busca documentos por mês e ano.
      */
@@ -137,21 +368,24 @@ public class DocumentoService {
     }
 
     /**
-     * Deleta um documento e seu arquivo físico.
+     * Deleta um documento e seu arquivo físico, se nenhum outro documento usar o mesmo arquivo.
      */
     @Transactional
-    public void deletarDocumento(Long documentoId, Usuario usuario) throws IOException {
-        Documento documento = buscarPorId(documentoId);
+    public void deletarDocumento(Long documentoId, Long usuarioId) throws IOException {
+        Documento documento = buscarDoUsuario(documentoId, usuarioId);
 
-        // Verificar se o documento pertence ao usuário
-        if (!documento.getUsuario().getId().equals(usuario.getId())) {
-            throw new SecurityException("Você não tem permissão para deletar este documento");
-        }
+        // Excluir o relatório gerado (itens e resumo mensal) antes do documento
+        relatorioService.excluirRelatorioDoDocumento(documento);
 
-        // Deletar arquivo físico
-        fileStorageService.deletarArquivo(documento.getCaminhoStorage());
+        // Deletar arquivo físico, a menos que outro documento tenha o mesmo conteúdo
+        if (documento.getSha256() != null) {
+            bloquearConteudo(documento.getSha256());
+        }
+        if (!documentoRepository.existsByCaminhoStorageAndIdNot(documento.getCaminhoStorage(), documentoId)) {
+            fileStorageService.deletarArquivo(documento.getCaminhoStorage());
+        }
 
-        // Deletar do banco (cascade deleta o relatório associado)
+        // Deletar do banco
         documentoRepository.delete(documento);
 
         log.info("Documento deletado: {}", documentoId);
@@ -182,6 +416,21 @@ public class DocumentoService {
             throw new IllegalArgumentException("Arquivo não pode ser vazio");
         }
 
+        validarDados(file.getOriginalFilename(), usuario, mesReferencia, anoReferencia);
+
+        // Validar tamanho
+        if (!fileStorageService.validarTamanho(file, maxFileSizeMb)) {
+            throw new IllegalArgumentException(
+                "Arquivo muito grande. Tamanho máximo: " + maxFileSizeMb + "MB");
+        }
+    }
+
+    /**
+     * Valida usuário, período de referência e extensão do arquivo.
+     */
+    private void validarDados(String nomeArquivo, Usuario usuario,
+                              Integer mesReferencia, Integer anoReferencia) {
+
         if (usuario == null) {
             throw new IllegalArgumentException("Usuário não informado");
         }
@@ -194,14 +443,8 @@ public class DocumentoService {
             throw new IllegalArgumentException("Ano de referência inválido");
         }
 
-        // Validar tamanho
-        if (!fileStorageService.validarTamanho(file, MAX_FILE_SIZE_MB)) {
-            throw new IllegalArgumentException(
-                "Arquivo muito grande. Tamanho máximo: " + MAX_FILE_SIZE_MB + "MB");
-        }
-
         // Validar extensão
-        String extensao = FilenameUtils.getExtension(file.getOriginalFilename());
+        String extensao = FilenameUtils.getExtension(nomeArquivo);
         if (extensao == null ||
             (!extensao.equalsIgnoreCase("csv") &&
              !extensao.equalsIgnoreCase("xlsx") &&
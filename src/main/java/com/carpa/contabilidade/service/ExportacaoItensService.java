@@ -0,0 +1,312 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.AnalisesRelatorio;
+import com.carpa.contabilidade.model.ItemRelatorio;
+import com.carpa.contabilidade.model.Relatorio;
+import com.carpa.contabilidade.repository.ItemRelatorioRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.opencsv.CSVWriter;
+import com.opencsv.ICSVWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Service que exporta itens de relatório em streaming (NDJSON, CSV e XLSX).
+ *
+ * Os itens são lidos por um cursor do banco (Stream com fetch size) e escritos na saída
+ * um a um; cada item é desanexado do contexto de persistência após a escrita, de modo que
+ * o uso de memória não depende da quantidade de linhas. É chamado de dentro de um
+ * StreamingResponseBody, fora da thread da requisição, por isso abre a própria transação.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportacaoItensService {
+
+    // Quantidade de itens escritos antes de forçar o envio ao cliente
+    private static final int ITENS_POR_FLUSH = 1000;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    // Linhas mantidas em memória pelo SXSSF; as anteriores vão para um arquivo temporário
+    private static final int JANELA_LINHAS_XLSX = 100;
+
+    // Mesmas colunas aceitas na importação, para que o arquivo exportado possa ser reenviado
+    private static final String[] CABECALHO_ITENS = {
+        "Data", "Descrição", "Categoria", "Tipo", "Valor", "Forma_Pagamento", "Centro_Custo", "Observações"
+    };
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final ItemRelatorioRepository itemRelatorioRepository;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    private TransactionTemplate transacaoLeitura;
+    private ObjectWriter escritorItem;
+
+    @PostConstruct
+    public void init() {
+        transacaoLeitura = new TransactionTemplate(transactionManager);
+        transacaoLeitura.setReadOnly(true);
+        // Cada item é escrito no mesmo buffer: sem fechar nem esvaziar a saída a cada valor
+        escritorItem = objectMapper.writerFor(ItemRelatorio.class)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Exporta os itens de um relatório em NDJSON (um objeto JSON por linha).
+     *
+     * @param relatorio Relatório
+     * @param saida Saída da resposta
+     * @return Quantidade de itens exportados
+     * @throws IOException Se houver erro ao escrever
+     */
+    public long exportarRelatorioNdjson(Relatorio relatorio, OutputStream saida) throws IOException {
+        return escreverNdjson(() -> streamDoRelatorio(relatorio), saida);
+    }
+
+    /**
+     * Exporta em NDJSON os itens de todos os relatórios de um usuário em um ano.
+     * Só as partições dos meses do ano são lidas.
+     *
+     * @param usuarioId ID do usuário
+     * @param ano Ano de referência
+     * @param saida Saída da resposta
+     * @return Quantidade de itens exportados
+     * @throws IOException Se houver erro ao escrever
+     */
+    public long exportarAnoNdjson(Long usuarioId, Integer ano, OutputStream saida) throws IOException {
+        return escreverNdjson(() -> itemRelatorioRepository.streamPorUsuarioEPeriodo(
+            usuarioId, LocalDate.of(ano, 1, 1), LocalDate.of(ano, 12, 1)), saida);
+    }
+
+    /**
+     * Exporta os itens de um relatório em CSV (OpenCSV, UTF-8), no mesmo layout da importação.
+     *
+     * @param relatorio Relatório
+     * @param saida Saída da resposta
+     * @return Quantidade de itens exportados
+     * @throws IOException Se houver erro ao escrever
+     */
+    public long exportarRelatorioCsv(Relatorio relatorio, OutputStream saida) throws IOException {
+        CSVWriter escritor = new CSVWriter(new BufferedWriter(
+            new OutputStreamWriter(saida, StandardCharsets.UTF_8), TAMANHO_BUFFER),
+            ICSVWriter.DEFAULT_SEPARATOR, ICSVWriter.DEFAULT_QUOTE_CHARACTER,
+            ICSVWriter.DEFAULT_ESCAPE_CHARACTER, ICSVWriter.DEFAULT_LINE_END);
+
+        escritor.writeNext(CABECALHO_ITENS, false);
+        String[] linha = new String[CABECALHO_ITENS.length];
+
+        long total = percorrer(() -> streamDoRelatorio(relatorio), item -> {
+            linha[0] = item.getData().format(FORMATO_DATA);
+            linha[1] = item.getDescricao();
+            linha[2] = item.getCategoria();
+            linha[3] = item.getTipo().name();
+            linha[4] = item.getValor().toPlainString();
+            linha[5] = item.getFormaPagamento();
+            linha[6] = item.getCentroCusto();
+            linha[7] = item.getObservacoes();
+            escritor.writeNext(linha, false);
+        }, escritor);
+
+        escritor.flush();
+        return total;
+    }
+
+    /**
+     * Exporta o relatório em XLSX com SXSSF: aba de itens (no layout da importação),
+     * seguida das abas por categoria e por centro de custo. Só uma janela de linhas fica
+     * em memória; o restante é gravado em arquivos temporários compactados.
+     *
+     * @param relatorio Relatório
+     * @param analises Análises do relatório
+     * @param saida Saída da resposta
+     * @return Quantidade de itens exportados
+     * @throws IOException Se houver erro ao escrever
+     */
+    public long exportarRelatorioXlsx(Relatorio relatorio, AnalisesRelatorio analises, OutputStream saida)
+            throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(JANELA_LINHAS_XLSX);
+        workbook.setCompressTempFiles(true);
+        try {
+            EstilosPlanilha estilos = new EstilosPlanilha(workbook);
+
+            // 1. Itens, lidos do cursor do banco
+            SXSSFSheet abaItens = workbook.createSheet("Itens");
+            escreverCabecalho(abaItens, estilos, CABECALHO_ITENS);
+            int[] numeroLinha = {1};
+
+            long total = percorrer(() -> streamDoRelatorio(relatorio), item -> {
+                Row row = abaItens.createRow(numeroLinha[0]++);
+                row.createCell(0).setCellValue(item.getData());
+                row.getCell(0).setCellStyle(estilos.data);
+                row.createCell(1).setCellValue(item.getDescricao());
+                row.createCell(2).setCellValue(item.getCategoria());
+                row.createCell(3).setCellValue(item.getTipo().name());
+                row.createCell(4).setCellValue(item.getValor().doubleValue());
+                row.getCell(4).setCellStyle(estilos.moeda);
+                row.createCell(5).setCellValue(item.getFormaPagamento());
+                row.createCell(6).setCellValue(item.getCentroCusto());
+                row.createCell(7).setCellValue(item.getObservacoes());
+            }, () -> { });
+
+            // 2. Por categoria
+            SXSSFSheet abaCategorias = workbook.createSheet("Por Categoria");
+            escreverCabecalho(abaCategorias, estilos, new String[] {"Categoria", "Tipo", "Total", "Quantidade"});
+            List<AnalisesRelatorio.TotalCategoria> categorias = analises.getPorCategoria();
+            for (int i = 0; i < categorias.size(); i++) {
+                AnalisesRelatorio.TotalCategoria categoria = categorias.get(i);
+                Row row = abaCategorias.createRow(i + 1);
+                row.createCell(0).setCellValue(categoria.categoria());
+                row.createCell(1).setCellValue(categoria.tipo().name());
+                row.createCell(2).setCellValue(categoria.total().doubleValue());
+                row.getCell(2).setCellStyle(estilos.moeda);
+                row.createCell(3).setCellValue(categoria.quantidade());
+            }
+
+            // 3. Por centro de custo
+            SXSSFSheet abaCentros = workbook.createSheet("Por Centro de Custo");
+            escreverCabecalho(abaCentros, estilos, new String[] {"Centro de Custo", "Receitas", "Despesas", "Resultado"});
+            List<AnalisesRelatorio.TotalCentroCusto> centros = analises.getPorCentroCusto();
+            for (int i = 0; i < centros.size(); i++) {
+                AnalisesRelatorio.TotalCentroCusto centro = centros.get(i);
+                Row row = abaCentros.createRow(i + 1);
+                row.createCell(0).setCellValue(centro.centroCusto());
+                row.createCell(1).setCellValue(centro.receitas().doubleValue());
+                row.createCell(2).setCellValue(centro.despesas().doubleValue());
+                row.createCell(3).setCellValue(centro.resultado().doubleValue());
+                for (int coluna = 1; coluna <= 3; coluna++) {
+                    row.getCell(coluna).setCellStyle(estilos.moeda);
+                }
+            }
+
+            workbook.write(saida);
+            saida.flush();
+            return total;
+
+        } finally {
+            // Remove os arquivos temporários do SXSSF
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static void escreverCabecalho(SXSSFSheet aba, EstilosPlanilha estilos, String[] titulos) {
+        Row row = aba.createRow(0);
+        for (int i = 0; i < titulos.length; i++) {
+            row.createCell(i).setCellValue(titulos[i]);
+            row.getCell(i).setCellStyle(estilos.cabecalho);
+        }
+    }
+
+    /**
+     * Estilos reutilizados por todas as células (o XLSX limita a quantidade de estilos).
+     */
+    private static final class EstilosPlanilha {
+
+        private final CellStyle cabecalho;
+        private final CellStyle data;
+        private final CellStyle moeda;
+
+        EstilosPlanilha(SXSSFWorkbook workbook) {
+            CreationHelper helper = workbook.getCreationHelper();
+
+            Font negrito = workbook.createFont();
+            negrito.setBold(true);
+            cabecalho = workbook.createCellStyle();
+            cabecalho.setFont(negrito);
+
+            data = workbook.createCellStyle();
+            data.setDataFormat(helper.createDataFormat().getFormat("dd/mm/yyyy"));
+
+            moeda = workbook.createCellStyle();
+            moeda.setDataFormat(helper.createDataFormat().getFormat("#,##0.00"));
+        }
+    }
+
+    private Stream<ItemRelatorio> streamDoRelatorio(Relatorio relatorio) {
+        return itemRelatorioRepository.streamPorRelatorio(relatorio.getId(), relatorio.getPeriodoReferencia());
+    }
+
+    private long escreverNdjson(Supplier<Stream<ItemRelatorio>> consulta, OutputStream saida) throws IOException {
+        OutputStream buffer = new BufferedOutputStream(saida, TAMANHO_BUFFER);
+
+        long total = percorrer(consulta, item -> {
+            escritorItem.writeValue(buffer, item);
+            buffer.write('\n');
+        }, buffer);
+
+        buffer.flush();
+        return total;
+    }
+
+    /**
+     * Escritor de um item na saída.
+     */
+    @FunctionalInterface
+    interface EscritorItem {
+        void escrever(ItemRelatorio item) throws IOException;
+    }
+
+    /**
+     * Percorre a consulta em uma transação somente leitura, entregando cada item ao escritor
+     * e liberando-o do contexto de persistência em seguida. A saída é enviada ao cliente a
+     * cada {@value #ITENS_POR_FLUSH} itens, para que os primeiros bytes cheguem antes do fim da consulta.
+     *
+     * @return Quantidade de itens percorridos
+     */
+    private long percorrer(Supplier<Stream<ItemRelatorio>> consulta, EscritorItem escritor, Flushable saida)
+            throws IOException {
+        try {
+            Long total = transacaoLeitura.execute(status -> {
+                long contador = 0;
+                try (Stream<ItemRelatorio> itens = consulta.get()) {
+                    for (ItemRelatorio item : (Iterable<ItemRelatorio>) itens::iterator) {
+                        escritor.escrever(item);
+                        entityManager.detach(item);
+                        if (++contador % ITENS_POR_FLUSH == 0) {
+                            saida.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return contador;
+            });
+            log.debug("Exportação concluída: {} itens", total);
+            return total != null ? total : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
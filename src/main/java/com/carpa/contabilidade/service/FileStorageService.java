@@ -1,42 +1,67 @@
 package com.carpa.contabilidade.service;
 
+import com.carpa.contabilidade.storage.ArmazenamentoArquivos;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
 import java.util.UUID;
 
 /**
  * Service responsável pelo armazenamento e gerenciamento de arquivos no sistema.
  * Gerencia upload, exclusão e organização de arquivos por cliente.
+ *
+ * Os arquivos dos documentos ficam no ArmazenamentoArquivos configurado (disco local ou S3)
+ * e são identificados pelo caminho relativo (chave) gravado no documento. Apenas as partes
+ * de uploads retomáveis em andamento ficam no disco deste nó, em app.upload.dir/.parciais.
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class FileStorageService {
 
+    private static final String PREFIXO_CONTEUDO = "conteudo/";
+
+    private final ArmazenamentoArquivos armazenamento;
+
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
-    private Path uploadPath;
+    // Arquivos de uploads retomáveis em andamento (no disco do armazenamento local, para a movimentação atômica)
+    private Path parciaisPath;
 
     /**
-     * Inicializa o diretório de upload na inicialização do serviço.
+     * Inicializa o diretório dos uploads retomáveis na inicialização do serviço.
      */
     @PostConstruct
     public void init() {
         try {
-            uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-            Files.createDirectories(uploadPath);
+            Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+            parciaisPath = Files.createDirectories(uploadPath.resolve(".parciais"));
             log.info("Diretório de upload inicializado: {}", uploadPath);
         } catch (IOException e) {
             log.error("Erro ao criar diretório de upload", e);
@@ -51,11 +76,11 @@ public class FileStorageService {
      * @param usuarioId ID do usuário proprietário
      * @param mesReferencia Mês de referência
      * @param anoReferencia Ano de referência
-     * @return Caminho relativo onde o arquivo foi salvo
+     * @return Arquivo salvo (caminho relativo, tamanho e SHA-256)
      * @throws IOException Se houver erro ao salvar
      */
-    public String salvarArquivo(MultipartFile file, Long usuarioId, Integer mesReferencia, Integer anoReferencia)
-            throws IOException {
+    public ArquivoGravado salvarArquivo(MultipartFile file, Long usuarioId, Integer mesReferencia,
+                                        Integer anoReferencia) throws IOException {
 
         // Validar arquivo
         if (file.isEmpty()) {
@@ -68,23 +93,261 @@ public class FileStorageService {
             throw new IllegalArgumentException("Tipo de arquivo não permitido. Use CSV ou XLSX");
         }
 
-        // Criar estrutura de diretórios: uploads/cliente_123/2024/05/
-        Path clientePath = uploadPath.resolve("cliente_" + usuarioId);
-        Path anoPath = clientePath.resolve(anoReferencia.toString());
-        Path mesPath = anoPath.resolve(String.format("%02d", mesReferencia));
-        Files.createDirectories(mesPath);
+        // Copiar arquivo, calculando o SHA-256 na mesma leitura (o tamanho já foi validado)
+        String caminhoRelativo = reservarCaminho(file.getOriginalFilename(), usuarioId, mesReferencia, anoReferencia);
+        try (InputStream conteudo = file.getInputStream()) {
+            return gravarArquivo(caminhoRelativo, conteudo, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Salva um arquivo lido de um stream (por exemplo, uma entrada de um ZIP), gravando-o
+     * em blocos sem carregá-lo em memória. O stream não é fechado.
+     *
+     * @param conteudo Conteúdo do arquivo
+     * @param nomeOriginal Nome original do arquivo
+     * @param usuarioId ID do usuário proprietário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     * @param tamanhoMaximo Tamanho máximo em bytes; acima dele a gravação é interrompida
+     * @return Arquivo salvo (caminho relativo, tamanho e SHA-256)
+     * @throws IOException Se houver erro ao salvar
+     */
+    public ArquivoGravado salvarArquivo(InputStream conteudo, String nomeOriginal, Long usuarioId,
+                                        Integer mesReferencia, Integer anoReferencia, long tamanhoMaximo)
+            throws IOException {
+
+        String caminhoRelativo = reservarCaminho(nomeOriginal, usuarioId, mesReferencia, anoReferencia);
+        return gravarArquivo(caminhoRelativo, conteudo, tamanhoMaximo);
+    }
+
+    /**
+     * Reserva o caminho de um novo arquivo na estrutura do cliente e período, sem criá-lo,
+     * para que o documento possa ser registrado antes do fim do upload.
+     *
+     * @param nomeOriginal Nome original do arquivo
+     * @param usuarioId ID do usuário proprietário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     * @return Caminho relativo do arquivo
+     */
+    public String reservarCaminho(String nomeOriginal, Long usuarioId, Integer mesReferencia,
+                                  Integer anoReferencia) {
+        String extensao = FilenameUtils.getExtension(nomeOriginal);
+        if (!isExtensaoValida(extensao)) {
+            throw new IllegalArgumentException("Tipo de arquivo não permitido. Use CSV ou XLSX");
+        }
+        return criarDestino(nomeOriginal, usuarioId, mesReferencia, anoReferencia);
+    }
+
+    /**
+     * Grava o conteúdo de um stream em um caminho reservado, em blocos e sem carregá-lo em
+     * memória, calculando o SHA-256 durante a gravação. O stream não é fechado; em caso de
+     * erro o arquivo parcial é removido.
+     *
+     * @param caminhoRelativo Caminho relativo reservado
+     * @param conteudo Conteúdo do arquivo
+     * @param tamanhoMaximo Tamanho máximo em bytes; acima dele a gravação é interrompida
+     * @return Arquivo gravado (caminho relativo, tamanho e SHA-256)
+     * @throws IOException Se houver erro ao salvar
+     */
+    public ArquivoGravado gravarArquivo(String caminhoRelativo, InputStream conteudo, long tamanhoMaximo)
+            throws IOException {
+
+        // Contar e calcular o hash durante a gravação, interrompendo ao passar do limite
+        // (o tamanho não é conhecido antes)
+        LeituraVerificada leitura = new LeituraVerificada(conteudo, tamanhoMaximo);
+        long gravados = armazenamento.gravar(caminhoRelativo, leitura);
+
+        if (gravados == 0) {
+            armazenamento.remover(caminhoRelativo);
+            throw new IllegalArgumentException("Arquivo vazio não pode ser enviado");
+        }
+
+        log.info("Arquivo salvo: {}", caminhoRelativo);
+        return new ArquivoGravado(caminhoRelativo, gravados, leitura.sha256());
+    }
+
+    /**
+     * Move um arquivo gravado para o armazenamento por conteúdo, no caminho derivado do seu
+     * SHA-256. Se já houver um arquivo com o mesmo conteúdo, ele é reaproveitado e o arquivo
+     * gravado é removido.
+     *
+     * Quem chama deve impedir que o arquivo do conteúdo seja removido ao mesmo tempo
+     * (DocumentoService bloqueia o SHA-256 na transação).
+     *
+     * @param arquivo Arquivo gravado
+     * @return Caminho relativo do arquivo do conteúdo
+     * @throws IOException Se houver erro ao mover
+     */
+    public String armazenarPorConteudo(ArquivoGravado arquivo) throws IOException {
+        String sha256 = arquivo.sha256().toLowerCase();
+        String destino = PREFIXO_CONTEUDO + sha256.substring(0, 2) + "/" + sha256;
+
+        if (armazenamento.existe(destino)) {
+            armazenamento.remover(arquivo.caminho());
+            log.info("Conteúdo já armazenado, arquivo reaproveitado: {}", destino);
+        } else {
+            armazenamento.mover(arquivo.caminho(), destino);
+            log.info("Arquivo armazenado por conteúdo: {}", destino);
+        }
+        return destino;
+    }
+
+    /**
+     * Grava uma parte de um upload retomável no arquivo temporário, na posição informada,
+     * usando FileChannel. Bytes além da posição (de uma parte anterior interrompida) são
+     * descartados antes da gravação; se a parte chegar incompleta ou o checksum não conferir,
+     * o arquivo volta para a posição original.
+     *
+     * A posição confirmada é conferida e avançada com o arquivo travado: uma parte repetida
+     * que chegue atrasada não pode truncar partes já confirmadas depois dela.
+     *
+     * @param uploadId ID do upload
+     * @param posicao Posição do primeiro byte da parte
+     * @param conteudo Conteúdo da parte (não é fechado)
+     * @param tamanho Tamanho da parte em bytes
+     * @param sha256Esperado SHA-256 da parte em hexadecimal (opcional)
+     * @param posicaoConfirmada Posição confirmada do upload, consultada e avançada sob a trava
+     * @throws IOException Se houver erro ao gravar
+     * @throws IllegalStateException Se a posição confirmada não for a posição da parte
+     * @throws ArquivoParcialPerdidoException Se o arquivo temporário não tiver os bytes até a posição
+     */
+    public void gravarParte(String uploadId, long posicao, InputStream conteudo, long tamanho,
+                            String sha256Esperado, PosicaoConfirmada posicaoConfirmada) throws IOException {
+        MessageDigest digest = novoDigestSha256();
+
+        try (FileChannel canal = FileChannel.open(caminhoParcial(uploadId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            FileLock trava = travar(canal);
+            try {
+                // A posição lida antes da trava pode estar desatualizada (parte repetida ou em paralelo)
+                long confirmada = posicaoConfirmada.atual();
+                if (confirmada != posicao) {
+                    throw new IllegalStateException("A parte deve começar na posição " + confirmada + " do arquivo");
+                }
+                // Arquivo ausente ou menor que a posição confirmada (gravado em outro nó ou removido):
+                // gravar na posição deixaria zeros no lugar das partes que faltam
+                if (canal.size() < posicao) {
+                    throw new ArquivoParcialPerdidoException(
+                        "As partes já recebidas deste upload não estão mais disponíveis. Inicie um novo upload");
+                }
+
+                canal.truncate(posicao);
+                canal.position(posicao);
+
+                ReadableByteChannel origem = Channels.newChannel(conteudo);
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                long gravados = 0;
+                while (gravados < tamanho) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), tamanho - gravados));
+                    int lidos = origem.read(buffer);
+                    if (lidos == -1) {
+                        break;
+                    }
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        canal.write(buffer);
+                    }
+                    gravados += lidos;
+                }
+
+                if (gravados != tamanho) {
+                    canal.truncate(posicao);
+                    throw new IllegalArgumentException(
+                        "Parte incompleta: recebidos " + gravados + " de " + tamanho + " bytes");
+                }
+                if (sha256Esperado != null && !HexFormat.of().formatHex(digest.digest())
+                        .equalsIgnoreCase(sha256Esperado)) {
+                    canal.truncate(posicao);
+                    throw new IllegalArgumentException("Checksum da parte não confere");
+                }
+
+                // A posição só avança no banco depois que a parte está em disco
+                canal.force(false);
+                posicaoConfirmada.avancar(posicao + tamanho);
+            } finally {
+                trava.release();
+            }
+        }
+    }
+
+    /**
+     * Calcula o SHA-256 do arquivo temporário de um upload retomável.
+     *
+     * @param uploadId ID do upload
+     * @return SHA-256 em hexadecimal
+     * @throws IOException Se houver erro na leitura
+     */
+    public String calcularSha256Parcial(String uploadId) throws IOException {
+        MessageDigest digest = novoDigestSha256();
+        try (FileChannel canal = FileChannel.open(caminhoParcial(uploadId), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (canal.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Transfere o arquivo completo de um upload retomável para a estrutura do cliente e período
+     * (no armazenamento local, com movimentação atômica: o arquivo só aparece no destino inteiro).
+     *
+     * @param uploadId ID do upload
+     * @param nomeOriginal Nome original do arquivo
+     * @param usuarioId ID do usuário proprietário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     * @return Arquivo salvo (caminho relativo, tamanho e SHA-256)
+     * @throws IOException Se houver erro ao transferir
+     */
+    public ArquivoGravado concluirArquivoParcial(String uploadId, String nomeOriginal, Long usuarioId,
+                                                 Integer mesReferencia, Integer anoReferencia) throws IOException {
+        Path parcial = caminhoParcial(uploadId);
+        String sha256 = calcularSha256Parcial(uploadId);
+        long tamanho = Files.size(parcial);
 
-        // Gerar nome único para o arquivo
-        String nomeUnico = gerarNomeUnico(file.getOriginalFilename());
-        Path destinoPath = mesPath.resolve(nomeUnico);
+        String destino = criarDestino(nomeOriginal, usuarioId, mesReferencia, anoReferencia);
+        armazenamento.transferir(parcial, destino);
 
-        // Copiar arquivo
-        Files.copy(file.getInputStream(), destinoPath, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Upload retomável {} concluído: {}", uploadId, destino);
+        return new ArquivoGravado(destino, tamanho, sha256);
+    }
 
-        log.info("Arquivo salvo: {}", destinoPath);
+    /**
+     * Remove o arquivo temporário de um upload retomável.
+     *
+     * @param uploadId ID do upload
+     * @throws IOException Se houver erro ao remover
+     */
+    public void descartarArquivoParcial(String uploadId) throws IOException {
+        Files.deleteIfExists(caminhoParcial(uploadId));
+    }
 
-        // Retornar caminho relativo
-        return uploadPath.relativize(destinoPath).toString();
+    /**
+     * Remove arquivos temporários de uploads retomáveis sem alteração desde o limite,
+     * inclusive os que ficaram sem registro no banco.
+     *
+     * @param limite Instante limite
+     * @return Quantidade de arquivos removidos
+     * @throws IOException Se houver erro ao listar o diretório
+     */
+    public int descartarArquivosParciaisAnteriores(Instant limite) throws IOException {
+        int removidos = 0;
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(parciaisPath, "*.part")) {
+            for (Path arquivo : arquivos) {
+                if (Files.getLastModifiedTime(arquivo).toInstant().isBefore(limite)
+                        && Files.deleteIfExists(arquivo)) {
+                    removidos++;
+                }
+            }
+        }
+        return removidos;
     }
 
     /**
@@ -94,25 +357,137 @@ public class FileStorageService {
      * @throws IOException Se houver erro ao deletar
      */
     public void deletarArquivo(String caminhoRelativo) throws IOException {
-        Path arquivoPath = uploadPath.resolve(caminhoRelativo).normalize();
+        armazenamento.remover(caminhoRelativo);
+        log.info("Arquivo deletado: {}", caminhoRelativo);
+    }
 
-        // Verificar se o arquivo está dentro do diretório de upload (segurança)
-        if (!arquivoPath.startsWith(uploadPath)) {
-            throw new SecurityException("Acesso negado ao arquivo");
+    /**
+     * Abre um arquivo para leitura em streaming, qualquer que seja o armazenamento.
+     *
+     * @param caminhoRelativo Caminho relativo do arquivo
+     * @return Stream do conteúdo, a ser fechado por quem chama
+     * @throws IOException Se o arquivo não existir ou houver erro na leitura
+     */
+    public InputStream abrirArquivo(String caminhoRelativo) throws IOException {
+        return armazenamento.abrir(caminhoRelativo);
+    }
+
+    /**
+     * Arquivo gravado no storage: caminho relativo, tamanho em bytes e SHA-256 em hexadecimal.
+     */
+    public record ArquivoGravado(String caminho, long tamanho, String sha256) {
+    }
+
+    /**
+     * Posição confirmada de um upload retomável (no banco), consultada e avançada por
+     * gravarParte enquanto o arquivo temporário está travado.
+     */
+    public interface PosicaoConfirmada {
+
+        /**
+         * @return Posição confirmada atual
+         */
+        long atual();
+
+        /**
+         * Avança a posição confirmada após a gravação da parte.
+         *
+         * @param novaPosicao Posição após a parte
+         * @throws IllegalStateException Se outra requisição alterou a posição
+         */
+        void avancar(long novaPosicao);
+    }
+
+    /**
+     * O arquivo temporário de um upload retomável não tem mais as partes já confirmadas; o
+     * upload não pode continuar e precisa ser reiniciado.
+     */
+    public static class ArquivoParcialPerdidoException extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ArquivoParcialPerdidoException(String mensagem) {
+            super(mensagem);
+        }
+    }
+
+    /**
+     * Stream que conta os bytes lidos e calcula o SHA-256, interrompendo a leitura ao passar
+     * do tamanho máximo.
+     */
+    private static class LeituraVerificada extends FilterInputStream {
+
+        private final long tamanhoMaximo;
+        private final MessageDigest digest = novoDigestSha256();
+        private long lidos;
+
+        LeituraVerificada(InputStream conteudo, long tamanhoMaximo) {
+            super(conteudo);
+            this.tamanhoMaximo = tamanhoMaximo;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] um = new byte[1];
+            return read(um, 0, 1) == -1 ? -1 : um[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int quantidade = super.read(b, off, len);
+            if (quantidade > 0) {
+                lidos += quantidade;
+                if (lidos > tamanhoMaximo) {
+                    throw new IllegalArgumentException(
+                        "Arquivo muito grande. Tamanho máximo: " + tamanhoMaximo / (1024 * 1024) + "MB");
+                }
+                digest.update(b, off, quantidade);
+            }
+            return quantidade;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Bytes pulados não entrariam no hash: a gravação sempre lê tudo
+            return 0;
+        }
+
+        @Override
+        public void close() {
+            // O stream de origem pertence a quem chamou gravarArquivo
         }
 
-        Files.deleteIfExists(arquivoPath);
-        log.info("Arquivo deletado: {}", arquivoPath);
+        String sha256() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
     }
 
     /**
-     * Obtém o caminho completo de um arquivo.
-     *
-     * @param caminhoRelativo Caminho relativo do arquivo
-     * @return Path absoluto do arquivo
+     * Trava o arquivo temporário, impedindo que duas requisições gravem o mesmo upload ao mesmo tempo.
      */
-    public Path obterCaminhoCompleto(String caminhoRelativo) {
-        return uploadPath.resolve(caminhoRelativo).normalize();
+    private static FileLock travar(FileChannel canal) throws IOException {
+        FileLock trava;
+        try {
+            trava = canal.tryLock();
+        } catch (OverlappingFileLockException e) {
+            trava = null;
+        }
+        if (trava == null) {
+            throw new IllegalStateException("Outra parte deste upload está sendo gravada");
+        }
+        return trava;
+    }
+
+    private Path caminhoParcial(String uploadId) {
+        return parciaisPath.resolve(uploadId + ".part");
+    }
+
+    private static MessageDigest novoDigestSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não disponível", e);
+        }
     }
 
     /**
@@ -128,6 +503,16 @@ public class FileStorageService {
                 extensao.equalsIgnoreCase("xls"));
     }
 
+    /**
+     * Monta o caminho relativo na estrutura do cliente e período (cliente_123/2024/05/)
+     * com um nome único.
+     */
+    private String criarDestino(String nomeOriginal, Long usuarioId, Integer mesReferencia,
+                                Integer anoReferencia) {
+        return "cliente_" + usuarioId + "/" + anoReferencia + "/" + String.format("%02d", mesReferencia) +
+               "/" + gerarNomeUnico(nomeOriginal);
+    }
+
     /**
      * Gera um nome único para o arquivo baseado em timestamp e UUID.
      *
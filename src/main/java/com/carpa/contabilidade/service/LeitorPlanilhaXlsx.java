@@ -0,0 +1,235 @@
+package com.carpa.contabilidade.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Leitor de planilhas XLSX baseado no modelo de eventos (SAX) do Apache POI.
+ * Percorre a primeira aba linha a linha sem montar o DOM da planilha,
+ * entregando cada linha com as células já tipadas (texto, número, data, booleano).
+ */
+class LeitorPlanilhaXlsx extends DefaultHandler {
+
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final StylesTable estilos;
+    private final Consumer<LinhaPlanilha> consumidor;
+
+    private final StringBuilder valor = new StringBuilder();
+    private List<Celula> celulas;
+    private int indiceLinha = -1;
+    private int indiceColuna;
+    private String tipoCelula;
+    private String estiloCelula;
+    private boolean lendoValor;
+    private boolean possuiValor;
+    private int totalLinhas;
+
+    private LeitorPlanilhaXlsx(ReadOnlySharedStringsTable sharedStrings, StylesTable estilos,
+                               Consumer<LinhaPlanilha> consumidor) {
+        this.sharedStrings = sharedStrings;
+        this.estilos = estilos;
+        this.consumidor = consumidor;
+    }
+
+    /**
+     * Lê a primeira aba de uma planilha XLSX, entregando cada linha ao consumidor.
+     *
+     * @param caminhoArquivo Path do arquivo XLSX
+     * @param consumidor Recebe cada linha lida, na ordem do arquivo
+     * @return Quantidade de linhas presentes na aba
+     * @throws IOException Se houver erro ao ler o arquivo
+     */
+    static int lerPrimeiraAba(Path caminhoArquivo, Consumer<LinhaPlanilha> consumidor) throws IOException {
+        try (OPCPackage pacote = OPCPackage.open(caminhoArquivo.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pacote);
+            LeitorPlanilhaXlsx handler = new LeitorPlanilhaXlsx(
+                new ReadOnlySharedStringsTable(pacote), reader.getStylesTable(), consumidor);
+
+            Iterator<InputStream> abas = reader.getSheetsData();
+            if (!abas.hasNext()) {
+                return 0;
+            }
+
+            try (InputStream aba = abas.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(handler);
+                parser.parse(new InputSource(aba));
+            }
+
+            return handler.totalLinhas;
+
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Erro ao ler planilha Excel: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atributos) {
+        switch (localName) {
+            case "row" -> {
+                String referencia = atributos.getValue("r");
+                indiceLinha = referencia != null ? Integer.parseInt(referencia) - 1 : indiceLinha + 1;
+                indiceColuna = -1;
+                celulas = new ArrayList<>();
+            }
+            case "c" -> {
+                String referencia = atributos.getValue("r");
+                indiceColuna = referencia != null ? indiceDaColuna(referencia) : indiceColuna + 1;
+                tipoCelula = atributos.getValue("t");
+                estiloCelula = atributos.getValue("s");
+                valor.setLength(0);
+                possuiValor = false;
+            }
+            case "v" -> {
+                lendoValor = true;
+                possuiValor = true;
+            }
+            case "t" -> {
+                // Texto de célula inlineStr (<is><t>...</t></is>)
+                if ("inlineStr".equals(tipoCelula)) {
+                    lendoValor = true;
+                    possuiValor = true;
+                }
+            }
+            default -> {
+                // Demais elementos (fórmulas, formatação) não interessam
+            }
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (lendoValor) {
+            valor.append(ch, start, length);
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        switch (localName) {
+            case "v", "t" -> lendoValor = false;
+            case "c" -> {
+                while (celulas.size() <= indiceColuna) {
+                    celulas.add(null);
+                }
+                celulas.set(indiceColuna, criarCelula());
+            }
+            case "row" -> {
+                totalLinhas++;
+                consumidor.accept(new LinhaPlanilha(indiceLinha, celulas));
+            }
+            default -> {
+                // Nada a fazer
+            }
+        }
+    }
+
+    /**
+     * Converte o conteúdo lido da célula atual em uma Celula tipada.
+     */
+    private Celula criarCelula() {
+        if (!possuiValor) {
+            return new Celula(CellType.BLANK, "", 0, false);
+        }
+
+        String texto = valor.toString();
+
+        if (tipoCelula == null || tipoCelula.equals("n")) {
+            double numero = Double.parseDouble(texto);
+            return new Celula(CellType.NUMERIC, texto, numero, isFormatoData(numero));
+        }
+
+        return switch (tipoCelula) {
+            case "s" -> new Celula(CellType.STRING,
+                sharedStrings.getItemAt(Integer.parseInt(texto)).getString(), 0, false);
+            case "inlineStr", "str" -> new Celula(CellType.STRING, texto, 0, false);
+            case "b" -> new Celula(CellType.BOOLEAN, String.valueOf(texto.equals("1")), 0, false);
+            default -> new Celula(CellType.ERROR, texto, 0, false);
+        };
+    }
+
+    /**
+     * Verifica se o estilo da célula atual é um formato de data,
+     * com a mesma regra de DateUtil.isCellDateFormatted.
+     */
+    private boolean isFormatoData(double numero) {
+        if (estiloCelula == null || estilos == null) {
+            return false;
+        }
+        XSSFCellStyle estilo = estilos.getStyleAt(Integer.parseInt(estiloCelula));
+        return estilo != null
+            && DateUtil.isValidExcelDate(numero)
+            && DateUtil.isADateFormat(estilo.getDataFormat(), estilo.getDataFormatString());
+    }
+
+    /**
+     * Extrai o índice (0-based) da coluna de uma referência como "C12".
+     */
+    private static int indiceDaColuna(String referencia) {
+        int coluna = 0;
+        for (int i = 0; i < referencia.length(); i++) {
+            char c = referencia.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            coluna = coluna * 26 + (c - 'A' + 1);
+        }
+        return coluna - 1;
+    }
+
+    /**
+     * Célula lida da planilha.
+     *
+     * @param tipo Tipo da célula (STRING, NUMERIC, BOOLEAN, BLANK ou ERROR)
+     * @param texto Conteúdo textual bruto
+     * @param numero Valor numérico (apenas para NUMERIC)
+     * @param data true se a célula numérica está formatada como data
+     */
+    record Celula(CellType tipo, String texto, double numero, boolean data) {
+    }
+
+    /**
+     * Linha lida da planilha.
+     *
+     * @param indice Índice (0-based) da linha na aba
+     * @param celulas Células indexadas pela coluna; posições ausentes são null
+     */
+    record LinhaPlanilha(int indice, List<Celula> celulas) {
+
+        Celula celula(int coluna) {
+            return coluna < celulas.size() ? celulas.get(coluna) : null;
+        }
+
+        int quantidadeCelulas() {
+            int quantidade = 0;
+            for (Celula celula : celulas) {
+                if (celula != null) {
+                    quantidade++;
+                }
+            }
+            return quantidade;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.carpa.contabilidade.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * Componente responsável por converter datas textuais dos arquivos importados em LocalDate.
+ * Reconhece os formatos DD/MM/AAAA, AAAA-MM-DD, DD-MM-AAAA e MM/DD/AAAA pela forma dos
+ * caracteres (dígitos e separadores), sem SimpleDateFormat e sem exceções no caminho feliz.
+ *
+ * O componente não guarda estado e pode ser compartilhado entre threads. Para lembrar o
+ * formato que funcionou em um arquivo, use {@link #novaLeitura()} uma vez por arquivo.
+ */
+@Component
+public class ParserData {
+
+    /**
+     * Formatos aceitos, na ordem de tentativa.
+     */
+    public enum FormatoData {
+        DIA_MES_ANO_BARRA('/', 0, 1, 2),
+        ANO_MES_DIA_HIFEN('-', 2, 1, 0),
+        DIA_MES_ANO_HIFEN('-', 0, 1, 2),
+        MES_DIA_ANO_BARRA('/', 1, 0, 2);
+
+        private final char separador;
+        private final int grupoDia;
+        private final int grupoMes;
+        private final int grupoAno;
+
+        FormatoData(char separador, int grupoDia, int grupoMes, int grupoAno) {
+            this.separador = separador;
+            this.grupoDia = grupoDia;
+            this.grupoMes = grupoMes;
+            this.grupoAno = grupoAno;
+        }
+    }
+
+    private static final FormatoData[] FORMATOS = FormatoData.values();
+
+    /**
+     * Converte texto para LocalDate tentando os formatos na ordem padrão.
+     *
+     * @param texto Data em texto
+     * @return Data convertida
+     * @throws IllegalArgumentException Se nenhum formato reconhecer o texto
+     */
+    public LocalDate parse(String texto) {
+        return novaLeitura().parse(texto);
+    }
+
+    /**
+     * Cria uma leitura para um arquivo. A leitura lembra o último formato reconhecido e
+     * o tenta primeiro nas linhas seguintes. Não é thread-safe: use uma por arquivo.
+     *
+     * Isso muda a interpretação de datas ambíguas em relação a {@link #parse(String)} (e ao
+     * parser anterior, que sempre tentava DD/MM/AAAA primeiro): depois de uma linha que só
+     * MM/DD/AAAA reconhece, como 05/13/2024, a data 05/06/2024 é lida como 6 de maio, e não
+     * como 5 de junho, até que uma linha só reconhecida como DD/MM/AAAA (13/05/2024) traga o
+     * formato de volta. Em um arquivo com um único formato, como se espera de um extrato,
+     * as datas ambíguas passam a seguir o formato das demais linhas.
+     *
+     * @return Nova leitura sem formato memorizado
+     */
+    public Leitura novaLeitura() {
+        return new Leitura();
+    }
+
+    /**
+     * Estado de leitura de um único arquivo.
+     */
+    public static final class Leitura {
+
+        private final int[] grupos = new int[3];
+        private FormatoData formatoAtual;
+
+        private Leitura() {
+        }
+
+        /**
+         * Converte texto para LocalDate, priorizando o formato que funcionou na linha anterior.
+         *
+         * @param texto Data em texto
+         * @return Data convertida
+         * @throws IllegalArgumentException Se nenhum formato reconhecer o texto
+         */
+        public LocalDate parse(String texto) {
+            char separador = separarGrupos(texto, grupos);
+
+            if (separador != 0) {
+                if (formatoAtual != null && formatoAtual.separador == separador) {
+                    LocalDate data = montar(grupos, formatoAtual);
+                    if (data != null) {
+                        return data;
+                    }
+                }
+
+                for (FormatoData formato : FORMATOS) {
+                    if (formato == formatoAtual || formato.separador != separador) {
+                        continue;
+                    }
+                    LocalDate data = montar(grupos, formato);
+                    if (data != null) {
+                        formatoAtual = formato;
+                        return data;
+                    }
+                }
+            }
+
+            throw new IllegalArgumentException("Formato de data inválido: " + texto +
+                ". Use DD/MM/AAAA ou AAAA-MM-DD");
+        }
+
+        /**
+         * Formato reconhecido mais recentemente, ou null se nenhuma data foi lida.
+         */
+        public FormatoData getFormatoAtual() {
+            return formatoAtual;
+        }
+    }
+
+    /**
+     * Lê três grupos numéricos separados pelo mesmo caractere ('/' ou '-').
+     * Conteúdo após o terceiro grupo (por exemplo um horário) é ignorado,
+     * assim como fazia o SimpleDateFormat.
+     *
+     * @return O separador encontrado, ou 0 se o texto não tem a forma esperada
+     */
+    private static char separarGrupos(String texto, int[] grupos) {
+        if (texto == null) {
+            return 0;
+        }
+
+        int tamanho = texto.length();
+        int pos = 0;
+        char separador = 0;
+
+        for (int grupo = 0; grupo < 3; grupo++) {
+            int inicio = pos;
+            int valor = 0;
+            while (pos < tamanho && pos - inicio < 4) {
+                char c = texto.charAt(pos);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                valor = valor * 10 + (c - '0');
+                pos++;
+            }
+            if (pos == inicio) {
+                return 0;
+            }
+            grupos[grupo] = valor;
+
+            if (grupo < 2) {
+                if (pos >= tamanho) {
+                    return 0;
+                }
+                char c = texto.charAt(pos);
+                if (c != '/' && c != '-') {
+                    return 0;
+                }
+                if (separador == 0) {
+                    separador = c;
+                } else if (c != separador) {
+                    return 0;
+                }
+                pos++;
+            } else if (pos < tamanho && Character.isDigit(texto.charAt(pos))) {
+                // Ano com mais de 4 dígitos
+                return 0;
+            }
+        }
+
+        return separador;
+    }
+
+    /**
+     * Monta a data com os grupos no formato informado, validando dia e mês sem lançar exceções.
+     *
+     * @return A data, ou null se os valores não formam uma data válida nesse formato
+     */
+    private static LocalDate montar(int[] grupos, FormatoData formato) {
+        int dia = grupos[formato.grupoDia];
+        int mes = grupos[formato.grupoMes];
+        int ano = grupos[formato.grupoAno];
+
+        if (ano < 1 || mes < 1 || mes > 12 || dia < 1) {
+            return null;
+        }
+        if (dia > Month.of(mes).length(Year.isLeap(ano))) {
+            return null;
+        }
+        return LocalDate.of(ano, mes, dia);
+    }
+}
@@ -0,0 +1,215 @@
+package com.carpa.contabilidade.service;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Componente responsável por converter valores monetários textuais em BigDecimal com 2 casas.
+ * Faz uma única passada pelo texto, sem DecimalFormat e sem strings intermediárias.
+ *
+ * Formatos aceitos (com ou sem "R$" e espaços):
+ * "1.234,56", "1234,56", "1,234.56", "1234.56", "1.234", "-1.234,56", "1.234,56-" e "(1.234,56)".
+ *
+ * Regras para o separador decimal:
+ * - Com vírgula e ponto no texto, o último a aparecer é o decimal e o outro é de milhar.
+ * - Só vírgula: uma ocorrência é decimal; várias são separadores de milhar.
+ * - Só ponto: uma ocorrência é decimal, exceto quando seguida de exatamente 3 dígitos
+ *   ("1.234" = mil duzentos e trinta e quatro); várias são separadores de milhar.
+ * Casas além da segunda são arredondadas (HALF_UP), como faz a coluna numeric(15,2).
+ *
+ * O componente não guarda estado e pode ser compartilhado entre threads.
+ */
+@Component
+public class ParserValor {
+
+    /**
+     * Escala (casas decimais) dos valores produzidos.
+     */
+    public static final int ESCALA = 2;
+
+    // Limite de dígitos lidos: 17 dígitos sempre cabem em um long; o ajuste de escala
+    // (até x100) é verificado à parte, pois pode estourar
+    private static final int MAX_DIGITOS = 17;
+
+    /**
+     * Converte texto para BigDecimal com escala 2.
+     *
+     * @param texto Valor em texto
+     * @return Valor convertido
+     * @throws IllegalArgumentException Se o texto não for um valor válido
+     */
+    public BigDecimal parse(String texto) {
+        return BigDecimal.valueOf(parseCentavos(texto), ESCALA);
+    }
+
+    /**
+     * Converte texto para o valor não escalado (centavos) correspondente à escala 2.
+     *
+     * @param texto Valor em texto
+     * @return Valor em centavos
+     * @throws IllegalArgumentException Se o texto não for um valor válido
+     */
+    public long parseCentavos(String texto) {
+        if (texto == null) {
+            throw invalido(texto);
+        }
+
+        long digitos = 0;
+        int totalDigitos = 0;
+        boolean negativo = false;
+        boolean parenteses = false;
+        boolean fechouParenteses = false;
+        boolean sinalFinal = false;
+
+        int virgulas = 0;
+        int pontos = 0;
+        char ultimoSeparador = 0;
+        int digitosAntesUltimoSeparador = 0;
+
+        int tamanho = texto.length();
+        for (int i = 0; i < tamanho; i++) {
+            char c = texto.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                if (fechouParenteses || sinalFinal) {
+                    throw invalido(texto);
+                }
+                if (totalDigitos == 0 && c == '0') {
+                    // Zeros à esquerda não ocupam espaço no long, mas contam para as casas decimais
+                    if (ultimoSeparador == 0) {
+                        continue;
+                    }
+                }
+                if (++totalDigitos > MAX_DIGITOS) {
+                    throw invalido(texto);
+                }
+                digitos = digitos * 10 + (c - '0');
+                continue;
+            }
+
+            switch (c) {
+                case ',', '.' -> {
+                    if (fechouParenteses || sinalFinal) {
+                        throw invalido(texto);
+                    }
+                    if (c == ',') {
+                        virgulas++;
+                    } else {
+                        pontos++;
+                    }
+                    ultimoSeparador = c;
+                    digitosAntesUltimoSeparador = totalDigitos;
+                }
+                case ' ', '\u00A0', '\t', '$' -> {
+                    // Espaços e símbolo de moeda são ignorados
+                }
+                case 'R' -> {
+                    if (i + 1 >= tamanho || texto.charAt(i + 1) != '$') {
+                        throw invalido(texto);
+                    }
+                }
+                case '-' -> {
+                    if (negativo) {
+                        throw invalido(texto);
+                    }
+                    negativo = true;
+                    sinalFinal = totalDigitos > 0 || ultimoSeparador != 0;
+                }
+                case '+' -> {
+                    if (totalDigitos > 0) {
+                        throw invalido(texto);
+                    }
+                }
+                case '(' -> {
+                    if (parenteses || totalDigitos > 0) {
+                        throw invalido(texto);
+                    }
+                    parenteses = true;
+                }
+                case ')' -> {
+                    if (!parenteses || fechouParenteses) {
+                        throw invalido(texto);
+                    }
+                    fechouParenteses = true;
+                }
+                default -> throw invalido(texto);
+            }
+        }
+
+        if (parenteses != fechouParenteses || (parenteses && negativo)) {
+            throw invalido(texto);
+        }
+        if (totalDigitos == 0 && !temZero(texto)) {
+            throw invalido(texto);
+        }
+
+        // Casas decimais: dígitos após o separador decimal, se houver
+        int casas = 0;
+        if (ultimoSeparador != 0) {
+            int contagemUltimo = ultimoSeparador == ',' ? virgulas : pontos;
+            int contagemOutro = ultimoSeparador == ',' ? pontos : virgulas;
+            int digitosDepois = totalDigitos - digitosAntesUltimoSeparador;
+
+            boolean decimal;
+            if (contagemOutro > 0) {
+                if (contagemUltimo > 1) {
+                    throw invalido(texto);
+                }
+                decimal = true;
+            } else if (contagemUltimo > 1) {
+                decimal = false;
+            } else {
+                decimal = ultimoSeparador == ',' || digitosDepois != 3;
+            }
+
+            if (decimal) {
+                casas = digitosDepois;
+            }
+        }
+
+        long centavos;
+        try {
+            centavos = ajustarEscala(digitos, casas);
+        } catch (ArithmeticException e) {
+            throw invalido(texto);
+        }
+        return negativo || parenteses ? -centavos : centavos;
+    }
+
+    /**
+     * Leva o valor não escalado da escala lida para a escala 2.
+     *
+     * @throws ArithmeticException Se o valor escalado não couber em um long
+     */
+    private static long ajustarEscala(long valor, int casas) {
+        if (casas == ESCALA) {
+            return valor;
+        }
+        if (casas < ESCALA) {
+            for (int i = casas; i < ESCALA; i++) {
+                valor = Math.multiplyExact(valor, 10L);
+            }
+            return valor;
+        }
+
+        long divisor = 1;
+        for (int i = ESCALA; i < casas; i++) {
+            divisor *= 10;
+        }
+        long quociente = valor / divisor;
+        long resto = valor % divisor;
+        return resto * 2 >= divisor ? quociente + 1 : quociente;
+    }
+
+    /**
+     * Zeros à esquerda não são contados como dígitos; distingue "0,00" de um texto sem dígitos.
+     */
+    private static boolean temZero(String texto) {
+        return texto.indexOf('0') >= 0;
+    }
+
+    private static IllegalArgumentException invalido(String texto) {
+        return new IllegalArgumentException("Valor inválido: " + texto);
+    }
+}
@@ -0,0 +1,210 @@
+package com.carpa.contabilidade.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service que mantém as partições mensais da tabela itens_relatorio.
+ *
+ * Cria a partição do mês antes da gravação dos itens de um relatório e, diariamente,
+ * as partições dos próximos meses. Com retenção configurada, desanexa as partições
+ * antigas e as move para o schema de arquivo: os relatórios continuam com métricas e
+ * análises, mas os itens saem das consultas, do autovacuum e dos índices da tabela.
+ *
+ * O DDL roda sempre em transação própria, para que o lock da tabela particionada seja
+ * liberado logo e não durante toda a gravação do relatório, e com lock_timeout: se houver
+ * gravações em andamento na tabela, o DDL desiste em vez de ficar esperando (e bloqueando
+ * as gravações seguintes). garantirParticao deve ser chamado fora da transação que grava
+ * o relatório, pois o DDL espera pelos locks que ela mantém em relatorios.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ParticionamentoItensService {
+
+    private static final String TABELA = "itens_relatorio";
+    private static final String PREFIXO_PARTICAO = TABELA + "_p";
+    private static final DateTimeFormatter FORMATO_SUFIXO = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String SQL_LISTAR_PARTICOES =
+        "SELECT c.relname FROM pg_inherits h JOIN pg_class c ON c.oid = h.inhrelid " +
+        "WHERE h.inhparent = '" + TABELA + "'::regclass";
+
+    private static final String SQL_CHAVES_ESTRANGEIRAS =
+        "SELECT conname FROM pg_constraint WHERE conrelid = ?::regclass AND contype = 'f'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.particionamento.meses-futuros:3}")
+    private int mesesFuturos;
+
+    // 0 = manter todas as partições
+    @Value("${app.particionamento.meses-retencao:0}")
+    private int mesesRetencao;
+
+    @Value("${app.particionamento.schema-arquivo:arquivo}")
+    private String schemaArquivo;
+
+    @Value("${app.particionamento.lock-timeout-segundos:10}")
+    private int lockTimeoutSegundos;
+
+    // Períodos com partição já confirmada neste nó, para não consultar o catálogo a cada relatório
+    private final Set<LocalDate> particoesExistentes = ConcurrentHashMap.newKeySet();
+
+    private TransactionTemplate transacaoPropria;
+
+    @PostConstruct
+    public void init() {
+        transacaoPropria = new TransactionTemplate(transactionManager);
+        transacaoPropria.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Garante que exista a partição do mês do período informado.
+     *
+     * @param periodo Qualquer data do mês de referência
+     */
+    public void garantirParticao(LocalDate periodo) {
+        LocalDate inicio = periodo.withDayOfMonth(1);
+        if (particoesExistentes.contains(inicio)) {
+            return;
+        }
+
+        String nome = nomeParticao(inicio);
+        try {
+            transacaoPropria.executeWithoutResult(status -> {
+                if (!existe(nome)) {
+                    limitarEsperaPorLock();
+                    jdbcTemplate.execute(String.format(
+                        "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                        nome, TABELA, inicio, inicio.plusMonths(1)));
+                    log.info("Partição {} criada", nome);
+                }
+            });
+        } catch (DataAccessException e) {
+            // Outro nó pode ter criado a mesma partição ao mesmo tempo
+            if (!existe(nome)) {
+                throw e;
+            }
+        }
+        particoesExistentes.add(inicio);
+    }
+
+    /**
+     * Cria as partições do mês atual e dos próximos meses e arquiva as que passaram da
+     * retenção. Executa na inicialização e diariamente.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.particionamento.cron:0 0 3 * * *}")
+    public void manterParticoes() {
+        // Partições podem ter sido arquivadas por outro nó
+        particoesExistentes.clear();
+
+        LocalDate mesAtual = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i <= mesesFuturos; i++) {
+            try {
+                garantirParticao(mesAtual.plusMonths(i));
+            } catch (DataAccessException e) {
+                // Lock não obtido a tempo: a partição é criada na próxima execução ou antes do relatório
+                log.error("Erro ao criar partição de {}: {}", mesAtual.plusMonths(i), e.getMessage());
+            }
+        }
+
+        if (mesesRetencao > 0) {
+            arquivarParticoesAnteriores(mesAtual.minusMonths(mesesRetencao));
+        }
+    }
+
+    /**
+     * Arquiva as partições de meses anteriores ao limite.
+     *
+     * @param limite Primeiro mês mantido
+     * @return Quantidade de partições arquivadas
+     */
+    public int arquivarParticoesAnteriores(LocalDate limite) {
+        int arquivadas = 0;
+        for (String nome : jdbcTemplate.queryForList(SQL_LISTAR_PARTICOES, String.class)) {
+            LocalDate periodo = periodoDaParticao(nome);
+            if (periodo == null || !periodo.isBefore(limite)) {
+                continue;
+            }
+            try {
+                arquivar(nome);
+                arquivadas++;
+            } catch (DataAccessException e) {
+                log.error("Erro ao arquivar partição {}: {}", nome, e.getMessage());
+            }
+        }
+        return arquivadas;
+    }
+
+    /**
+     * Desanexa a partição da tabela e a move para o schema de arquivo. As chaves estrangeiras
+     * são removidas para que os relatórios do período ainda possam ser excluídos.
+     */
+    private void arquivar(String nome) {
+        transacaoPropria.executeWithoutResult(status -> {
+            limitarEsperaPorLock();
+            jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + schemaArquivo);
+            jdbcTemplate.execute("ALTER TABLE " + TABELA + " DETACH PARTITION " + nome);
+
+            List<String> chaves = jdbcTemplate.queryForList(SQL_CHAVES_ESTRANGEIRAS, String.class, nome);
+            for (String chave : chaves) {
+                jdbcTemplate.execute("ALTER TABLE " + nome + " DROP CONSTRAINT \"" + chave + "\"");
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + nome + " SET SCHEMA " + schemaArquivo);
+        });
+        log.info("Partição {} arquivada no schema {}", nome, schemaArquivo);
+    }
+
+    /**
+     * Limita a espera por locks do DDL na transação atual.
+     */
+    private void limitarEsperaPorLock() {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeoutSegundos + "s'");
+    }
+
+    private boolean existe(String nome) {
+        return Boolean.TRUE.equals(
+            jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, nome));
+    }
+
+    static String nomeParticao(LocalDate inicio) {
+        return PREFIXO_PARTICAO + inicio.format(FORMATO_SUFIXO);
+    }
+
+    /**
+     * Período de uma partição pelo nome (itens_relatorio_pAAAA_MM), ou null se o nome não seguir o padrão.
+     */
+    static LocalDate periodoDaParticao(String nome) {
+        if (!nome.startsWith(PREFIXO_PARTICAO)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(nome.substring(PREFIXO_PARTICAO.length()) + "_01",
+                                   DateTimeFormatter.ofPattern("yyyy_MM_dd"));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.carpa.contabilidade.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipe em memória com capacidade limitada entre a thread que recebe um upload (escrita)
+ * e a thread que processa o conteúdo (leitura).
+ *
+ * Quando o buffer está cheio a escrita espera a leitura, então a memória usada não passa
+ * da capacidade. Diferente de PipedInputStream, a escrita pode encerrar a leitura com erro
+ * (upload interrompido) e, se a leitura for fechada antes do fim (erro no conteúdo), os
+ * bytes seguintes são descartados sem bloquear quem escreve.
+ *
+ * A leitura ocupa um worker (com conexão e a linha do documento bloqueada) no ritmo do
+ * cliente. Com vazão mínima, se depois da carência a média de bytes recebidos por segundo
+ * ficar abaixo dela, a leitura é abandonada: termina com UploadLentoException e os bytes
+ * seguintes são descartados, liberando o worker enquanto o upload continua.
+ */
+class PipeLimitado {
+
+    private static final int TAMANHO_BLOCO = 16 * 1024;
+    private static final byte[] FIM = new byte[0];
+
+    private final BlockingQueue<byte[]> blocos;
+    private final Entrada entrada = new Entrada();
+    private final Saida saida = new Saida();
+
+    private final long vazaoMinimaBytesPorSegundo;
+    private final long carenciaNanos;
+    private final long inicio = System.nanoTime();
+
+    private volatile IOException erro;
+    private volatile boolean leituraFechada;
+    private volatile boolean abandonado;
+
+    /**
+     * @param capacidadeBytes Quantidade máxima de bytes aguardando leitura
+     */
+    PipeLimitado(int capacidadeBytes) {
+        this(capacidadeBytes, 0, Duration.ZERO);
+    }
+
+    /**
+     * @param capacidadeBytes Quantidade máxima de bytes aguardando leitura
+     * @param vazaoMinimaBytesPorSegundo Média mínima de bytes recebidos por segundo (0 = sem limite)
+     * @param carencia Tempo desde a criação do pipe antes de a vazão ser verificada
+     */
+    PipeLimitado(int capacidadeBytes, long vazaoMinimaBytesPorSegundo, Duration carencia) {
+        this.blocos = new ArrayBlockingQueue<>(Math.max(1, capacidadeBytes / TAMANHO_BLOCO));
+        this.vazaoMinimaBytesPorSegundo = vazaoMinimaBytesPorSegundo;
+        this.carenciaNanos = carencia.toNanos();
+    }
+
+    /**
+     * Lado de leitura, usado pela thread de processamento.
+     */
+    InputStream entrada() {
+        return entrada;
+    }
+
+    /**
+     * Lado de escrita, usado pela thread que recebe o upload.
+     */
+    OutputStream saida() {
+        return saida;
+    }
+
+    /**
+     * Fecha o lado de leitura: os bytes pendentes e os seguintes são descartados.
+     */
+    void fecharLeitura() {
+        entrada.close();
+    }
+
+    /**
+     * @return true se a leitura foi abandonada por vazão abaixo da mínima
+     */
+    boolean abandonado() {
+        return abandonado;
+    }
+
+    /**
+     * Sinaliza o fim do conteúdo: a leitura termina normalmente após os bytes pendentes.
+     */
+    void fechar() throws IOException {
+        enfileirar(FIM);
+    }
+
+    /**
+     * Encerra a leitura com erro, descartando os bytes pendentes.
+     */
+    void falhar(IOException causa) {
+        erro = causa;
+        blocos.clear();
+        blocos.offer(FIM);
+    }
+
+    private void enfileirar(byte[] bloco) throws IOException {
+        try {
+            while (!leituraFechada && !blocos.offer(bloco, 100, TimeUnit.MILLISECONDS)) {
+                // Aguarda espaço no buffer ou o fechamento da leitura
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Escrita no pipe interrompida");
+        }
+    }
+
+    private class Saida extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int inicio = off; inicio < off + len && !leituraFechada; inicio += TAMANHO_BLOCO) {
+                enfileirar(Arrays.copyOfRange(b, inicio, Math.min(inicio + TAMANHO_BLOCO, off + len)));
+            }
+        }
+    }
+
+    private class Entrada extends InputStream {
+
+        private byte[] atual;
+        private int posicao;
+        private long recebidos;
+
+        @Override
+        public int read() throws IOException {
+            byte[] um = new byte[1];
+            return read(um, 0, 1) == -1 ? -1 : um[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (atual == null || posicao == atual.length) {
+                if (atual != FIM) {
+                    atual = proximoBloco();
+                    posicao = 0;
+                }
+                if (atual == FIM) {
+                    if (erro != null) {
+                        throw new IOException("Upload interrompido: " + erro.getMessage(), erro);
+                    }
+                    return -1;
+                }
+            }
+
+            int lidos = Math.min(len, atual.length - posicao);
+            System.arraycopy(atual, posicao, b, off, lidos);
+            posicao += lidos;
+            return lidos;
+        }
+
+        @Override
+        public void close() {
+            leituraFechada = true;
+            blocos.clear();
+        }
+
+        /**
+         * Aguarda o próximo bloco, verificando a vazão enquanto espera e a cada bloco recebido.
+         */
+        private byte[] proximoBloco() throws IOException {
+            try {
+                while (true) {
+                    byte[] bloco = vazaoMinimaBytesPorSegundo > 0
+                        ? blocos.poll(100, TimeUnit.MILLISECONDS)
+                        : blocos.take();
+                    if (bloco == FIM) {
+                        return bloco;
+                    }
+                    if (bloco != null) {
+                        recebidos += bloco.length;
+                    }
+                    verificarVazao();
+                    if (bloco != null) {
+                        return bloco;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Leitura do pipe interrompida");
+            }
+        }
+
+        private void verificarVazao() throws UploadLentoException {
+            if (vazaoMinimaBytesPorSegundo <= 0) {
+                return;
+            }
+            long decorrido = System.nanoTime() - inicio;
+            if (decorrido < carenciaNanos) {
+                return;
+            }
+            double segundos = decorrido / 1e9;
+            if (recebidos < vazaoMinimaBytesPorSegundo * segundos) {
+                abandonado = true;
+                close();
+                throw new UploadLentoException(String.format(
+                    "Upload lento: %d bytes em %.0fs (mínimo de %d bytes/s)",
+                    recebidos, segundos, vazaoMinimaBytesPorSegundo));
+            }
+        }
+    }
+
+    /**
+     * Leitura abandonada porque o conteúdo chegou abaixo da vazão mínima.
+     */
+    static class UploadLentoException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        UploadLentoException(String mensagem) {
+            super(mensagem);
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.repository.DocumentoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service que processa documentos em segundo plano a partir de uma fila persistente
+ * na própria tabela documentos.
+ *
+ * Cada nó reserva documentos com SELECT ... FOR UPDATE SKIP LOCKED, marcando-os como
+ * PROCESSANDO com um lease. Durante a geração do relatório a linha do documento fica
+ * bloqueada, o que impede outro nó de reprocessá-la; se o nó cair, o lease expira e a
+ * tentativa conta como falha. Falhas transitórias são repetidas com backoff exponencial
+ * até o limite de tentativas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProcessamentoDocumentoService {
+
+    private final DocumentoRepository documentoRepository;
+    private final RelatorioService relatorioService;
+    private final ParticionamentoItensService particionamentoItensService;
+    private final PlatformTransactionManager transactionManager;
+
+    // 0 = um worker por núcleo de CPU, até a metade do pool de conexões
+    @Value("${app.processamento.workers:0}")
+    private int workers;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int conexoesPool;
+
+    @Value("${app.processamento.lease-minutos:10}")
+    private long leaseMinutos;
+
+    @Value("${app.processamento.max-tentativas:5}")
+    private int maxTentativas;
+
+    @Value("${app.processamento.backoff-inicial-segundos:30}")
+    private long backoffInicialSegundos;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService executor;
+    private Semaphore vagas;
+    private String identificacaoNo;
+
+    /**
+     * Cria o pool de workers com o tamanho configurado.
+     */
+    @PostConstruct
+    public void init() {
+        // Sempre uma transação própria: enfileirar() é chamado no afterCommit do upload,
+        // quando a transação do upload ainda está vinculada à thread
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // Cada worker ocupa uma conexão do pool enquanto gera o relatório; metade do pool fica
+        // para as requisições e a varredura, senão um lote grande esgota as conexões
+        int maxWorkersPool = Math.max(1, conexoesPool / 2);
+        if (workers <= 0) {
+            workers = Math.min(Runtime.getRuntime().availableProcessors(), maxWorkersPool);
+        } else if (workers > maxWorkersPool) {
+            log.warn("app.processamento.workers={} com pool de {} conexões: as requisições podem aguardar " +
+                     "conexões livres enquanto os workers processam", workers, conexoesPool);
+        }
+
+        AtomicInteger contador = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers,
+            r -> new Thread(r, "processamento-documento-" + contador.incrementAndGet()));
+        vagas = new Semaphore(workers);
+        identificacaoNo = nomeDoHost() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        log.info("Pool de processamento iniciado: {} workers, nó {}", workers, identificacaoNo);
+    }
+
+    /**
+     * Aguarda os documentos em andamento ao encerrar a aplicação.
+     */
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Solicita processamento imediato (chamado após o commit de um upload).
+     * O documento já está PENDENTE no banco; se não houver worker livre,
+     * ele será reservado em uma próxima varredura.
+     */
+    public void enfileirar(Long documentoId) {
+        log.debug("Documento {} enviado para a fila", documentoId);
+        varrerPendentes();
+    }
+
+    /**
+     * Marca um documento ainda não salvo como reservado por este nó (PROCESSANDO com lease),
+     * para que seja processado durante o upload sem ser reservado pela varredura.
+     */
+    public void reservarParaEsteNo(Documento documento) {
+        documento.setStatus(Documento.StatusProcessamento.PROCESSANDO);
+        documento.setLeaseExpiraEm(LocalDateTime.now().plusMinutes(leaseMinutos));
+        documento.setProcessadoPor(identificacaoNo);
+        documento.setTentativas(1);
+    }
+
+    /**
+     * Ocupa um worker livre para processar um upload em pipeline.
+     *
+     * @return false se todos os workers estiverem ocupados
+     */
+    public boolean ocuparWorker() {
+        return !executor.isShutdown() && vagas.tryAcquire();
+    }
+
+    /**
+     * Libera um worker ocupado com ocuparWorker() que não chegou a ser usado.
+     */
+    public void liberarWorker() {
+        vagas.release();
+    }
+
+    /**
+     * Processa um documento reservado por este nó lendo o conteúdo enquanto ele é recebido,
+     * no worker ocupado previamente com ocuparWorker(). O conteúdo é sempre fechado ao final,
+     * para não bloquear quem escreve nele. Se a leitura for abandonada (upload lento), nenhuma
+     * falha é registrada: o documento continua reservado até devolverParaFila().
+     *
+     * @param documentoId ID do documento
+     * @param pipe Pipe por onde chega o conteúdo do arquivo (CSV)
+     * @return Future concluído ao fim do processamento (com sucesso ou falha registrada)
+     */
+    Future<?> processarConteudo(Long documentoId, PipeLimitado pipe) {
+        return executor.submit(() -> {
+            try {
+                processar(documentoId, pipe);
+            } finally {
+                pipe.fecharLeitura();
+                vagas.release();
+            }
+        });
+    }
+
+    /**
+     * Devolve para a fila um documento reservado por este nó que não foi processado durante o
+     * upload (leitura abandonada), depois que o arquivo foi gravado por completo.
+     */
+    public void devolverParaFila(Long documentoId) {
+        transactionTemplate.executeWithoutResult(status ->
+            documentoRepository.devolverParaFila(List.of(documentoId), Documento.StatusProcessamento.PENDENTE,
+                                                  identificacaoNo));
+        enfileirar(documentoId);
+    }
+
+    /**
+     * Reserva documentos disponíveis, limitado aos workers livres deste nó.
+     * A primeira execução ocorre logo após a inicialização.
+     */
+    @Scheduled(fixedDelayString = "${app.processamento.intervalo-varredura-ms:5000}")
+    public synchronized void varrerPendentes() {
+        int livres = vagas.availablePermits();
+        if (livres == 0 || executor.isShutdown()) {
+            return;
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime leaseExpiraEm = agora.plusMinutes(leaseMinutos);
+
+        List<Long> reservados = transactionTemplate.execute(status -> {
+            liberarLeasesExpirados(agora);
+            List<Long> ids = documentoRepository.bloquearDisponiveisParaProcessamento(agora, livres);
+            if (!ids.isEmpty()) {
+                documentoRepository.reservar(ids, Documento.StatusProcessamento.PROCESSANDO,
+                    leaseExpiraEm, identificacaoNo);
+            }
+            return ids;
+        });
+
+        if (reservados == null) {
+            return;
+        }
+
+        // Os workers livres podem ter sido ocupados por uploads em pipeline desde a contagem:
+        // sem esperar por vaga, os documentos que sobrarem voltam para a fila
+        List<Long> semWorker = new ArrayList<>();
+        for (Long documentoId : reservados) {
+            if (!vagas.tryAcquire()) {
+                semWorker.add(documentoId);
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        processar(documentoId, null);
+                    } finally {
+                        vagas.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                vagas.release();
+                semWorker.add(documentoId);
+            }
+        }
+
+        if (!semWorker.isEmpty()) {
+            log.debug("{} documento(s) devolvido(s) à fila sem worker livre", semWorker.size());
+            transactionTemplate.executeWithoutResult(status ->
+                documentoRepository.devolverParaFila(semWorker, Documento.StatusProcessamento.PENDENTE,
+                                                      identificacaoNo));
+        }
+    }
+
+    /**
+     * Processa um documento reservado por este nó: gera o relatório e marca PROCESSADO,
+     * ou trata a falha (nova tentativa com backoff ou ERRO). Executado pelos workers.
+     *
+     * @param pipe Conteúdo recebido no upload em pipeline, ou null para ler o arquivo do storage
+     */
+    void processar(Long documentoId, PipeLimitado pipe) {
+        log.info("Iniciando processamento do documento: {}", documentoId);
+
+        try {
+            garantirParticao(documentoId);
+
+            // Gerar relatório e marcar como PROCESSADO na mesma transação,
+            // mantendo a linha do documento bloqueada até o fim
+            Boolean processado = transactionTemplate.execute(status -> {
+                Documento documento = documentoRepository.buscarComBloqueio(documentoId).orElse(null);
+                if (!isReservadoPorEsteNo(documento)) {
+                    return false;
+                }
+                try {
+                    if (pipe != null) {
+                        relatorioService.gerarRelatorio(documento, pipe.entrada());
+                    } else {
+                        relatorioService.gerarRelatorio(documento);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+
+                documento.setStatus(Documento.StatusProcessamento.PROCESSADO);
+                documento.setDataProcessamento(LocalDateTime.now());
+                documento.setMensagemErro(null);
+                liberarReserva(documento);
+                documentoRepository.save(documento);
+                return true;
+            });
+
+            if (Boolean.TRUE.equals(processado)) {
+                log.info("Documento processado com sucesso: {}", documentoId);
+            } else {
+                log.debug("Documento {} não está mais reservado por este nó; ignorado", documentoId);
+            }
+
+        } catch (Exception e) {
+            if (pipe != null && pipe.abandonado()) {
+                // Não é falha do documento: ele será processado do storage quando o upload terminar
+                log.info("Processamento do documento {} durante o upload abandonado: {}", documentoId, e.getMessage());
+                return;
+            }
+            log.error("Erro ao processar documento: {}", documentoId, e);
+            registrarFalha(documentoId, e);
+        }
+    }
+
+    /**
+     * Registra a falha: erros de conteúdo do arquivo (IllegalArgumentException) vão direto
+     * para ERRO; demais erros voltam para PENDENTE com backoff até o limite de tentativas.
+     */
+    private void registrarFalha(Long documentoId, Exception erro) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Documento documento = documentoRepository.buscarComBloqueio(documentoId).orElse(null);
+            if (!isReservadoPorEsteNo(documento)) {
+                return;
+            }
+
+            encerrarTentativa(documento, limitarMensagem(erro.getMessage()), isErroDeConteudo(erro),
+                              LocalDateTime.now());
+            documentoRepository.save(documento);
+        });
+    }
+
+    /**
+     * Trata documentos cujo lease expirou como uma tentativa que falhou: voltam para PENDENTE
+     * com backoff, ou vão para ERRO se o limite de tentativas foi atingido. Assim um documento
+     * que derruba o worker não é reprocessado indefinidamente.
+     * Deve ser chamado dentro da transação da varredura.
+     */
+    private void liberarLeasesExpirados(LocalDateTime agora) {
+        List<Documento> expirados = documentoRepository.bloquearComLeaseExpirado(agora, 100);
+        for (Documento documento : expirados) {
+            log.warn("Lease do documento {} expirou (nó {})", documento.getId(), documento.getProcessadoPor());
+            encerrarTentativa(documento, "Processamento interrompido: lease expirado", false, agora);
+        }
+        if (!expirados.isEmpty()) {
+            documentoRepository.saveAll(expirados);
+        }
+    }
+
+    /**
+     * Encerra a tentativa atual do documento: ERRO se definitivo ou se o limite de tentativas
+     * foi atingido; senão PENDENTE com backoff exponencial.
+     */
+    private void encerrarTentativa(Documento documento, String mensagem, boolean definitivo, LocalDateTime agora) {
+        int tentativas = documento.getTentativas() != null ? documento.getTentativas() : 1;
+
+        documento.setMensagemErro(mensagem);
+        liberarReserva(documento);
+
+        if (definitivo || tentativas >= maxTentativas) {
+            documento.setStatus(Documento.StatusProcessamento.ERRO);
+        } else {
+            Duration espera = Duration.ofSeconds(backoffInicialSegundos << Math.min(tentativas - 1, 20));
+            documento.setStatus(Documento.StatusProcessamento.PENDENTE);
+            documento.setProximaTentativa(agora.plus(espera));
+            log.info("Documento {} será reprocessado em {}s (tentativa {} de {})",
+                     documento.getId(), espera.getSeconds(), tentativas, maxTentativas);
+        }
+    }
+
+    /**
+     * Verifica se a falha foi causada por conteúdo inválido. A IllegalArgumentException pode
+     * chegar embrulhada (tradução de exceções do Spring, IllegalStateException do processamento).
+     */
+    private static boolean isErroDeConteudo(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof IllegalArgumentException) {
+                return true;
+            }
+            if (causa.getCause() == causa) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cria a partição do mês do documento antes da transação do relatório. O CREATE TABLE ...
+     * PARTITION OF copia a chave estrangeira para relatorios e precisa de um lock que a
+     * transação do relatório, depois de inserir o relatório, impediria: o worker esperaria
+     * por si mesmo.
+     */
+    private void garantirParticao(Long documentoId) {
+        documentoRepository.findById(documentoId).ifPresent(documento ->
+            particionamentoItensService.garantirParticao(
+                LocalDate.of(documento.getAnoReferencia(), documento.getMesReferencia(), 1)));
+    }
+
+    private boolean isReservadoPorEsteNo(Documento documento) {
+        return documento != null
+            && documento.getStatus() == Documento.StatusProcessamento.PROCESSANDO
+            && identificacaoNo.equals(documento.getProcessadoPor());
+    }
+
+    private static void liberarReserva(Documento documento) {
+        documento.setLeaseExpiraEm(null);
+        documento.setProcessadoPor(null);
+    }
+
+    /**
+     * Limita a mensagem de erro ao tamanho da coluna mensagemErro.
+     */
+    private static String limitarMensagem(String mensagem) {
+        if (mensagem == null) {
+            return "Erro desconhecido";
+        }
+        return mensagem.length() > 1000 ? mensagem.substring(0, 1000) : mensagem;
+    }
+
+    private static String nomeDoHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "no";
+        }
+    }
+}
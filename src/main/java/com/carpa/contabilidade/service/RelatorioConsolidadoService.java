@@ -0,0 +1,152 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.config.CacheConfig;
+import com.carpa.contabilidade.model.AnalisesRelatorio;
+import com.carpa.contabilidade.model.RelatorioConsolidado;
+import com.carpa.contabilidade.model.RelatorioConsolidado.Periodo;
+import com.carpa.contabilidade.repository.ItemRelatorioRepository.TotalAgrupado;
+import com.carpa.contabilidade.repository.RelatorioRepository;
+import com.carpa.contabilidade.repository.RelatorioRepository.TotalMes;
+import com.carpa.contabilidade.repository.ResumoMensalCategoriaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service que consolida os relatórios mensais de um usuário em períodos maiores:
+ * ano até a data, últimos 12 meses e trimestre.
+ *
+ * Todos os totais são calculados pelo banco com GROUP BY (duas consultas por período),
+ * sem carregar entidades: a série mensal vem das métricas gravadas em relatorios e os
+ * totais por categoria vêm do resumo mensal, sem percorrer itens_relatorio.
+ * O resultado fica em cache até a geração ou exclusão de um relatório.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RelatorioConsolidadoService {
+
+    private final RelatorioRepository relatorioRepository;
+    private final ResumoMensalCategoriaRepository resumoMensalCategoriaRepository;
+
+    /**
+     * Gera a visão consolidada de um período.
+     *
+     * ANO_ATUAL: de janeiro até o mês de referência do ano informado.
+     * ULTIMOS_12_MESES: os 12 meses terminados no mês de referência.
+     * TRIMESTRE: os 3 meses do trimestre informado no ano.
+     *
+     * @param usuarioId ID do usuário
+     * @param periodo Tipo de período
+     * @param ano Ano de referência (padrão: ano atual)
+     * @param mes Mês de referência para ANO_ATUAL e ULTIMOS_12_MESES (padrão: mês atual, ou 12 em anos anteriores)
+     * @param trimestre Trimestre (1 a 4), obrigatório para TRIMESTRE
+     * @return Visão consolidada
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(CacheConfig.RELATORIOS_CONSOLIDADOS)
+    public RelatorioConsolidado consolidar(Long usuarioId, Periodo periodo, Integer ano, Integer mes,
+                                           Integer trimestre) {
+        LocalDate hoje = LocalDate.now();
+        int anoReferencia = ano != null ? ano : hoje.getYear();
+        int mesReferencia = mes != null ? mes : (anoReferencia == hoje.getYear() ? hoje.getMonthValue() : 12);
+
+        if (mesReferencia < 1 || mesReferencia > 12) {
+            throw new IllegalArgumentException("Mês deve ser entre 1 e 12");
+        }
+
+        int fim = indiceMes(anoReferencia, mesReferencia);
+        int inicio;
+        switch (periodo) {
+            case ANO_ATUAL -> inicio = indiceMes(anoReferencia, 1);
+            case ULTIMOS_12_MESES -> inicio = fim - 11;
+            case TRIMESTRE -> {
+                if (trimestre == null || trimestre < 1 || trimestre > 4) {
+                    throw new IllegalArgumentException("Trimestre deve ser entre 1 e 4");
+                }
+                inicio = indiceMes(anoReferencia, (trimestre - 1) * 3 + 1);
+                fim = inicio + 2;
+            }
+            default -> throw new IllegalArgumentException("Período não suportado: " + periodo);
+        }
+
+        log.debug("Consolidando período {} do usuário {}: meses {} a {}", periodo, usuarioId, inicio, fim);
+
+        List<RelatorioConsolidado.TotalMensal> serie = montarSerieMensal(
+            relatorioRepository.totalizarPorMes(usuarioId, inicio, fim), inicio, fim);
+
+        List<AnalisesRelatorio.TotalCategoria> porCategoria = new ArrayList<>();
+        for (TotalAgrupado total : resumoMensalCategoriaRepository.totalizarPorCategoria(usuarioId, inicio, fim)) {
+            porCategoria.add(new AnalisesRelatorio.TotalCategoria(
+                total.getChave(), total.getTipo(), total.getTotal(), total.getQuantidade()));
+        }
+        porCategoria.sort(Comparator.comparing(AnalisesRelatorio.TotalCategoria::total).reversed());
+
+        return new RelatorioConsolidado(periodo, inicio / 12, inicio % 12 + 1, fim / 12, fim % 12 + 1,
+            calcularMetricas(serie), serie, porCategoria);
+    }
+
+    /**
+     * Monta a série com todos os meses do intervalo, com zero nos meses sem relatório.
+     */
+    private static List<RelatorioConsolidado.TotalMensal> montarSerieMensal(List<TotalMes> totais,
+                                                                           int inicio, int fim) {
+        Map<Integer, TotalMes> porMes = new HashMap<>();
+        for (TotalMes total : totais) {
+            porMes.put(indiceMes(total.getAno(), total.getMes()), total);
+        }
+
+        List<RelatorioConsolidado.TotalMensal> serie = new ArrayList<>(fim - inicio + 1);
+        for (int indice = inicio; indice <= fim; indice++) {
+            TotalMes total = porMes.get(indice);
+            BigDecimal receitas = total != null ? total.getReceitas() : BigDecimal.ZERO;
+            BigDecimal despesas = total != null ? total.getDespesas() : BigDecimal.ZERO;
+            long transacoes = total != null ? total.getTotalTransacoes() : 0;
+            serie.add(new RelatorioConsolidado.TotalMensal(indice / 12, indice % 12 + 1,
+                receitas, despesas, receitas.subtract(despesas), transacoes));
+        }
+        return serie;
+    }
+
+    private static RelatorioConsolidado.Metricas calcularMetricas(List<RelatorioConsolidado.TotalMensal> serie) {
+        BigDecimal receitaTotal = BigDecimal.ZERO;
+        BigDecimal despesaTotal = BigDecimal.ZERO;
+        long totalTransacoes = 0;
+
+        for (RelatorioConsolidado.TotalMensal mes : serie) {
+            receitaTotal = receitaTotal.add(mes.receitas());
+            despesaTotal = despesaTotal.add(mes.despesas());
+            totalTransacoes += mes.totalTransacoes();
+        }
+
+        BigDecimal saldo = receitaTotal.subtract(despesaTotal);
+
+        // Calcular margem de lucro (%)
+        BigDecimal margemLucro = BigDecimal.ZERO;
+        if (receitaTotal.compareTo(BigDecimal.ZERO) > 0) {
+            margemLucro = saldo
+                .multiply(BigDecimal.valueOf(100))
+                .divide(receitaTotal, 2, RoundingMode.HALF_UP);
+        }
+
+        return new RelatorioConsolidado.Metricas(receitaTotal, despesaTotal, saldo, margemLucro, totalTransacoes);
+    }
+
+    /**
+     * Número sequencial do mês (ano * 12 + mês - 1), usado para comparar e percorrer intervalos.
+     */
+    private static int indiceMes(int ano, int mes) {
+        return ano * 12 + mes - 1;
+    }
+}
@@ -1,20 +1,41 @@
 package com.carpa.contabilidade.service;
 
+import com.carpa.contabilidade.config.CacheConfig;
+import com.carpa.contabilidade.model.AnalisesRelatorio;
+import com.carpa.contabilidade.model.DashboardRelatorio;
 import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.model.FiltroItensRelatorio;
 import com.carpa.contabilidade.model.ItemRelatorio;
+import com.carpa.contabilidade.model.PaginaItensRelatorio;
 import com.carpa.contabilidade.model.Relatorio;
+import com.carpa.contabilidade.model.RelatorioResumoDTO;
 import com.carpa.contabilidade.model.Usuario;
+import com.carpa.contabilidade.repository.ItemRelatorioCopyRepository;
+import com.carpa.contabilidade.repository.ItemRelatorioCopyRepository.ProdutorItens;
+import com.carpa.contabilidade.repository.ItemRelatorioJdbcRepository;
+import com.carpa.contabilidade.repository.ItemRelatorioRepository;
+import com.carpa.contabilidade.repository.ItemRelatorioSpecifications;
 import com.carpa.contabilidade.repository.RelatorioRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service para gerenciar relatórios mensais gerados a partir dos documentos.
@@ -25,31 +46,63 @@ import java.util.List;
 public class RelatorioService {
 
     private final RelatorioRepository relatorioRepository;
+    private final ItemRelatorioRepository itemRelatorioRepository;
     private final CsvProcessadorService csvProcessadorService;
     private final FileStorageService fileStorageService;
+    private final ItemRelatorioJdbcRepository itemRelatorioJdbcRepository;
+    private final ItemRelatorioCopyRepository itemRelatorioCopyRepository;
+    private final AnaliseRelatorioService analiseRelatorioService;
+    private final ResumoMensalService resumoMensalService;
+    private final CacheManager cacheManager;
+
+    @Value("${app.relatorio.tamanho-lote:1000}")
+    private int tamanhoLote;
+
+    @Value("${app.relatorio.modo-ingestao:AUTO}")
+    private ModoIngestao modoIngestao;
+
+    @Value("${app.relatorio.limite-copy-mb:5}")
+    private long limiteCopyMb;
 
     /**
-     * Gera um relatório a partir de um documento processado.
+     * Gera um relatório a partir de um documento processado. A partição do mês de referência
+     * deve existir (ParticionamentoItensService.garantirParticao, chamado antes da transação).
      *
      * @param documento Documento de origem
      * @return Relatório gerado
      * @throws IOException Se houver erro ao ler o arquivo
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.RELATORIOS_CONSOLIDADOS, allEntries = true)
     public Relatorio gerarRelatorio(Documento documento) throws IOException {
         log.info("Gerando relatório para documento: {}", documento.getId());
 
-        // Obter caminho completo do arquivo
-        Path caminhoArquivo = fileStorageService.obterCaminhoCompleto(documento.getCaminhoStorage());
+        // Ler o arquivo em streaming do storage (disco local ou S3)
+        return gerar(documento, consumidor -> {
+            try (InputStream conteudo = fileStorageService.abrirArquivo(documento.getCaminhoStorage())) {
+                csvProcessadorService.processarArquivo(conteudo, documento.getTipoArquivo(), consumidor);
+            }
+        });
+    }
 
-        // Processar arquivo e obter lista de itens
-        List<ItemRelatorio> itens = csvProcessadorService.processarArquivo(
-            caminhoArquivo, documento.getTipoArquivo());
+    /**
+     * Gera o relatório de um documento CSV lendo o conteúdo de um stream, enquanto o
+     * arquivo ainda está sendo recebido e gravado (upload em pipeline).
+     *
+     * @param documento Documento de origem (CSV)
+     * @param conteudo Conteúdo do arquivo, fechado ao final da leitura
+     * @return Relatório gerado
+     * @throws IOException Se houver erro ao ler o stream (inclusive falha no upload)
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.RELATORIOS_CONSOLIDADOS, allEntries = true)
+    public Relatorio gerarRelatorio(Documento documento, InputStream conteudo) throws IOException {
+        log.info("Gerando relatório para documento {} durante o upload", documento.getId());
 
-        if (itens.isEmpty()) {
-            throw new IllegalArgumentException("Arquivo não contém dados válidos");
-        }
+        return gerar(documento, consumidor -> csvProcessadorService.processarCsv(conteudo, consumidor));
+    }
 
+    private Relatorio gerar(Documento documento, ProdutorItens leitura) throws IOException {
         // Criar relatório
         Relatorio relatorio = new Relatorio();
         relatorio.setDocumento(documento);
@@ -57,17 +110,38 @@ public class RelatorioService {
         relatorio.setMesReferencia(documento.getMesReferencia());
         relatorio.setAnoReferencia(documento.getAnoReferencia());
 
-        // Adicionar itens ao relatório
-        for (ItemRelatorio item : itens) {
-            relatorio.addItem(item);
+        // Salvar relatório primeiro para obter o ID usado pelos itens
+        relatorio = relatorioRepository.save(relatorio);
+        Long relatorioId = relatorio.getId();
+
+        // Itens são gravados na partição do mês de referência, criada antes desta transação
+        LocalDate periodo = relatorio.getPeriodoReferencia();
+
+        // Processar arquivo em streaming: métricas e análises calculadas na mesma passada
+        // e itens gravados em lotes JDBC ou via COPY, sem manter o arquivo inteiro em memória
+        AgregadorRelatorio agregador = new AgregadorRelatorio();
+
+        long totalItens = usarCopy(documento)
+            ? gravarViaCopy(relatorioId, periodo, leitura, agregador)
+            : gravarEmLotes(relatorioId, periodo, leitura, agregador);
+
+        if (totalItens == 0) {
+            throw new IllegalArgumentException("Arquivo não contém dados válidos");
         }
 
-        // Calcular métricas
-        calcularMetricas(relatorio);
+        // Atualizar métricas do relatório e gravar as análises do dashboard,
+        // para que a visualização não precise percorrer os itens
+        agregador.aplicarMetricas(relatorio);
+        relatorio.setAnalises(agregador.gerarAnalises());
 
-        // Salvar relatório (cascade salva os itens)
+        log.debug("Métricas calculadas - Receita: {}, Despesa: {}, Saldo: {}, Margem: {}%",
+                  relatorio.getReceitaTotal(), relatorio.getDespesaTotal(),
+                  relatorio.getSaldo(), relatorio.getMargemLucro());
         relatorio = relatorioRepository.save(relatorio);
 
+        // Somar ao resumo mensal por categoria (mesma transação do relatório)
+        resumoMensalService.registrarRelatorio(relatorio);
+
         log.info("Relatório gerado com sucesso: ID={}, Total Transações={}",
                  relatorio.getId(), relatorio.getTotalTransacoes());
 
@@ -75,53 +149,70 @@ public class RelatorioService {
     }
 
     /**
-     * Calcula todas as métricas do relatório.
+     * Define se o documento deve ser gravado via COPY, conforme o modo configurado.
      */
-    private void calcularMetricas(Relatorio relatorio) {
-        BigDecimal receitaTotal = BigDecimal.ZERO;
-        BigDecimal despesaTotal = BigDecimal.ZERO;
-        int totalReceitas = 0;
-        int totalDespesas = 0;
+    private boolean usarCopy(Documento documento) {
+        return switch (modoIngestao) {
+            case COPY -> true;
+            case JDBC -> false;
+            case AUTO -> documento.getTamanho() != null
+                && documento.getTamanho() >= limiteCopyMb * 1024 * 1024;
+        };
+    }
 
-        for (ItemRelatorio item : relatorio.getItens()) {
-            if (item.getTipo() == ItemRelatorio.TipoTransacao.RECEITA) {
-                receitaTotal = receitaTotal.add(item.getValor());
-                totalReceitas++;
-            } else {
-                despesaTotal = despesaTotal.add(item.getValor());
-                totalDespesas++;
+    /**
+     * Lê o arquivo e grava os itens em lotes JDBC.
+     */
+    private long gravarEmLotes(Long relatorioId, LocalDate periodo, ProdutorItens leitura,
+                               AgregadorRelatorio agregador) throws IOException {
+        List<ItemRelatorio> lote = new ArrayList<>(tamanhoLote);
+        AtomicLong totalItens = new AtomicLong();
+
+        leitura.produzir(item -> {
+            agregador.adicionar(item);
+            totalItens.incrementAndGet();
+            lote.add(item);
+            if (lote.size() >= tamanhoLote) {
+                itemRelatorioJdbcRepository.inserirEmLote(relatorioId, periodo, lote);
+                lote.clear();
             }
+        });
+
+        if (!lote.isEmpty()) {
+            itemRelatorioJdbcRepository.inserirEmLote(relatorioId, periodo, lote);
         }
 
-        // Calcular saldo
-        BigDecimal saldo = receitaTotal.subtract(despesaTotal);
+        return totalItens.get();
+    }
 
-        // Calcular margem de lucro (%)
-        BigDecimal margemLucro = BigDecimal.ZERO;
-        if (receitaTotal.compareTo(BigDecimal.ZERO) > 0) {
-            margemLucro = saldo
-                .multiply(BigDecimal.valueOf(100))
-                .divide(receitaTotal, 2, RoundingMode.HALF_UP);
-        }
+    /**
+     * Lê o arquivo em outra thread e grava os itens via COPY enquanto são lidos.
+     */
+    private long gravarViaCopy(Long relatorioId, LocalDate periodo, ProdutorItens leitura,
+                               AgregadorRelatorio agregador) throws IOException {
+        log.info("Gravando itens do relatório {} via COPY", relatorioId);
 
-        // Atualizar relatório
-        relatorio.setReceitaTotal(receitaTotal);
-        relatorio.setDespesaTotal(despesaTotal);
-        relatorio.setSaldo(saldo);
-        relatorio.setMargemLucro(margemLucro);
-        relatorio.setTotalTransacoes(relatorio.getItens().size());
-        relatorio.setTotalReceitas(totalReceitas);
-        relatorio.setTotalDespesas(totalDespesas);
+        return itemRelatorioCopyRepository.copiar(relatorioId, periodo, consumidor ->
+            leitura.produzir(item -> {
+                agregador.adicionar(item);
+                consumidor.accept(item);
+            }));
+    }
 
-        log.debug("Métricas calculadas - Receita: {}, Despesa: {}, Saldo: {}, Margem: {}%",
-                  receitaTotal, despesaTotal, saldo, margemLucro);
+    /**
+     * Modo de gravação dos itens: lotes JDBC, COPY, ou automático pelo tamanho do arquivo.
+     */
+    public enum ModoIngestao {
+        JDBC,
+        COPY,
+        AUTO
     }
 
     /**
-     * Busca todos os relatórios de um usuário.
+     * Busca o resumo de todos os relatórios de um usuário.
      */
-    public List<Relatorio> listarRelatoriosDoUsuario(Usuario usuario) {
-        return relatorioRepository.findByUsuarioOrderByDataGeracaoDesc(usuario);
+    public List<RelatorioResumoDTO> listarRelatoriosDoUsuario(Usuario usuario) {
+        return relatorioRepository.listarResumos(usuario.getId(), Pageable.unpaged());
     }
 
     /**
@@ -132,18 +223,119 @@ public class RelatorioService {
             .orElseThrow(() -> new IllegalArgumentException("Relatório não encontrado"));
     }
 
+    /**
+     * Busca um relatório do usuário. Relatórios de outros usuários são tratados como
+     * inexistentes, com a verificação feita na própria consulta.
+     */
+    public Relatorio buscarDoUsuario(Long id, Long usuarioId) {
+        return relatorioRepository.findByIdAndUsuarioId(id, usuarioId)
+            .orElseThrow(() -> new IllegalArgumentException("Relatório não encontrado"));
+    }
+
+    /**
+     * Obtém as análises do dashboard de um relatório.
+     * Relatórios gerados antes das análises serem gravadas são calculados e atualizados aqui.
+     */
+    @Transactional
+    public AnalisesRelatorio obterAnalises(Relatorio relatorio) {
+        if (relatorio.getAnalises() == null) {
+            log.info("Calculando análises do relatório {}", relatorio.getId());
+            relatorio.setAnalises(analiseRelatorioService.calcular(relatorio));
+            relatorioRepository.save(relatorio);
+        }
+        return relatorio.getAnalises();
+    }
+
+    /**
+     * Monta os dados do dashboard de um relatório do usuário, mantidos em cache por
+     * (ID do relatório, ID do usuário). Como o usuário faz parte da chave, a verificação de
+     * acesso vem da consulta e nunca é pulada por um acerto no cache.
+     *
+     * @param id ID do relatório
+     * @param usuarioId ID do usuário autenticado
+     * @return Métricas e análises do relatório
+     * @throws IllegalArgumentException Se o relatório não existir ou for de outro usuário
+     */
+    @Transactional
+    @Cacheable(CacheConfig.DASHBOARD_RELATORIO)
+    public DashboardRelatorio buscarDashboard(Long id, Long usuarioId) {
+        Relatorio relatorio = buscarDoUsuario(id, usuarioId);
+        AnalisesRelatorio analises = obterAnalises(relatorio);
+        return new DashboardRelatorio(RelatorioResumoDTO.de(relatorio), analises);
+    }
+
+    /**
+     * Exclui o relatório gerado a partir de um documento, se houver, e desconta seus
+     * totais do resumo mensal. Os itens são excluídos com um único DELETE, restrito à
+     * partição do mês de referência.
+     *
+     * @param documento Documento de origem
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.RELATORIOS_CONSOLIDADOS, allEntries = true)
+    public void excluirRelatorioDoDocumento(Documento documento) {
+        relatorioRepository.findByDocumento(documento).ifPresent(relatorio -> {
+            resumoMensalService.removerRelatorio(relatorio.getAnalises() != null
+                ? relatorio : comAnalises(relatorio));
+
+            int itens = itemRelatorioRepository.excluirPorRelatorio(
+                relatorio.getId(), relatorio.getPeriodoReferencia());
+            relatorioRepository.delete(relatorio);
+
+            Cache dashboards = cacheManager.getCache(CacheConfig.DASHBOARD_RELATORIO);
+            if (dashboards != null) {
+                // Mesma chave gerada pelo @Cacheable de buscarDashboard(id, usuarioId)
+                dashboards.evict(new SimpleKey(relatorio.getId(), relatorio.getUsuario().getId()));
+            }
+
+            log.info("Relatório {} excluído com {} itens", relatorio.getId(), itens);
+        });
+    }
+
+    private Relatorio comAnalises(Relatorio relatorio) {
+        relatorio.setAnalises(analiseRelatorioService.calcular(relatorio));
+        return relatorio;
+    }
+
+    /**
+     * Busca uma página de itens do relatório, filtrada no banco e ordenada por data e id.
+     * Usa paginação por cursor: o custo de cada página não depende da posição dela.
+     *
+     * @param relatorio Relatório
+     * @param filtro Filtros e cursor (data e id do último item da página anterior)
+     * @return Página de itens com o cursor da próxima página
+     */
+    @Transactional(readOnly = true)
+    public PaginaItensRelatorio buscarItens(Relatorio relatorio, FiltroItensRelatorio filtro) {
+        int tamanho = filtro.tamanhoEfetivo();
+
+        // Busca um item a mais para saber se existe próxima página
+        List<ItemRelatorio> itens = itemRelatorioRepository.findBy(
+            ItemRelatorioSpecifications.doRelatorio(relatorio.getId(), relatorio.getPeriodoReferencia(), filtro),
+            consulta -> consulta.sortBy(Sort.by("data", "id")).limit(tamanho + 1).all());
+
+        boolean temMais = itens.size() > tamanho;
+        if (!temMais) {
+            return new PaginaItensRelatorio(itens, false, null, null);
+        }
+
+        itens = itens.subList(0, tamanho);
+        ItemRelatorio ultimo = itens.get(tamanho - 1);
+        return new PaginaItensRelatorio(itens, true, ultimo.getData(), ultimo.getId());
+    }
+
     /**
      * Busca relatórios por período.
      */
-    public List<Relatorio> buscarPorPeriodo(Usuario usuario, Integer mes, Integer ano) {
-        return relatorioRepository.findByUsuarioAndMesReferenciaAndAnoReferencia(usuario, mes, ano);
+    public List<RelatorioResumoDTO> buscarPorPeriodo(Usuario usuario, Integer mes, Integer ano) {
+        return relatorioRepository.listarResumosPorPeriodo(usuario.getId(), mes, ano);
     }
 
     /**
      * Busca os últimos 5 relatórios do usuário.
      */
-    public List<Relatorio> buscarUltimosRelatorios(Usuario usuario) {
-        return relatorioRepository.findTop5ByUsuarioOrderByDataGeracaoDesc(usuario);
+    public List<RelatorioResumoDTO> buscarUltimosRelatorios(Usuario usuario) {
+        return relatorioRepository.listarResumos(usuario.getId(), PageRequest.of(0, 5));
     }
 
     /**
@@ -0,0 +1,51 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.AnalisesRelatorio;
+import com.carpa.contabilidade.model.Relatorio;
+import com.carpa.contabilidade.repository.ResumoMensalCategoriaJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Service que mantém o resumo mensal por usuário, categoria e tipo (tabela resumo_mensal_categoria).
+ *
+ * O resumo é atualizado na mesma transação que gera ou remove o relatório, usando os totais
+ * por categoria já calculados na geração; nenhuma atualização percorre itens_relatorio.
+ * Os relatórios anteriores ao resumo foram somados pela migração V6.
+ */
+@Service
+@RequiredArgsConstructor
+public class ResumoMensalService {
+
+    private final ResumoMensalCategoriaJdbcRepository resumoMensalCategoriaJdbcRepository;
+
+    /**
+     * Soma ao resumo os totais de um relatório recém-gerado.
+     *
+     * @param relatorio Relatório com as análises calculadas
+     */
+    public void registrarRelatorio(Relatorio relatorio) {
+        resumoMensalCategoriaJdbcRepository.somar(relatorio.getUsuario().getId(),
+            relatorio.getAnoReferencia(), relatorio.getMesReferencia(), totaisPorCategoria(relatorio));
+    }
+
+    /**
+     * Subtrai do resumo os totais de um relatório que será excluído.
+     *
+     * @param relatorio Relatório com as análises calculadas
+     */
+    public void removerRelatorio(Relatorio relatorio) {
+        resumoMensalCategoriaJdbcRepository.subtrair(relatorio.getUsuario().getId(),
+            relatorio.getAnoReferencia(), relatorio.getMesReferencia(), totaisPorCategoria(relatorio));
+    }
+
+    private static List<AnalisesRelatorio.TotalCategoria> totaisPorCategoria(Relatorio relatorio) {
+        AnalisesRelatorio analises = relatorio.getAnalises();
+        if (analises == null) {
+            throw new IllegalStateException("Relatório " + relatorio.getId() + " sem análises calculadas");
+        }
+        return analises.getPorCategoria();
+    }
+}
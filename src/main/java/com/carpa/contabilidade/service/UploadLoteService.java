@@ -0,0 +1,189 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.model.ResultadoUploadLote;
+import com.carpa.contabilidade.model.Usuario;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Service para upload de vários documentos de uma vez (vários arquivos ou um ZIP),
+ * por exemplo os extratos de um ano inteiro de um cliente novo.
+ *
+ * Cada arquivo é gravado em disco em streaming (as entradas do ZIP são lidas uma a uma,
+ * sem extrair o ZIP em memória) e salvo em transação própria, entrando na fila assim que
+ * é gravado. Os workers do ProcessamentoDocumentoService processam os documentos em
+ * paralelo enquanto os demais arquivos do lote ainda estão sendo gravados.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadLoteService {
+
+    // Período no nome do arquivo: 2024-05, 2024_05, 202405 ou 05-2024, 05_2024
+    private static final Pattern PERIODO_ANO_MES =
+        Pattern.compile("(?<!\\d)(20\\d{2})[-_. ]?(0[1-9]|1[0-2])(?!\\d)");
+    private static final Pattern PERIODO_MES_ANO =
+        Pattern.compile("(?<!\\d)(0?[1-9]|1[0-2])[-_. ](20\\d{2})(?!\\d)");
+
+    private final DocumentoService documentoService;
+
+    @Value("${app.upload.lote.max-arquivos:24}")
+    private int maxArquivos;
+
+    /**
+     * Faz upload de um lote de arquivos. O mês e o ano de cada arquivo vêm das listas
+     * informadas (na mesma ordem dos arquivos) ou, se ausentes, do nome do arquivo.
+     * Arquivos .zip são expandidos e o período de cada entrada vem do nome da entrada.
+     *
+     * @param arquivos Arquivos CSV, Excel ou ZIP
+     * @param meses Mês de referência de cada arquivo (opcional)
+     * @param anos Ano de referência de cada arquivo (opcional)
+     * @param usuario Usuário proprietário
+     * @return Resultado de cada arquivo, na ordem de envio
+     */
+    public List<ResultadoUploadLote> uploadLote(List<MultipartFile> arquivos, List<Integer> meses,
+                                                List<Integer> anos, Usuario usuario) {
+        if (arquivos == null || arquivos.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum arquivo enviado");
+        }
+
+        List<ResultadoUploadLote> resultados = new ArrayList<>();
+        for (int i = 0; i < arquivos.size(); i++) {
+            MultipartFile arquivo = arquivos.get(i);
+            String nome = arquivo.getOriginalFilename();
+
+            if ("zip".equalsIgnoreCase(FilenameUtils.getExtension(nome))) {
+                expandirZip(arquivo, usuario, resultados);
+                continue;
+            }
+
+            Integer mes = valorNaPosicao(meses, i);
+            Integer ano = valorNaPosicao(anos, i);
+            if (mes == null || ano == null) {
+                int[] periodo = inferirPeriodo(nome);
+                if (periodo != null) {
+                    mes = mes != null ? mes : periodo[0];
+                    ano = ano != null ? ano : periodo[1];
+                }
+            }
+
+            if (resultados.size() >= maxArquivos) {
+                resultados.add(ResultadoUploadLote.rejeitado(nome, mes, ano, limiteExcedido()));
+                continue;
+            }
+
+            try {
+                Documento documento = documentoService.uploadDocumento(arquivo, usuario, mes, ano);
+                resultados.add(ResultadoUploadLote.aceito(documento));
+            } catch (IllegalArgumentException e) {
+                resultados.add(ResultadoUploadLote.rejeitado(nome, mes, ano, e.getMessage()));
+            } catch (Exception e) {
+                log.error("Erro no upload em lote do arquivo {}", nome, e);
+                resultados.add(ResultadoUploadLote.rejeitado(nome, mes, ano, "Erro ao salvar arquivo"));
+            }
+        }
+
+        log.info("Upload em lote do usuário {}: {} arquivo(s), {} aceito(s)", usuario.getEmail(),
+                 resultados.size(),
+                 resultados.stream().filter(r -> r.situacao() == ResultadoUploadLote.Situacao.ACEITO).count());
+        return resultados;
+    }
+
+    /**
+     * Grava cada entrada do ZIP diretamente a partir do stream descompactado.
+     * Diretórios e arquivos ocultos (__MACOSX, .DS_Store) são ignorados. Um erro ao gravar
+     * uma entrada recusa só essa entrada, como nos arquivos enviados diretamente.
+     */
+    private void expandirZip(MultipartFile zip, Usuario usuario, List<ResultadoUploadLote> resultados) {
+        int resultadosAntes = resultados.size();
+        try (ZipInputStream entradas = new ZipInputStream(zip.getInputStream())) {
+            ZipEntry entrada;
+            while ((entrada = entradas.getNextEntry()) != null) {
+                String caminho = entrada.getName();
+                String nome = FilenameUtils.getName(caminho);
+                if (entrada.isDirectory() || caminho.startsWith("__MACOSX/") || nome.startsWith(".")) {
+                    continue;
+                }
+
+                int[] periodo = inferirPeriodo(caminho);
+                Integer mes = periodo != null ? periodo[0] : null;
+                Integer ano = periodo != null ? periodo[1] : null;
+
+                if (resultados.size() >= maxArquivos) {
+                    resultados.add(ResultadoUploadLote.rejeitado(nome, mes, ano, limiteExcedido()));
+                    continue;
+                }
+                if (periodo == null) {
+                    resultados.add(ResultadoUploadLote.rejeitado(nome, null, null,
+                        "Mês/ano não encontrado no nome do arquivo (use, por exemplo, extrato_2024-05.csv)"));
+                    continue;
+                }
+
+                try {
+                    Documento documento = documentoService.uploadDocumento(
+                        nome, entradas, usuario, mes, ano);
+                    resultados.add(ResultadoUploadLote.aceito(documento));
+                } catch (IllegalArgumentException e) {
+                    resultados.add(ResultadoUploadLote.rejeitado(nome, mes, ano, e.getMessage()));
+                } catch (IOException | RuntimeException e) {
+                    // Só esta entrada é recusada; as seguintes continuam sendo lidas
+                    log.error("Erro no upload em lote do arquivo {} do ZIP {}", caminho, zip.getOriginalFilename(), e);
+                    resultados.add(ResultadoUploadLote.rejeitado(nome, mes, ano, "Erro ao salvar arquivo"));
+                }
+            }
+            // Sem nenhuma entrada o ZipInputStream não acusa erro (por exemplo, um arquivo que não é ZIP)
+            if (resultados.size() == resultadosAntes) {
+                resultados.add(ResultadoUploadLote.rejeitado(zip.getOriginalFilename(), null, null,
+                    "Arquivo ZIP vazio ou inválido"));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Erro na leitura do próprio ZIP; as entradas já lidas mantêm seus resultados
+            log.warn("Erro ao ler ZIP {}: {}", zip.getOriginalFilename(), e.getMessage());
+            resultados.add(ResultadoUploadLote.rejeitado(zip.getOriginalFilename(), null, null,
+                "Arquivo ZIP inválido ou corrompido"));
+        }
+    }
+
+    /**
+     * Extrai mês e ano do nome do arquivo.
+     *
+     * @return {mes, ano}, ou null se o nome não contiver um período
+     */
+    static int[] inferirPeriodo(String nome) {
+        if (nome == null) {
+            return null;
+        }
+        String base = FilenameUtils.removeExtension(nome);
+
+        Matcher anoMes = PERIODO_ANO_MES.matcher(base);
+        if (anoMes.find()) {
+            return new int[] {Integer.parseInt(anoMes.group(2)), Integer.parseInt(anoMes.group(1))};
+        }
+        Matcher mesAno = PERIODO_MES_ANO.matcher(base);
+        if (mesAno.find()) {
+            return new int[] {Integer.parseInt(mesAno.group(1)), Integer.parseInt(mesAno.group(2))};
+        }
+        return null;
+    }
+
+    private String limiteExcedido() {
+        return "Limite de " + maxArquivos + " arquivos por lote excedido";
+    }
+
+    private static Integer valorNaPosicao(List<Integer> valores, int posicao) {
+        return valores != null && posicao < valores.size() ? valores.get(posicao) : null;
+    }
+}
@@ -0,0 +1,132 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.model.DocumentoResumoDTO;
+import com.carpa.contabilidade.model.Usuario;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Service para upload em pipeline: o corpo da requisição é dividido (tee) entre a gravação
+ * no storage e o parser de CSV, que roda em um worker do ProcessamentoDocumentoService e
+ * recebe os bytes por um buffer limitado. O relatório é gerado enquanto o arquivo chega,
+ * lendo o arquivo uma única vez, e fica pronto praticamente junto com o fim do upload.
+ *
+ * O relatório só é confirmado se o arquivo for gravado por completo: se o upload falhar,
+ * a leitura termina com erro, a transação do relatório é desfeita e o documento é removido.
+ * Planilhas Excel (que só podem ser lidas com o arquivo inteiro) e uploads sem worker livre
+ * seguem o fluxo normal: o arquivo é gravado e o documento entra na fila.
+ *
+ * O worker fica ocupado no ritmo do cliente, com uma conexão e a linha do documento
+ * bloqueada. Se o upload chegar abaixo de app.upload.pipeline.vazao-minima-kb, a leitura é
+ * abandonada e o worker liberado; o arquivo continua sendo gravado e o documento entra na
+ * fila ao final, como nos demais uploads.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadPipelineService {
+
+    private final DocumentoService documentoService;
+    private final FileStorageService fileStorageService;
+    private final ProcessamentoDocumentoService processamentoDocumentoService;
+
+    @Value("${app.upload.max-file-size-mb:10}")
+    private long maxFileSizeMb;
+
+    @Value("${app.upload.pipeline.buffer-kb:1024}")
+    private int bufferKb;
+
+    @Value("${app.upload.pipeline.vazao-minima-kb:32}")
+    private long vazaoMinimaKb;
+
+    @Value("${app.upload.pipeline.carencia-segundos:10}")
+    private long carenciaSegundos;
+
+    /**
+     * Recebe o arquivo do corpo da requisição e gera o relatório durante o recebimento.
+     *
+     * @param nomeArquivo Nome original do arquivo
+     * @param tamanho Tamanho declarado (Content-Length), ou null se desconhecido
+     * @param corpo Corpo da requisição
+     * @param usuario Usuário proprietário
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     * @return Resumo do documento: PROCESSADO ou ERRO se processado durante o upload,
+     *         PENDENTE se enviado para a fila
+     * @throws IOException Se houver erro ao receber ou gravar o arquivo
+     */
+    public DocumentoResumoDTO upload(String nomeArquivo, Long tamanho, InputStream corpo, Usuario usuario,
+                                     Integer mesReferencia, Integer anoReferencia) throws IOException {
+        String nome = FilenameUtils.getName(nomeArquivo);
+
+        boolean csv = "csv".equalsIgnoreCase(FilenameUtils.getExtension(nome));
+        if (!csv || !processamentoDocumentoService.ocuparWorker()) {
+            log.debug("Upload de {} sem pipeline ({})", nome, csv ? "nenhum worker livre" : "não é CSV");
+            Documento documento = documentoService.uploadDocumento(
+                nome, corpo, usuario, mesReferencia, anoReferencia);
+            return documentoService.buscarResumo(documento.getId());
+        }
+
+        Documento documento;
+        try {
+            documento = documentoService.registrarUploadEmPipeline(
+                nome, tamanho, usuario, mesReferencia, anoReferencia);
+        } catch (IOException | RuntimeException e) {
+            processamentoDocumentoService.liberarWorker();
+            throw e;
+        }
+
+        PipeLimitado pipe = new PipeLimitado(bufferKb * 1024, vazaoMinimaKb * 1024,
+                                             Duration.ofSeconds(carenciaSegundos));
+        Future<?> processamento = processamentoDocumentoService.processarConteudo(documento.getId(), pipe);
+
+        FileStorageService.ArquivoGravado arquivo;
+        try {
+            // Cada bloco lido da requisição é gravado no arquivo e entregue ao parser
+            arquivo = fileStorageService.gravarArquivo(documento.getCaminhoStorage(),
+                new TeeInputStream(corpo, pipe.saida()), maxFileSizeMb * 1024 * 1024);
+
+            // O fim do conteúdo só é sinalizado depois que o arquivo está inteiro em disco
+            pipe.fechar();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Upload em pipeline do documento {} interrompido: {}", documento.getId(), e.getMessage());
+            pipe.falhar(e instanceof IOException io ? io : new IOException(e.getMessage(), e));
+            aguardar(processamento);
+            documentoService.descartarUploadEmPipeline(documento);
+            throw e;
+        }
+
+        aguardar(processamento);
+        DocumentoResumoDTO resumo = documentoService.concluirUploadEmPipeline(documento.getId(), arquivo);
+        if (!pipe.abandonado()) {
+            return resumo;
+        }
+
+        log.info("Upload lento do documento {}: processamento enviado para a fila", documento.getId());
+        processamentoDocumentoService.devolverParaFila(documento.getId());
+        return documentoService.buscarResumo(documento.getId());
+    }
+
+    private static void aguardar(Future<?> processamento) throws IOException {
+        try {
+            processamento.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Upload interrompido", e);
+        } catch (ExecutionException e) {
+            // Falhas de processamento já são registradas no documento pelo worker
+            log.error("Erro inesperado no processamento em pipeline", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.model.SituacaoUploadRetomavel;
+import com.carpa.contabilidade.model.UploadRetomavel;
+import com.carpa.contabilidade.model.Usuario;
+import com.carpa.contabilidade.repository.UploadRetomavelRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service para uploads retomáveis: o arquivo é enviado em partes com o cabeçalho
+ * Content-Range e, se a conexão cair, o cliente consulta a posição recebida e continua dali,
+ * sem reenviar o que já chegou.
+ *
+ * As partes são gravadas em sequência em um arquivo temporário (FileChannel), com checksum
+ * opcional por parte e do arquivo completo. Quando o último byte chega, o arquivo é movido
+ * de forma atômica para o storage e só então o Documento é criado e enfileirado.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadRetomavelService {
+
+    // Content-Range: bytes 0-1048575/5242880, ou bytes */5242880 (sem dados: consulta/conclusão)
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (?:(\\d+)-(\\d+)|\\*)/(\\d+)");
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-fA-F]{64}");
+
+    private final UploadRetomavelRepository uploadRetomavelRepository;
+    private final DocumentoService documentoService;
+    private final FileStorageService fileStorageService;
+    private final PlatformTransactionManager transactionManager;
+
+    // Limite próprio: arquivos grandes são o motivo de enviar em partes
+    @Value("${app.upload.retomavel.tamanho-max-mb:200}")
+    private long tamanhoMaxMb;
+
+    @Value("${app.upload.retomavel.tamanho-max-parte-mb:8}")
+    private long tamanhoMaxParteMb;
+
+    @Value("${app.upload.retomavel.expiracao-horas:24}")
+    private long expiracaoHoras;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Inicia um upload retomável, validando os dados do documento antes de receber o arquivo.
+     *
+     * @param nomeArquivo Nome original do arquivo
+     * @param tamanho Tamanho total em bytes
+     * @param mesReferencia Mês de referência
+     * @param anoReferencia Ano de referência
+     * @param sha256 SHA-256 do arquivo completo em hexadecimal (opcional)
+     * @param usuario Usuário proprietário
+     * @return Upload criado, na posição 0
+     */
+    @Transactional
+    public UploadRetomavel iniciar(String nomeArquivo, Long tamanho, Integer mesReferencia,
+                                   Integer anoReferencia, String sha256, Usuario usuario) {
+
+        documentoService.validarNovoUpload(nomeArquivo, tamanho, tamanhoMaxMb, usuario, mesReferencia, anoReferencia);
+        validarSha256(sha256);
+
+        UploadRetomavel upload = new UploadRetomavel();
+        upload.setId(UUID.randomUUID().toString());
+        upload.setUsuario(usuario);
+        upload.setNomeArquivo(FilenameUtils.getName(nomeArquivo));
+        upload.setTamanho(tamanho);
+        upload.setRecebido(0L);
+        upload.setMesReferencia(mesReferencia);
+        upload.setAnoReferencia(anoReferencia);
+        upload.setSha256(sha256);
+        upload.setDataAtualizacao(LocalDateTime.now());
+
+        upload = uploadRetomavelRepository.save(upload);
+        log.info("Upload retomável iniciado: ID={}, {} bytes, Usuario={}", upload.getId(), tamanho,
+                 usuario.getEmail());
+        return upload;
+    }
+
+    /**
+     * Busca um upload do usuário. Uploads de outros usuários são tratados como inexistentes.
+     */
+    public UploadRetomavel buscarDoUsuario(String id, Long usuarioId) {
+        return uploadRetomavelRepository.findByIdAndUsuarioId(id, usuarioId)
+            .orElseThrow(() -> new IllegalArgumentException("Upload não encontrado"));
+    }
+
+    /**
+     * Recebe uma parte do arquivo. A parte deve começar exatamente na posição já recebida;
+     * ao receber o último byte, o arquivo é concluído e o documento é criado.
+     *
+     * @param upload Upload do usuário
+     * @param usuario Usuário proprietário
+     * @param contentRange Cabeçalho Content-Range da parte
+     * @param sha256Parte SHA-256 da parte em hexadecimal (opcional)
+     * @param conteudo Corpo da requisição
+     * @return Situação do upload (com o ID do documento, se concluído)
+     * @throws IOException Se houver erro ao gravar a parte
+     * @throws IllegalStateException Se a parte não começar na posição atual do upload
+     * @throws FileStorageService.ArquivoParcialPerdidoException Se as partes já recebidas não estão
+     *         mais no arquivo temporário; o upload é cancelado
+     */
+    public SituacaoUploadRetomavel receberParte(UploadRetomavel upload, Usuario usuario, String contentRange,
+                                                String sha256Parte, InputStream conteudo) throws IOException {
+
+        Intervalo intervalo = interpretarContentRange(contentRange, upload.getRecebido());
+        if (intervalo.total() != upload.getTamanho()) {
+            throw new IllegalArgumentException(
+                "Tamanho total diferente do informado ao iniciar o upload (" + upload.getTamanho() + " bytes)");
+        }
+        if (intervalo.inicio() != upload.getRecebido()) {
+            throw new IllegalStateException(
+                "A parte deve começar na posição " + upload.getRecebido() + " do arquivo");
+        }
+        if (intervalo.tamanho() > tamanhoMaxParteMb * 1024 * 1024) {
+            throw new IllegalArgumentException("Parte muito grande. Tamanho máximo: " + tamanhoMaxParteMb + "MB");
+        }
+        validarSha256(sha256Parte);
+
+        if (intervalo.tamanho() > 0) {
+            try {
+                gravarParte(upload, intervalo, sha256Parte, conteudo);
+            } catch (FileStorageService.ArquivoParcialPerdidoException e) {
+                // O upload não tem como continuar: é removido para que o cliente comece outro
+                log.warn("Arquivo temporário do upload retomável {} incompleto; upload cancelado", upload.getId());
+                cancelar(upload);
+                throw e;
+            }
+            upload.setRecebido(intervalo.inicio() + intervalo.tamanho());
+        }
+
+        if (upload.getRecebido() < upload.getTamanho()) {
+            return SituacaoUploadRetomavel.de(upload);
+        }
+        return concluir(upload, usuario);
+    }
+
+    /**
+     * Grava a parte no arquivo temporário, conferindo e avançando a posição no banco sob a trava.
+     */
+    private void gravarParte(UploadRetomavel upload, Intervalo intervalo, String sha256Parte,
+                             InputStream conteudo) throws IOException {
+        fileStorageService.gravarParte(upload.getId(), intervalo.inicio(), conteudo, intervalo.tamanho(),
+                                       sha256Parte, new FileStorageService.PosicaoConfirmada() {
+            @Override
+            public long atual() {
+                return uploadRetomavelRepository.buscarRecebido(upload.getId())
+                    .orElseThrow(() -> new IllegalArgumentException("Upload não encontrado"));
+            }
+
+            @Override
+            public void avancar(long novaPosicao) {
+                Integer atualizados = transactionTemplate.execute(status -> uploadRetomavelRepository.avancar(
+                    upload.getId(), intervalo.inicio(), novaPosicao, LocalDateTime.now()));
+                if (atualizados == null || atualizados == 0) {
+                    throw new IllegalStateException("O upload foi alterado por outra requisição");
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancela um upload em andamento, removendo o arquivo temporário.
+     */
+    @Transactional
+    public void cancelar(UploadRetomavel upload) throws IOException {
+        uploadRetomavelRepository.delete(upload);
+        fileStorageService.descartarArquivoParcial(upload.getId());
+        log.info("Upload retomável cancelado: {}", upload.getId());
+    }
+
+    /**
+     * Remove os uploads sem partes recebidas dentro do prazo de expiração. Executa a cada hora.
+     */
+    @Scheduled(cron = "${app.upload.retomavel.cron-limpeza:0 30 * * * *}")
+    public void removerExpirados() {
+        List<UploadRetomavel> expirados = uploadRetomavelRepository.findByDataAtualizacaoBefore(
+            LocalDateTime.now().minusHours(expiracaoHoras));
+        uploadRetomavelRepository.deleteAll(expirados);
+
+        try {
+            int arquivos = fileStorageService.descartarArquivosParciaisAnteriores(
+                Instant.now().minus(Duration.ofHours(expiracaoHoras)));
+            if (!expirados.isEmpty() || arquivos > 0) {
+                log.info("Uploads retomáveis expirados removidos: {} registro(s), {} arquivo(s)",
+                         expirados.size(), arquivos);
+            }
+        } catch (IOException e) {
+            log.error("Erro ao remover arquivos de uploads expirados", e);
+        }
+    }
+
+    /**
+     * Confere o checksum do arquivo completo, move o arquivo para o storage e cria o documento.
+     */
+    private SituacaoUploadRetomavel concluir(UploadRetomavel upload, Usuario usuario) throws IOException {
+        if (upload.getSha256() != null
+                && !fileStorageService.calcularSha256Parcial(upload.getId()).equalsIgnoreCase(upload.getSha256())) {
+            // Não há como saber qual parte chegou corrompida: o upload recomeça
+            cancelar(upload);
+            throw new IllegalArgumentException("Checksum do arquivo não confere. Inicie o upload novamente");
+        }
+
+        Documento documento = transactionTemplate.execute(status -> {
+            try {
+                Documento salvo = documentoService.registrarUploadRetomavel(upload.getId(),
+                    upload.getNomeArquivo(), usuario, upload.getMesReferencia(), upload.getAnoReferencia());
+                uploadRetomavelRepository.deleteById(upload.getId());
+                return salvo;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return SituacaoUploadRetomavel.concluido(upload, documento);
+    }
+
+    private static void validarSha256(String sha256) {
+        if (sha256 != null && !SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("SHA-256 inválido: informe 64 dígitos hexadecimais");
+        }
+    }
+
+    /**
+     * Interpreta o Content-Range. A forma sem intervalo (asterisco no lugar de inicio-fim)
+     * não traz dados e usa a posição atual.
+     */
+    static Intervalo interpretarContentRange(String contentRange, long posicaoAtual) {
+        Matcher matcher = contentRange != null ? CONTENT_RANGE.matcher(contentRange.trim()) : null;
+        if (matcher == null || !matcher.matches()) {
+            throw new IllegalArgumentException("Content-Range inválido. Use: bytes inicio-fim/total");
+        }
+
+        long total = Long.parseLong(matcher.group(3));
+        if (matcher.group(1) == null) {
+            return new Intervalo(posicaoAtual, 0, total);
+        }
+
+        long inicio = Long.parseLong(matcher.group(1));
+        long fim = Long.parseLong(matcher.group(2));
+        if (fim < inicio || fim >= total) {
+            throw new IllegalArgumentException("Content-Range inválido: intervalo fora do arquivo");
+        }
+        return new Intervalo(inicio, fim - inicio + 1, total);
+    }
+
+    /**
+     * Intervalo de bytes de uma parte (fim exclusivo = inicio + tamanho).
+     */
+    record Intervalo(long inicio, long tamanho, long total) {
+    }
+}
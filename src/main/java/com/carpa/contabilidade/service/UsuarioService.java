@@ -1,8 +1,11 @@
 package com.carpa.contabilidade.service;
 
+import com.carpa.contabilidade.config.CacheConfig;
 import com.carpa.contabilidade.model.Usuario;
 import com.carpa.contabilidade.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,6 +22,7 @@ public class UsuarioService {
 
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CacheManager cacheManager;
 
     /**
      * Salva um novo usuário no banco de dados.
@@ -87,6 +91,10 @@ public class UsuarioService {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado com ID: " + id));
 
+        // O email pode mudar: remove do cache a entrada do email antigo e a do novo
+        removerDoCache(usuario.getEmail());
+        removerDoCache(usuarioAtualizado.getEmail());
+
         // Atualiza os campos
         usuario.setNome(usuarioAtualizado.getNome());
         usuario.setEmail(usuarioAtualizado.getEmail());
@@ -109,10 +117,20 @@ public class UsuarioService {
      */
     @Transactional
     public void deletar(Long id) {
-        if (!usuarioRepository.existsById(id)) {
-            throw new RuntimeException("Usuário não encontrado com ID: " + id);
+        Usuario usuario = usuarioRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado com ID: " + id));
+        removerDoCache(usuario.getEmail());
+        usuarioRepository.delete(usuario);
+    }
+
+    /**
+     * Remove o usuário do cache de busca por email (aplicado após o commit da transação).
+     */
+    private void removerDoCache(String email) {
+        Cache cache = cacheManager.getCache(CacheConfig.USUARIOS);
+        if (cache != null && email != null) {
+            cache.evict(email);
         }
-        usuarioRepository.deleteById(id);
     }
 
     /**
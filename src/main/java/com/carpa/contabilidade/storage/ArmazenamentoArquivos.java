@@ -0,0 +1,79 @@
+package com.carpa.contabilidade.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Armazenamento dos arquivos enviados pelos clientes, endereçados por chave
+ * (caminho relativo com '/', por exemplo cliente_1/2024/05/extrato.csv).
+ *
+ * A implementação é escolhida por app.storage.tipo (StorageConfig): disco local, que exige
+ * o mesmo diretório em todos os nós, ou um storage compatível com S3, compartilhado entre
+ * os nós. Os arquivos são sempre lidos e gravados em streaming.
+ */
+public interface ArmazenamentoArquivos {
+
+    /**
+     * Grava o conteúdo sob a chave, substituindo o arquivo existente. O arquivo só fica
+     * visível depois de gravado por completo; em caso de erro nada é gravado.
+     *
+     * @param chave Chave do arquivo
+     * @param conteudo Conteúdo a gravar (não é fechado)
+     * @return Quantidade de bytes gravados
+     * @throws IOException Se houver erro ao gravar
+     */
+    long gravar(String chave, InputStream conteudo) throws IOException;
+
+    /**
+     * Transfere um arquivo local (por exemplo, um upload retomável concluído) para o
+     * armazenamento. O arquivo local deixa de existir.
+     *
+     * @param arquivoLocal Arquivo no disco deste nó
+     * @param chave Chave de destino
+     * @throws IOException Se houver erro na transferência
+     */
+    void transferir(Path arquivoLocal, String chave) throws IOException;
+
+    /**
+     * Abre o arquivo para leitura a partir de uma posição (leitura por intervalo).
+     *
+     * @param chave Chave do arquivo
+     * @param inicio Posição do primeiro byte
+     * @return Stream do conteúdo, a ser fechado por quem chama
+     * @throws java.nio.file.NoSuchFileException Se o arquivo não existir
+     * @throws IOException Se houver erro na leitura
+     */
+    InputStream abrir(String chave, long inicio) throws IOException;
+
+    /**
+     * Abre o arquivo para leitura desde o início.
+     */
+    default InputStream abrir(String chave) throws IOException {
+        return abrir(chave, 0);
+    }
+
+    /**
+     * Lê o arquivo inteiro em memória. Apenas para arquivos pequenos; para os documentos, use {@link #abrir}.
+     */
+    default byte[] ler(String chave) throws IOException {
+        try (InputStream conteudo = abrir(chave)) {
+            return conteudo.readAllBytes();
+        }
+    }
+
+    /**
+     * Verifica se existe um arquivo com a chave.
+     */
+    boolean existe(String chave) throws IOException;
+
+    /**
+     * Remove o arquivo, se existir.
+     */
+    void remover(String chave) throws IOException;
+
+    /**
+     * Move um arquivo para outra chave, substituindo o destino se existir.
+     */
+    void mover(String origem, String destino) throws IOException;
+}
@@ -0,0 +1,92 @@
+package com.carpa.contabilidade.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Armazenamento em um diretório do disco local (app.upload.dir).
+ *
+ * A gravação é feita em um arquivo temporário no mesmo diretório e movida de forma
+ * atômica para o destino, então um arquivo nunca é lido pela metade.
+ */
+@Slf4j
+public class ArmazenamentoLocal implements ArmazenamentoArquivos {
+
+    private final Path raiz;
+
+    public ArmazenamentoLocal(Path raiz) throws IOException {
+        this.raiz = Files.createDirectories(raiz.toAbsolutePath().normalize());
+        log.info("Armazenamento local em {}", this.raiz);
+    }
+
+    @Override
+    public long gravar(String chave, InputStream conteudo) throws IOException {
+        Path destino = resolver(chave);
+        Files.createDirectories(destino.getParent());
+        Path temporario = destino.resolveSibling("." + destino.getFileName() + "." + UUID.randomUUID() + ".tmp");
+
+        long gravados;
+        try {
+            try (OutputStream saida = Files.newOutputStream(temporario)) {
+                gravados = conteudo.transferTo(saida);
+            }
+            Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+        return gravados;
+    }
+
+    @Override
+    public void transferir(Path arquivoLocal, String chave) throws IOException {
+        Path destino = resolver(chave);
+        Files.createDirectories(destino.getParent());
+        Files.move(arquivoLocal, destino, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public InputStream abrir(String chave, long inicio) throws IOException {
+        FileChannel canal = FileChannel.open(resolver(chave), StandardOpenOption.READ);
+        canal.position(inicio);
+        return Channels.newInputStream(canal);
+    }
+
+    @Override
+    public boolean existe(String chave) {
+        return Files.exists(resolver(chave));
+    }
+
+    @Override
+    public void remover(String chave) throws IOException {
+        Files.deleteIfExists(resolver(chave));
+    }
+
+    @Override
+    public void mover(String origem, String destino) throws IOException {
+        Path destinoPath = resolver(destino);
+        Files.createDirectories(destinoPath.getParent());
+        Files.move(resolver(origem), destinoPath, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Resolve a chave no diretório raiz, impedindo acesso fora dele.
+     */
+    private Path resolver(String chave) {
+        Path caminho = raiz.resolve(chave).normalize();
+        if (!caminho.startsWith(raiz) || caminho.equals(raiz)) {
+            throw new SecurityException("Acesso negado ao arquivo");
+        }
+        return caminho;
+    }
+}
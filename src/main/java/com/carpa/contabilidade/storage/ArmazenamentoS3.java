@@ -0,0 +1,401 @@
+package com.carpa.contabilidade.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Armazenamento em um bucket compatível com S3 (AWS S3, MinIO, Ceph...), compartilhado por
+ * todos os nós da aplicação. Usa a API REST com endereçamento por caminho (endpoint/bucket/chave)
+ * e assinatura V4, sem o SDK da AWS.
+ *
+ * Arquivos maiores que uma parte são enviados com multipart upload, com uma parte em memória
+ * por vez; se o envio falhar, o multipart é abortado e nada fica visível no bucket. A leitura
+ * é feita em intervalos (cabeçalho Range) do tamanho de uma parte: se a conexão cair no meio
+ * do arquivo, a leitura continua do byte em que parou.
+ */
+@Slf4j
+public class ArmazenamentoS3 implements ArmazenamentoArquivos {
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+    private static final Duration TEMPO_LIMITE = Duration.ofMinutes(2);
+    private static final int TENTATIVAS_LEITURA = 3;
+
+    private final String endpoint;
+    private final String bucket;
+    private final int tamanhoParte;
+    private final AssinaturaS3 assinatura;
+    private final HttpClient http;
+
+    /**
+     * @param endpoint URL do storage (por exemplo, http://localhost:9000 ou https://s3.sa-east-1.amazonaws.com)
+     * @param bucket Bucket dos arquivos (deve existir)
+     * @param regiao Região usada na assinatura
+     * @param chaveAcesso Access key
+     * @param chaveSecreta Secret key
+     * @param tamanhoParteMb Tamanho das partes do multipart e dos intervalos de leitura (mínimo 5MB)
+     */
+    public ArmazenamentoS3(String endpoint, String bucket, String regiao, String chaveAcesso,
+                           String chaveSecreta, int tamanhoParteMb) {
+        if (tamanhoParteMb < 5) {
+            // O S3 exige partes de pelo menos 5MB, exceto a última
+            throw new IllegalArgumentException("O tamanho da parte deve ser de pelo menos 5MB");
+        }
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.bucket = bucket;
+        this.tamanhoParte = tamanhoParteMb * 1024 * 1024;
+        this.assinatura = new AssinaturaS3(regiao, chaveAcesso, chaveSecreta);
+        this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        log.info("Armazenamento S3 em {}/{}", this.endpoint, bucket);
+    }
+
+    @Override
+    public long gravar(String chave, InputStream conteudo) throws IOException {
+        byte[] parte = conteudo.readNBytes(tamanhoParte);
+
+        // Arquivo menor que uma parte: um único PUT
+        if (parte.length < tamanhoParte) {
+            HttpResponse<String> resposta = executar("PUT", chave, Collections.emptySortedMap(), Map.of(), parte);
+            verificar(resposta, "gravar", chave);
+            return parte.length;
+        }
+
+        String uploadId = iniciarMultipart(chave);
+        try {
+            List<String> etags = new ArrayList<>();
+            long total = 0;
+            while (parte.length > 0) {
+                etags.add(enviarParte(chave, uploadId, etags.size() + 1, parte));
+                total += parte.length;
+                parte = conteudo.readNBytes(tamanhoParte);
+            }
+            concluirMultipart(chave, uploadId, etags);
+            return total;
+        } catch (IOException | RuntimeException e) {
+            abortarMultipart(chave, uploadId);
+            throw e;
+        }
+    }
+
+    @Override
+    public void transferir(Path arquivoLocal, String chave) throws IOException {
+        try (InputStream conteudo = Files.newInputStream(arquivoLocal)) {
+            gravar(chave, conteudo);
+        }
+        Files.delete(arquivoLocal);
+    }
+
+    @Override
+    public InputStream abrir(String chave, long inicio) throws IOException {
+        return new LeituraPorIntervalos(chave, inicio);
+    }
+
+    @Override
+    public boolean existe(String chave) throws IOException {
+        HttpResponse<String> resposta = executar("HEAD", chave, Collections.emptySortedMap(), Map.of(), null);
+        if (resposta.statusCode() == 404) {
+            return false;
+        }
+        verificar(resposta, "consultar", chave);
+        return true;
+    }
+
+    @Override
+    public void remover(String chave) throws IOException {
+        HttpResponse<String> resposta = executar("DELETE", chave, Collections.emptySortedMap(), Map.of(), null);
+        if (resposta.statusCode() != 404) {
+            verificar(resposta, "remover", chave);
+        }
+    }
+
+    @Override
+    public void mover(String origem, String destino) throws IOException {
+        // Não há "mover" no S3: cópia no próprio servidor (sem trafegar o conteúdo) e remoção da origem
+        HttpResponse<String> resposta = executar("PUT", destino, Collections.emptySortedMap(),
+            Map.of("x-amz-copy-source", "/" + bucket + "/" + AssinaturaS3.codificar(origem, true)), null);
+        if (resposta.statusCode() == 404) {
+            throw new NoSuchFileException(origem);
+        }
+        verificar(resposta, "copiar", origem);
+        remover(origem);
+    }
+
+    private String iniciarMultipart(String chave) throws IOException {
+        HttpResponse<String> resposta = executar("POST", chave, parametros("uploads", ""), Map.of(), null);
+        verificar(resposta, "iniciar multipart de", chave);
+
+        Matcher uploadId = UPLOAD_ID.matcher(resposta.body());
+        if (!uploadId.find()) {
+            throw new IOException("Resposta do S3 sem UploadId ao iniciar multipart de " + chave);
+        }
+        return uploadId.group(1);
+    }
+
+    private String enviarParte(String chave, String uploadId, int numero, byte[] parte) throws IOException {
+        SortedMap<String, String> parametros = parametros("partNumber", String.valueOf(numero));
+        parametros.put("uploadId", uploadId);
+
+        HttpResponse<String> resposta = executar("PUT", chave, parametros, Map.of(), parte);
+        verificar(resposta, "enviar parte " + numero + " de", chave);
+        return resposta.headers().firstValue("ETag")
+            .orElseThrow(() -> new IOException("Resposta do S3 sem ETag na parte " + numero + " de " + chave));
+    }
+
+    private void concluirMultipart(String chave, String uploadId, List<String> etags) throws IOException {
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < etags.size(); i++) {
+            xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+               .append(etags.get(i)).append("</ETag></Part>");
+        }
+        xml.append("</CompleteMultipartUpload>");
+
+        HttpResponse<String> resposta = executar("POST", chave, parametros("uploadId", uploadId), Map.of(),
+                                                 xml.toString().getBytes(StandardCharsets.UTF_8));
+        verificar(resposta, "concluir multipart de", chave);
+    }
+
+    private void abortarMultipart(String chave, String uploadId) {
+        try {
+            executar("DELETE", chave, parametros("uploadId", uploadId), Map.of(), null);
+        } catch (IOException e) {
+            // As partes órfãs são removidas pela regra de ciclo de vida do bucket
+            log.warn("Não foi possível abortar o multipart {} de {}: {}", uploadId, chave, e.getMessage());
+        }
+    }
+
+    private HttpResponse<String> executar(String metodo, String chave, SortedMap<String, String> parametros,
+                                          Map<String, String> cabecalhosExtras, byte[] corpo) throws IOException {
+        return executar(metodo, chave, parametros, cabecalhosExtras, corpo, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Monta, assina e envia uma requisição para a chave no bucket.
+     */
+    private <T> HttpResponse<T> executar(String metodo, String chave, SortedMap<String, String> parametros,
+                                         Map<String, String> cabecalhosExtras, byte[] corpo,
+                                         HttpResponse.BodyHandler<T> leitor) throws IOException {
+        String caminho = "/" + bucket + "/" + AssinaturaS3.codificar(chave, true);
+        String consulta = AssinaturaS3.consultaCanonica(parametros);
+        URI uri = URI.create(endpoint + caminho + (consulta.isEmpty() ? "" : "?" + consulta));
+        String sha256Corpo = corpo != null ? AssinaturaS3.sha256Hex(corpo) : AssinaturaS3.SHA256_VAZIO;
+
+        SortedMap<String, String> cabecalhos = new TreeMap<>();
+        cabecalhos.put("host", host(uri));
+        cabecalhos.put("x-amz-content-sha256", sha256Corpo);
+        cabecalhos.put("x-amz-date", AssinaturaS3.DATA_HORA.format(Instant.now()));
+        cabecalhosExtras.forEach((nome, valor) -> cabecalhos.put(nome.toLowerCase(), valor));
+
+        HttpRequest.Builder requisicao = HttpRequest.newBuilder(uri)
+            .timeout(TEMPO_LIMITE)
+            .method(metodo, corpo != null
+                ? HttpRequest.BodyPublishers.ofByteArray(corpo)
+                : HttpRequest.BodyPublishers.noBody());
+        // O cabeçalho Host é enviado pelo próprio HttpClient
+        cabecalhos.forEach((nome, valor) -> {
+            if (!nome.equals("host")) {
+                requisicao.header(nome, valor);
+            }
+        });
+        requisicao.header("Authorization",
+            assinatura.autorizacao(metodo, caminho, consulta, cabecalhos, sha256Corpo));
+
+        try {
+            return http.send(requisicao.build(), leitor);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Requisição ao S3 interrompida");
+        }
+    }
+
+    /**
+     * Confere o status da resposta. Conclusão de multipart e cópia podem falhar com status 200
+     * e o erro no corpo.
+     */
+    private static void verificar(HttpResponse<String> resposta, String operacao, String chave) throws IOException {
+        String corpo = resposta.body() != null ? resposta.body() : "";
+        if (resposta.statusCode() / 100 != 2 || corpo.contains("<Error>")) {
+            throw new IOException("Erro no S3 ao " + operacao + " " + chave + ": HTTP " + resposta.statusCode() +
+                                  (corpo.isBlank() ? "" : " " + corpo.substring(0, Math.min(corpo.length(), 300))));
+        }
+    }
+
+    private static SortedMap<String, String> parametros(String nome, String valor) {
+        SortedMap<String, String> parametros = new TreeMap<>();
+        parametros.put(nome, valor);
+        return parametros;
+    }
+
+    private static String host(URI uri) {
+        int porta = uri.getPort();
+        boolean portaPadrao = porta == -1
+            || ("http".equals(uri.getScheme()) && porta == 80)
+            || ("https".equals(uri.getScheme()) && porta == 443);
+        return portaPadrao ? uri.getHost() : uri.getHost() + ":" + porta;
+    }
+
+    /**
+     * Stream que lê o objeto em intervalos de uma parte. Cada intervalo é uma requisição com
+     * Range; uma falha na leitura reabre o intervalo a partir da posição atual.
+     */
+    private class LeituraPorIntervalos extends InputStream {
+
+        private final String chave;
+        private long posicao;
+        private long total = -1;
+        private InputStream atual;
+        private long restante;
+        private int falhas;
+
+        LeituraPorIntervalos(String chave, long inicio) throws IOException {
+            this.chave = chave;
+            this.posicao = inicio;
+            // O primeiro intervalo é aberto já aqui, para que um arquivo inexistente falhe na abertura
+            abrirIntervalo();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] um = new byte[1];
+            return read(um, 0, 1) == -1 ? -1 : um[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (atual != null) {
+                if (restante == 0) {
+                    atual.close();
+                    abrirIntervalo();
+                    continue;
+                }
+
+                int lidos;
+                try {
+                    lidos = atual.read(b, off, (int) Math.min(len, restante));
+                    if (lidos == -1) {
+                        if (total < 0) {
+                            // Conteúdo inteiro sem Content-Length: o fim do corpo é o fim do objeto
+                            total = posicao;
+                            fecharAtual();
+                            return -1;
+                        }
+                        throw new IOException("Conexão encerrada antes do fim do intervalo");
+                    }
+                } catch (IOException e) {
+                    if (++falhas > TENTATIVAS_LEITURA) {
+                        throw e;
+                    }
+                    log.warn("Falha na leitura de {} na posição {} ({}), reabrindo", chave, posicao, e.getMessage());
+                    fecharAtual();
+                    abrirIntervalo();
+                    continue;
+                }
+
+                falhas = 0;
+                posicao += lidos;
+                restante -= lidos;
+                return lidos;
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (atual != null) {
+                atual.close();
+                atual = null;
+            }
+        }
+
+        /**
+         * Abre o intervalo a partir da posição atual, ou marca o fim do arquivo (atual = null).
+         */
+        private void abrirIntervalo() throws IOException {
+            atual = null;
+            if (total >= 0 && posicao >= total) {
+                return;
+            }
+
+            HttpResponse<InputStream> resposta = executar("GET", chave, Collections.emptySortedMap(),
+                Map.of("range", "bytes=" + posicao + "-" + (posicao + tamanhoParte - 1)), null,
+                HttpResponse.BodyHandlers.ofInputStream());
+            int status = resposta.statusCode();
+
+            if (status == 206) {
+                Matcher intervalo = CONTENT_RANGE.matcher(resposta.headers().firstValue("Content-Range").orElse(""));
+                if (!intervalo.matches()) {
+                    resposta.body().close();
+                    throw new IOException("Resposta do S3 sem Content-Range válido para " + chave);
+                }
+                total = Long.parseLong(intervalo.group(3));
+                restante = Long.parseLong(intervalo.group(2)) - posicao + 1;
+                atual = resposta.body();
+            } else if (status == 200) {
+                // Servidor ignorou o Range: conteúdo inteiro, descartando até a posição.
+                // Sem Content-Length o tamanho fica desconhecido (total < 0) até o fim do corpo
+                InputStream corpo = resposta.body();
+                total = resposta.headers().firstValueAsLong("Content-Length").orElse(-1);
+                if (total >= 0 && posicao >= total) {
+                    corpo.close();
+                    return;
+                }
+                try {
+                    corpo.skipNBytes(posicao);
+                } catch (EOFException e) {
+                    // Posição além do fim do arquivo, como no 416
+                    corpo.close();
+                    total = posicao;
+                    return;
+                }
+                restante = total >= 0 ? total - posicao : Long.MAX_VALUE;
+                atual = corpo;
+            } else {
+                String erro;
+                try (InputStream corpo = resposta.body()) {
+                    erro = new String(corpo.readNBytes(300), StandardCharsets.UTF_8);
+                }
+                if (status == 416) {
+                    // Posição no fim do arquivo (ou além dele): nada a ler
+                    total = posicao;
+                } else if (status == 404) {
+                    throw new NoSuchFileException(chave);
+                } else {
+                    throw new IOException("Erro no S3 ao ler " + chave + ": HTTP " + status + " " + erro);
+                }
+            }
+        }
+
+        private void fecharAtual() {
+            try {
+                atual.close();
+            } catch (IOException e) {
+                log.debug("Erro ao fechar leitura de {}", chave, e);
+            }
+            atual = null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.carpa.contabilidade.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+/**
+ * Assinatura de requisições S3 (AWS Signature Version 4), aceita pela AWS e por storages
+ * compatíveis (MinIO, Ceph, etc.), sem depender do SDK da AWS.
+ */
+final class AssinaturaS3 {
+
+    static final String ALGORITMO = "AWS4-HMAC-SHA256";
+    static final String SHA256_VAZIO = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    static final DateTimeFormatter DATA_HORA =
+        DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final String regiao;
+    private final String chaveAcesso;
+    private final String chaveSecreta;
+
+    AssinaturaS3(String regiao, String chaveAcesso, String chaveSecreta) {
+        this.regiao = regiao;
+        this.chaveAcesso = chaveAcesso;
+        this.chaveSecreta = chaveSecreta;
+    }
+
+    /**
+     * Calcula o cabeçalho Authorization de uma requisição.
+     *
+     * @param metodo Método HTTP
+     * @param caminho Caminho já codificado, como enviado (/bucket/chave)
+     * @param consulta Query string canônica (ver {@link #consultaCanonica})
+     * @param cabecalhos Cabeçalhos assinados, com nomes em minúsculas; deve conter host e x-amz-date
+     * @param sha256Corpo SHA-256 do corpo em hexadecimal (o mesmo de x-amz-content-sha256)
+     * @return Valor do cabeçalho Authorization
+     */
+    String autorizacao(String metodo, String caminho, String consulta, SortedMap<String, String> cabecalhos,
+                       String sha256Corpo) {
+        String dataHora = cabecalhos.get("x-amz-date");
+        String data = dataHora.substring(0, 8);
+        String escopo = data + "/" + regiao + "/s3/aws4_request";
+
+        String cabecalhosCanonicos = cabecalhos.entrySet().stream()
+            .map(c -> c.getKey() + ":" + c.getValue().trim() + "\n")
+            .collect(Collectors.joining());
+        String cabecalhosAssinados = String.join(";", cabecalhos.keySet());
+
+        String requisicaoCanonica = String.join("\n",
+            metodo, caminho, consulta, cabecalhosCanonicos, cabecalhosAssinados, sha256Corpo);
+        String textoAssinado = String.join("\n",
+            ALGORITMO, dataHora, escopo, sha256Hex(requisicaoCanonica.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] chave = hmac(("AWS4" + chaveSecreta).getBytes(StandardCharsets.UTF_8), data);
+        chave = hmac(chave, regiao);
+        chave = hmac(chave, "s3");
+        chave = hmac(chave, "aws4_request");
+        String assinatura = HexFormat.of().formatHex(hmac(chave, textoAssinado));
+
+        return ALGORITMO + " Credential=" + chaveAcesso + "/" + escopo +
+               ", SignedHeaders=" + cabecalhosAssinados + ", Signature=" + assinatura;
+    }
+
+    /**
+     * Monta a query string canônica: parâmetros ordenados e codificados (parâmetro sem valor vira "nome=").
+     */
+    static String consultaCanonica(SortedMap<String, String> parametros) {
+        return parametros.entrySet().stream()
+            .map(p -> codificar(p.getKey(), false) + "=" + codificar(p.getValue(), false))
+            .collect(Collectors.joining("&"));
+    }
+
+    /**
+     * Codifica um texto conforme a RFC 3986, como exigido pela assinatura.
+     *
+     * @param manterBarra true para caminhos (as barras separam os segmentos da chave)
+     */
+    static String codificar(String texto, boolean manterBarra) {
+        String codificado = URLEncoder.encode(texto, StandardCharsets.UTF_8)
+            .replace("+", "%20")
+            .replace("*", "%2A")
+            .replace("%7E", "~");
+        return manterBarra ? codificado.replace("%2F", "/") : codificado;
+    }
+
+    static String sha256Hex(byte[] dados) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(dados));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 não disponível", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] chave, String texto) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(chave, "HmacSHA256"));
+            return mac.doFinal(texto.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 não disponível", e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+-- ===================================================================
+-- Schema inicial - Carpa Contabilidade
+-- ===================================================================
+-- Corresponde ao schema que o Hibernate criava com ddl-auto=update.
+-- Bancos criados dessa forma recebem o baseline (versão 0): o CREATE
+-- TABLE IF NOT EXISTS não altera as tabelas já existentes, então as
+-- colunas acrescentadas depois são criadas pelos ALTER TABLE ... ADD
+-- COLUMN IF NOT EXISTS no final (sem efeito em bancos novos).
+-- ===================================================================
+
+CREATE TABLE IF NOT EXISTS usuarios (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nome VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    senha VARCHAR(255) NOT NULL,
+    tipo_usuario VARCHAR(255) NOT NULL,
+    ativo BOOLEAN NOT NULL,
+    data_criacao TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS documentos (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nome_arquivo VARCHAR(255) NOT NULL,
+    tipo_arquivo VARCHAR(255) NOT NULL,
+    tamanho BIGINT NOT NULL,
+    caminho_storage VARCHAR(500) NOT NULL,
+    mes_referencia INTEGER NOT NULL,
+    ano_referencia INTEGER NOT NULL,
+    usuario_id BIGINT NOT NULL REFERENCES usuarios (id),
+    status VARCHAR(255) NOT NULL,
+    mensagem_erro VARCHAR(1000),
+    data_upload TIMESTAMP(6) NOT NULL,
+    data_processamento TIMESTAMP(6),
+    tentativas INTEGER,
+    proxima_tentativa TIMESTAMP(6),
+    lease_expira_em TIMESTAMP(6),
+    processado_por VARCHAR(100)
+);
+
+CREATE TABLE IF NOT EXISTS relatorios (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    mes_referencia INTEGER NOT NULL,
+    ano_referencia INTEGER NOT NULL,
+    documento_id BIGINT NOT NULL UNIQUE REFERENCES documentos (id),
+    usuario_id BIGINT NOT NULL REFERENCES usuarios (id),
+    receita_total NUMERIC(15, 2) NOT NULL,
+    despesa_total NUMERIC(15, 2) NOT NULL,
+    saldo NUMERIC(15, 2) NOT NULL,
+    margem_lucro NUMERIC(5, 2) NOT NULL,
+    total_transacoes INTEGER NOT NULL,
+    total_receitas INTEGER NOT NULL,
+    total_despesas INTEGER NOT NULL,
+    analises JSONB,
+    data_geracao TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS itens_relatorio (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    relatorio_id BIGINT NOT NULL REFERENCES relatorios (id),
+    data DATE NOT NULL,
+    descricao VARCHAR(500) NOT NULL,
+    categoria VARCHAR(255) NOT NULL,
+    tipo VARCHAR(255) NOT NULL,
+    valor NUMERIC(15, 2) NOT NULL,
+    forma_pagamento VARCHAR(100),
+    centro_custo VARCHAR(100),
+    observacoes VARCHAR(1000)
+);
+
+CREATE TABLE IF NOT EXISTS resumo_mensal_categoria (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    usuario_id BIGINT NOT NULL REFERENCES usuarios (id),
+    ano INTEGER NOT NULL,
+    mes INTEGER NOT NULL,
+    categoria VARCHAR(255) NOT NULL,
+    tipo VARCHAR(255) NOT NULL,
+    total NUMERIC(15, 2) NOT NULL,
+    quantidade INTEGER NOT NULL,
+    CONSTRAINT uk_resumo_mensal_categoria UNIQUE (usuario_id, ano, mes, categoria, tipo)
+);
+
+-- Colunas que não existiam no schema criado pelo ddl-auto=update
+ALTER TABLE documentos ADD COLUMN IF NOT EXISTS tentativas INTEGER;
+ALTER TABLE documentos ADD COLUMN IF NOT EXISTS proxima_tentativa TIMESTAMP(6);
+ALTER TABLE documentos ADD COLUMN IF NOT EXISTS lease_expira_em TIMESTAMP(6);
+ALTER TABLE documentos ADD COLUMN IF NOT EXISTS processado_por VARCHAR(100);
+ALTER TABLE relatorios ADD COLUMN IF NOT EXISTS analises JSONB;
@@ -0,0 +1,52 @@
+-- ===================================================================
+-- Índices para as consultas dos repositories
+-- ===================================================================
+-- Cada índice indica as consultas que atende. Buscas por email
+-- (usuarios) e por documento (relatorios) já usam os índices das
+-- constraints UNIQUE, e as de resumo_mensal_categoria usam o da
+-- constraint uk_resumo_mensal_categoria.
+-- ===================================================================
+
+-- UsuarioRepository.countByTipoUsuario
+CREATE INDEX IF NOT EXISTS idx_usuarios_tipo_usuario ON usuarios (tipo_usuario);
+
+-- DocumentoRepository.findByUsuario, countByUsuario, findByUsuarioOrderByDataUploadDesc
+CREATE INDEX IF NOT EXISTS idx_documentos_usuario_data_upload ON documentos (usuario_id, data_upload DESC);
+
+-- DocumentoRepository.findByUsuarioAndMesReferenciaAndAnoReferencia,
+-- existsByUsuarioAndMesReferenciaAndAnoReferencia
+CREATE INDEX IF NOT EXISTS idx_documentos_usuario_periodo ON documentos (usuario_id, ano_referencia, mes_referencia);
+
+-- DocumentoRepository.findByMesReferenciaAndAnoReferencia
+CREATE INDEX IF NOT EXISTS idx_documentos_periodo ON documentos (ano_referencia, mes_referencia);
+
+-- Fila de processamento: DocumentoRepository.bloquearDisponiveisParaProcessamento e
+-- countByStatus(PENDENTE/PROCESSANDO). Parcial: documentos já processados (a grande
+-- maioria) não entram no índice.
+CREATE INDEX IF NOT EXISTS idx_documentos_fila ON documentos (data_upload)
+    WHERE status IN ('PENDENTE', 'PROCESSANDO');
+
+-- RelatorioRepository.findByUsuario, findByUsuarioOrderByDataGeracaoDesc,
+-- findTop5ByUsuarioOrderByDataGeracaoDesc
+CREATE INDEX IF NOT EXISTS idx_relatorios_usuario_data_geracao ON relatorios (usuario_id, data_geracao DESC);
+
+-- RelatorioRepository.findByUsuarioAndMesReferenciaAndAnoReferencia e totalizarPorMes
+-- (cobre as colunas somadas, permitindo index-only scan)
+CREATE INDEX IF NOT EXISTS idx_relatorios_usuario_periodo ON relatorios (usuario_id, ano_referencia, mes_referencia)
+    INCLUDE (receita_total, despesa_total, total_transacoes);
+
+-- RelatorioRepository.findByMesReferenciaAndAnoReferencia, countByMesReferenciaAndAnoReferencia
+CREATE INDEX IF NOT EXISTS idx_relatorios_periodo ON relatorios (ano_referencia, mes_referencia);
+
+-- ItemRelatorioRepository.findByRelatorio, findByRelatorioOrderByDataAsc, streamPorRelatorio,
+-- excluirPorRelatorio e a paginação por cursor (data, id)
+CREATE INDEX IF NOT EXISTS idx_itens_relatorio_data_id ON itens_relatorio (relatorio_id, data, id);
+
+-- ItemRelatorioRepository.findByRelatorioOrderByValorDesc, findTop10ByRelatorioOrderByValorDesc
+CREATE INDEX IF NOT EXISTS idx_itens_relatorio_valor ON itens_relatorio (relatorio_id, valor DESC);
+
+-- ItemRelatorioRepository.findByRelatorioAndTipo, findTop10ByRelatorioIdAndTipoOrderByValorDesc
+CREATE INDEX IF NOT EXISTS idx_itens_relatorio_tipo_valor ON itens_relatorio (relatorio_id, tipo, valor DESC);
+
+-- ItemRelatorioRepository.findByRelatorioAndCategoria, totalizarPorCategoria
+CREATE INDEX IF NOT EXISTS idx_itens_relatorio_categoria ON itens_relatorio (relatorio_id, categoria);
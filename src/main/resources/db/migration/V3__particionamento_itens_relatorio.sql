@@ -0,0 +1,81 @@
+-- ===================================================================
+-- Particionamento de itens_relatorio por período de referência
+-- ===================================================================
+-- itens_relatorio passa a ser particionada por RANGE na nova coluna
+-- periodo_referencia (primeiro dia do mês de referência do relatório),
+-- com uma partição por mês: itens_relatorio_pAAAA_MM.
+--
+-- Cada partição tem os próprios índices e é limpa pelo autovacuum
+-- separadamente; consultas que informam o período só leem a partição
+-- do mês. As partições de meses futuros são criadas pelo
+-- ParticionamentoItensService, que também arquiva as antigas.
+--
+-- Não há partição DEFAULT: um item sem partição falha no INSERT em vez
+-- de ficar em uma tabela que impediria criar a partição do mês depois.
+-- ===================================================================
+
+-- 1. Tabela atual vira legado; o id deixa de ser IDENTITY para liberar o nome da sequence
+ALTER TABLE itens_relatorio RENAME TO itens_relatorio_legado;
+ALTER TABLE itens_relatorio_legado ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+-- Colunas IDENTITY em tabelas particionadas só são suportadas a partir do PostgreSQL 17
+CREATE SEQUENCE itens_relatorio_id_seq;
+
+-- 2. Tabela particionada (a chave de partição precisa fazer parte da chave primária)
+CREATE TABLE itens_relatorio (
+    id BIGINT NOT NULL DEFAULT nextval('itens_relatorio_id_seq'),
+    relatorio_id BIGINT NOT NULL REFERENCES relatorios (id),
+    periodo_referencia DATE NOT NULL,
+    data DATE NOT NULL,
+    descricao VARCHAR(500) NOT NULL,
+    categoria VARCHAR(255) NOT NULL,
+    tipo VARCHAR(255) NOT NULL,
+    valor NUMERIC(15, 2) NOT NULL,
+    forma_pagamento VARCHAR(100),
+    centro_custo VARCHAR(100),
+    observacoes VARCHAR(1000),
+    PRIMARY KEY (id, periodo_referencia)
+) PARTITION BY RANGE (periodo_referencia);
+
+ALTER SEQUENCE itens_relatorio_id_seq OWNED BY itens_relatorio.id;
+
+-- 3. Uma partição para cada mês que já tem relatório
+DO $$
+DECLARE
+    periodo DATE;
+BEGIN
+    FOR periodo IN
+        SELECT DISTINCT make_date(ano_referencia, mes_referencia, 1) FROM relatorios
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF itens_relatorio FOR VALUES FROM (%L) TO (%L)',
+                       'itens_relatorio_p' || to_char(periodo, 'YYYY_MM'),
+                       periodo, (periodo + INTERVAL '1 month')::date);
+    END LOOP;
+END $$;
+
+-- 4. Cópia dos itens existentes, com o período do relatório
+INSERT INTO itens_relatorio (id, relatorio_id, periodo_referencia, data, descricao, categoria, tipo,
+                             valor, forma_pagamento, centro_custo, observacoes)
+SELECT i.id, i.relatorio_id, make_date(r.ano_referencia, r.mes_referencia, 1), i.data, i.descricao,
+       i.categoria, i.tipo, i.valor, i.forma_pagamento, i.centro_custo, i.observacoes
+FROM itens_relatorio_legado i
+JOIN relatorios r ON r.id = i.relatorio_id;
+
+SELECT setval('itens_relatorio_id_seq', COALESCE((SELECT MAX(id) FROM itens_relatorio), 0) + 1, false);
+
+DROP TABLE itens_relatorio_legado;
+
+-- 5. Índices (criados em cada partição, atual e futura). O período não precisa estar
+-- nos índices: cada partição contém um único mês.
+
+-- ItemRelatorioRepository.streamPorRelatorio, excluirPorRelatorio e a paginação por cursor (data, id)
+CREATE INDEX idx_itens_relatorio_data_id ON itens_relatorio (relatorio_id, data, id);
+
+-- ItemRelatorioRepository.findByRelatorioOrderByValorDesc, findTop10ByRelatorioOrderByValorDesc
+CREATE INDEX idx_itens_relatorio_valor ON itens_relatorio (relatorio_id, valor DESC);
+
+-- ItemRelatorioRepository.findTop10ByRelatorioIdAndPeriodoReferenciaAndTipoOrderByValorDesc
+CREATE INDEX idx_itens_relatorio_tipo_valor ON itens_relatorio (relatorio_id, tipo, valor DESC);
+
+-- ItemRelatorioRepository.totalizarPorCategoria
+CREATE INDEX idx_itens_relatorio_categoria ON itens_relatorio (relatorio_id, categoria);
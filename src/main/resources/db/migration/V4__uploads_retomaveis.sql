@@ -0,0 +1,24 @@
+-- ===================================================================
+-- Uploads retomáveis (envio em partes com Content-Range)
+-- ===================================================================
+-- Cada linha é um upload em andamento; as partes são gravadas em
+-- uploads/.parciais/{id}.part e a linha é removida quando o arquivo é
+-- concluído (virando um documento), cancelado ou expirado.
+-- ===================================================================
+
+CREATE TABLE uploads_retomaveis (
+    id VARCHAR(36) PRIMARY KEY,
+    -- Exclusão do usuário remove os uploads em andamento (os arquivos temporários expiram)
+    usuario_id BIGINT NOT NULL REFERENCES usuarios (id) ON DELETE CASCADE,
+    nome_arquivo VARCHAR(255) NOT NULL,
+    tamanho BIGINT NOT NULL,
+    recebido BIGINT NOT NULL,
+    mes_referencia INTEGER NOT NULL,
+    ano_referencia INTEGER NOT NULL,
+    sha256 VARCHAR(64),
+    data_criacao TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6) NOT NULL
+);
+
+-- UploadRetomavelRepository.findByDataAtualizacaoBefore (limpeza dos uploads abandonados)
+CREATE INDEX idx_uploads_retomaveis_atualizacao ON uploads_retomaveis (data_atualizacao);
@@ -0,0 +1,14 @@
+-- ===================================================================
+-- Armazenamento por conteúdo
+-- ===================================================================
+-- O SHA-256 de cada arquivo é calculado durante a gravação. Com
+-- app.upload.armazenamento-por-conteudo=true, documentos com o mesmo
+-- conteúdo compartilham um único arquivo (uploads/conteudo/ab/abcd...)
+-- e o arquivo só é removido quando nenhum documento aponta para ele.
+-- Documentos anteriores ficam com sha256 nulo e o arquivo próprio.
+-- ===================================================================
+
+ALTER TABLE documentos ADD COLUMN IF NOT EXISTS sha256 VARCHAR(64);
+
+-- DocumentoRepository.existsByCaminhoStorageAndIdNot (contagem de referências ao excluir)
+CREATE INDEX idx_documentos_caminho_storage ON documentos (caminho_storage);
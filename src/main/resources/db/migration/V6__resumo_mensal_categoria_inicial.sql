@@ -0,0 +1,16 @@
+-- ===================================================================
+-- Preenchimento inicial do resumo mensal por categoria
+-- ===================================================================
+-- Bases com relatórios anteriores ao resumo recebem os totais a partir
+-- dos itens, uma única vez e antes da aplicação subir. Dali em diante o
+-- ResumoMensalService mantém o resumo junto com cada relatório gerado ou
+-- excluído. Linhas já existentes (bases em que o resumo já era mantido)
+-- não são alteradas.
+-- ===================================================================
+
+INSERT INTO resumo_mensal_categoria (usuario_id, ano, mes, categoria, tipo, total, quantidade)
+SELECT r.usuario_id, r.ano_referencia, r.mes_referencia, i.categoria, i.tipo, SUM(i.valor), COUNT(*)
+FROM itens_relatorio i
+JOIN relatorios r ON r.id = i.relatorio_id
+GROUP BY r.usuario_id, r.ano_referencia, r.mes_referencia, i.categoria, i.tipo
+ON CONFLICT (usuario_id, ano, mes, categoria, tipo) DO NOTHING;
@@ -0,0 +1,50 @@
+package com.carpa.contabilidade;
+
+import java.util.function.Supplier;
+
+/**
+ * Medição simples de tempo para os benchmarks dos testes (tag "benchmark").
+ *
+ * Os benchmarks não rodam no "gradle test"; use "gradle benchmark". Os números são indicativos:
+ * cada medição roda depois de um aquecimento para o JIT compilar o código medido.
+ */
+public final class Benchmark {
+
+    /**
+     * Tag JUnit dos benchmarks, excluída da tarefa test.
+     */
+    public static final String TAG = "benchmark";
+
+    // Impede que o JIT elimine o código medido por não usar o resultado
+    private static volatile Object consumido;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Executa a operação em rodadas de aquecimento e de medição e imprime o tempo médio.
+     *
+     * @param nome Nome exibido no resultado
+     * @param rodadas Quantidade de rodadas de aquecimento e de medição
+     * @param operacao Operação medida; o resultado é consumido para não ser descartado pelo JIT
+     * @return Menor tempo de uma rodada, em nanossegundos
+     */
+    public static long medir(String nome, int rodadas, Supplier<?> operacao) {
+        for (int i = 0; i < rodadas; i++) {
+            consumido = operacao.get();
+        }
+
+        long menor = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < rodadas; i++) {
+            long inicio = System.nanoTime();
+            consumido = operacao.get();
+            long duracao = System.nanoTime() - inicio;
+            menor = Math.min(menor, duracao);
+            total += duracao;
+        }
+
+        System.out.printf("%-45s melhor %,12d ns   média %,12d ns%n", nome, menor, total / rodadas);
+        return menor;
+    }
+}
@@ -0,0 +1,206 @@
+package com.carpa.contabilidade.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica com EXPLAIN que as consultas dos repositories usam os índices criados pelas
+ * migrações (V2, recriados para itens_relatorio na V3, e V5).
+ *
+ * Precisa de um PostgreSQL: informe CARPA_TEST_DB_URL (e CARPA_TEST_DB_USER/CARPA_TEST_DB_PASSWORD).
+ * As migrações rodam em um schema temporário, removido ao final. O seq scan é desligado para
+ * que o plano mostre qual índice o planejador escolhe mesmo com as tabelas vazias; um Seq Scan
+ * no plano significa que nenhum índice atende a consulta. Os planos são impressos na saída.
+ */
+@EnabledIfEnvironmentVariable(named = "CARPA_TEST_DB_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class IndicesConsultasTest {
+
+    private static final Pattern INDICE_NO_PLANO =
+        Pattern.compile("(?:Index Scan|Index Only Scan|Bitmap Index Scan)(?: Backward)? (?:using|on) (\\S+)");
+
+    private final String schema = "explain_" + System.nanoTime();
+    private Connection conexao;
+
+    @BeforeAll
+    void migrar() throws SQLException {
+        String url = System.getenv("CARPA_TEST_DB_URL");
+        String usuario = System.getenv().getOrDefault("CARPA_TEST_DB_USER", "postgres");
+        String senha = System.getenv().getOrDefault("CARPA_TEST_DB_PASSWORD", "postgres");
+
+        Flyway.configure()
+            .dataSource(url, usuario, senha)
+            .schemas(schema)
+            .locations("classpath:db/migration")
+            .load()
+            .migrate();
+
+        conexao = DriverManager.getConnection(url, usuario, senha);
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("SET search_path TO " + schema);
+            // Partição de um mês, como as criadas pelo ParticionamentoItensService
+            statement.execute("CREATE TABLE itens_relatorio_p2024_05 PARTITION OF itens_relatorio " +
+                              "FOR VALUES FROM ('2024-05-01') TO ('2024-06-01')");
+            statement.execute("ANALYZE");
+            statement.execute("SET enable_seqscan = off");
+        }
+    }
+
+    @AfterAll
+    void removerSchema() throws SQLException {
+        if (conexao == null) {
+            return;
+        }
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("DROP SCHEMA " + schema + " CASCADE");
+        } finally {
+            conexao.close();
+        }
+    }
+
+    /**
+     * Consulta (SQL equivalente ao gerado pelo Hibernate) e índices aceitos; o primeiro é o
+     * indicado no comentário da migração.
+     */
+    static Stream<Arguments> consultas() {
+        return Stream.of(
+            consulta("UsuarioRepository.countByTipoUsuario",
+                "SELECT count(*) FROM usuarios WHERE tipo_usuario = 'CLIENTE'",
+                "idx_usuarios_tipo_usuario"),
+            consulta("DocumentoRepository.listarResumos / findByUsuarioOrderByDataUploadDesc",
+                "SELECT id, nome_arquivo FROM documentos WHERE usuario_id = 1 ORDER BY data_upload DESC",
+                "idx_documentos_usuario_data_upload"),
+            consulta("DocumentoRepository.countByUsuario",
+                "SELECT count(*) FROM documentos WHERE usuario_id = 1",
+                "idx_documentos_usuario_data_upload", "idx_documentos_usuario_periodo"),
+            consulta("DocumentoRepository.findFirstByUsuarioAndMesReferenciaAndAnoReferencia",
+                "SELECT id FROM documentos WHERE usuario_id = 1 AND mes_referencia = 5 AND ano_referencia = 2024 LIMIT 1",
+                "idx_documentos_usuario_periodo"),
+            consulta("DocumentoRepository.findByMesReferenciaAndAnoReferencia",
+                "SELECT id FROM documentos WHERE mes_referencia = 5 AND ano_referencia = 2024",
+                "idx_documentos_periodo"),
+            consulta("DocumentoRepository.bloquearDisponiveisParaProcessamento",
+                "SELECT id FROM documentos WHERE status = 'PENDENTE' " +
+                "AND (proxima_tentativa IS NULL OR proxima_tentativa <= now()) " +
+                "ORDER BY data_upload LIMIT 10 FOR UPDATE SKIP LOCKED",
+                "idx_documentos_fila"),
+            consulta("DocumentoRepository.bloquearComLeaseExpirado",
+                "SELECT * FROM documentos WHERE status = 'PROCESSANDO' AND lease_expira_em < now() " +
+                "ORDER BY lease_expira_em LIMIT 100 FOR UPDATE SKIP LOCKED",
+                "idx_documentos_fila"),
+            consulta("DocumentoRepository.countByStatus(PENDENTE)",
+                "SELECT count(*) FROM documentos WHERE status = 'PENDENTE'",
+                "idx_documentos_fila"),
+            consulta("DocumentoRepository.existsByCaminhoStorageAndIdNot",
+                "SELECT id FROM documentos WHERE caminho_storage = 'conteudo/ab/abcd' AND id <> 1 LIMIT 1",
+                "idx_documentos_caminho_storage"),
+            consulta("RelatorioRepository.listarResumos",
+                "SELECT id, mes_referencia FROM relatorios WHERE usuario_id = 1 ORDER BY data_geracao DESC LIMIT 20",
+                "idx_relatorios_usuario_data_geracao"),
+            consulta("RelatorioRepository.findByUsuarioAndMesReferenciaAndAnoReferencia",
+                "SELECT id FROM relatorios WHERE usuario_id = 1 AND mes_referencia = 5 AND ano_referencia = 2024",
+                "idx_relatorios_usuario_periodo"),
+            consulta("RelatorioRepository.totalizarPorMes",
+                "SELECT ano_referencia, mes_referencia, sum(receita_total), sum(despesa_total), sum(total_transacoes) " +
+                "FROM relatorios WHERE usuario_id = 1 AND ano_referencia * 12 + mes_referencia - 1 BETWEEN 24276 AND 24287 " +
+                "GROUP BY ano_referencia, mes_referencia ORDER BY ano_referencia, mes_referencia",
+                "idx_relatorios_usuario_periodo", "idx_relatorios_usuario_data_geracao"),
+            consulta("RelatorioRepository.countByMesReferenciaAndAnoReferencia",
+                "SELECT count(*) FROM relatorios WHERE mes_referencia = 5 AND ano_referencia = 2024",
+                "idx_relatorios_periodo"),
+            consulta("ItemRelatorioRepository.streamPorRelatorio",
+                "SELECT * FROM itens_relatorio WHERE relatorio_id = 1 AND periodo_referencia = '2024-05-01' " +
+                "ORDER BY data, id",
+                "idx_itens_relatorio_data_id"),
+            consulta("ItemRelatorioRepository.excluirPorRelatorio",
+                "DELETE FROM itens_relatorio WHERE relatorio_id = 1 AND periodo_referencia = '2024-05-01'",
+                "idx_itens_relatorio_data_id", "idx_itens_relatorio_valor",
+                "idx_itens_relatorio_tipo_valor", "idx_itens_relatorio_categoria"),
+            consulta("ItemRelatorioRepository.findTop10ByRelatorioOrderByValorDesc",
+                "SELECT * FROM itens_relatorio WHERE relatorio_id = 1 ORDER BY valor DESC LIMIT 10",
+                "idx_itens_relatorio_valor"),
+            consulta("ItemRelatorioRepository.findTop10ByRelatorioIdAndPeriodoReferenciaAndTipoOrderByValorDesc",
+                "SELECT * FROM itens_relatorio WHERE relatorio_id = 1 AND periodo_referencia = '2024-05-01' " +
+                "AND tipo = 'DESPESA' ORDER BY valor DESC LIMIT 10",
+                "idx_itens_relatorio_tipo_valor"),
+            consulta("ItemRelatorioRepository.totalizarPorCategoria",
+                "SELECT categoria, tipo, sum(valor), count(*) FROM itens_relatorio " +
+                "WHERE relatorio_id = 1 AND periodo_referencia = '2024-05-01' GROUP BY categoria, tipo",
+                "idx_itens_relatorio_categoria", "idx_itens_relatorio_data_id",
+                "idx_itens_relatorio_valor", "idx_itens_relatorio_tipo_valor")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("consultas")
+    void consultaUsaIndice(String nome, String sql, List<String> indicesAceitos) throws SQLException {
+        String plano = explicar(sql);
+        Set<String> usados = indicesUsados(plano);
+
+        System.out.printf("%s -> %s%n%s%n", nome, usados, plano);
+
+        assertThat(plano).as(nome).doesNotContain("Seq Scan");
+        assertThat(usados).as(nome).isNotEmpty().containsAnyElementsOf(indicesAceitos);
+    }
+
+    private static Arguments consulta(String nome, String sql, String... indicesAceitos) {
+        return Arguments.of(nome, sql, List.of(indicesAceitos));
+    }
+
+    private String explicar(String sql) throws SQLException {
+        StringBuilder plano = new StringBuilder();
+        // DELETE e FOR UPDATE também são só planejados: EXPLAIN sem ANALYZE não executa a consulta
+        try (Statement statement = conexao.createStatement();
+             ResultSet resultado = statement.executeQuery("EXPLAIN " + sql)) {
+            while (resultado.next()) {
+                plano.append(resultado.getString(1)).append('\n');
+            }
+        }
+        return plano.toString();
+    }
+
+    /**
+     * Índices citados no plano. Índices de partição são trocados pelo índice da tabela
+     * particionada de que foram criados (o nome definido na migração).
+     */
+    private Set<String> indicesUsados(String plano) throws SQLException {
+        Set<String> indices = new LinkedHashSet<>();
+        Matcher matcher = INDICE_NO_PLANO.matcher(plano);
+        while (matcher.find()) {
+            indices.add(indiceRaiz(matcher.group(1)));
+        }
+        return indices;
+    }
+
+    private String indiceRaiz(String indice) throws SQLException {
+        String sql = "SELECT c.relname FROM pg_inherits h JOIN pg_class c ON c.oid = h.inhparent " +
+                     "WHERE h.inhrelid = to_regclass(?)";
+        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+            statement.setString(1, indice);
+            try (ResultSet resultado = statement.executeQuery()) {
+                return resultado.next() ? resultado.getString(1) : indice;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.carpa.contabilidade.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica a atualização de um banco criado pelo ddl-auto=update, antes do Flyway: o schema
+ * de db/baseline/schema_ddl_auto.sql recebe o baseline (versão 0) e as migrações a partir da V1.
+ * Ao final as tabelas precisam ter as mesmas colunas de um banco migrado do zero (senão o
+ * ddl-auto=validate falha na subida), os dados existentes precisam ter sido mantidos e o
+ * resumo mensal (V6) precisa ter sido preenchido a partir deles.
+ *
+ * Precisa de um PostgreSQL: informe CARPA_TEST_DB_URL (e CARPA_TEST_DB_USER/CARPA_TEST_DB_PASSWORD).
+ * Os dois bancos são schemas temporários, removidos ao final.
+ */
+@EnabledIfEnvironmentVariable(named = "CARPA_TEST_DB_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MigracaoBaselineTest {
+
+    private final String schemaNovo = "migracao_novo_" + System.nanoTime();
+    private final String schemaBaseline = "migracao_baseline_" + System.nanoTime();
+    private String url;
+    private String usuario;
+    private String senha;
+    private Connection conexao;
+
+    @BeforeAll
+    void migrar() throws SQLException, IOException {
+        url = System.getenv("CARPA_TEST_DB_URL");
+        usuario = System.getenv().getOrDefault("CARPA_TEST_DB_USER", "postgres");
+        senha = System.getenv().getOrDefault("CARPA_TEST_DB_PASSWORD", "postgres");
+        conexao = DriverManager.getConnection(url, usuario, senha);
+
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("CREATE SCHEMA " + schemaBaseline);
+            statement.execute("SET search_path TO " + schemaBaseline);
+            statement.execute(lerRecurso("/db/baseline/schema_ddl_auto.sql"));
+            statement.execute("SET search_path TO public");
+        }
+
+        migrar(schemaNovo);
+        migrar(schemaBaseline);
+    }
+
+    @AfterAll
+    void removerSchemas() throws SQLException {
+        if (conexao == null) {
+            return;
+        }
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + schemaNovo + " CASCADE");
+            statement.execute("DROP SCHEMA IF EXISTS " + schemaBaseline + " CASCADE");
+        } finally {
+            conexao.close();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"usuarios", "documentos", "relatorios", "itens_relatorio"})
+    void tabelaAtualizadaTemAsColunasDeUmBancoNovo(String tabela) throws SQLException {
+        Set<String> esperadas = colunas(schemaNovo, tabela);
+
+        assertThat(esperadas).isNotEmpty();
+        assertThat(colunas(schemaBaseline, tabela)).as(tabela).isEqualTo(esperadas);
+    }
+
+    @Test
+    void baselineFoiAplicadoAntesDasMigracoes() throws SQLException {
+        List<String> versoes = consultar(
+            "SELECT version FROM " + schemaBaseline + ".flyway_schema_history ORDER BY installed_rank");
+
+        assertThat(versoes).first().isEqualTo("0");
+        assertThat(versoes).contains("1", "3");
+    }
+
+    @Test
+    void itensExistentesForamCopiadosParaATabelaParticionada() throws SQLException {
+        List<String> itens = consultar(
+            "SELECT descricao || ' ' || periodo_referencia || ' ' || valor FROM " + schemaBaseline +
+            ".itens_relatorio ORDER BY id");
+
+        assertThat(itens).containsExactly("Venda 2024-05-01 1000.00", "Aluguel 2024-05-01 300.00");
+    }
+
+    @Test
+    void resumoMensalFoiPreenchidoComOsRelatoriosExistentes() throws SQLException {
+        List<String> resumo = consultar(
+            "SELECT ano || '/' || mes || ' ' || categoria || ' ' || tipo || ' ' || total || ' ' || quantidade " +
+            "FROM " + schemaBaseline + ".resumo_mensal_categoria ORDER BY categoria");
+
+        assertThat(resumo).containsExactly("2024/5 Aluguel DESPESA 300.00 1", "2024/5 Vendas RECEITA 1000.00 1");
+    }
+
+    private void migrar(String schema) {
+        Flyway.configure()
+            .dataSource(url, usuario, senha)
+            .schemas(schema)
+            .locations("classpath:db/migration")
+            .baselineOnMigrate(true)
+            .baselineVersion("0")
+            .load()
+            .migrate();
+    }
+
+    /**
+     * Colunas da tabela com tipo, tamanho e nulabilidade, no formato "nome tipo(tamanho) null".
+     */
+    private Set<String> colunas(String schema, String tabela) throws SQLException {
+        String sql = "SELECT column_name, data_type, character_maximum_length, numeric_precision, " +
+                     "numeric_scale, is_nullable FROM information_schema.columns " +
+                     "WHERE table_schema = ? AND table_name = ?";
+        Set<String> colunas = new TreeSet<>();
+        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+            statement.setString(1, schema);
+            statement.setString(2, tabela);
+            try (ResultSet resultado = statement.executeQuery()) {
+                while (resultado.next()) {
+                    colunas.add(String.format("%s %s(%s,%s,%s) %s",
+                        resultado.getString(1), resultado.getString(2), resultado.getString(3),
+                        resultado.getString(4), resultado.getString(5),
+                        "YES".equals(resultado.getString(6)) ? "null" : "not null"));
+                }
+            }
+        }
+        return colunas;
+    }
+
+    private List<String> consultar(String sql) throws SQLException {
+        List<String> linhas = new ArrayList<>();
+        try (Statement statement = conexao.createStatement();
+             ResultSet resultado = statement.executeQuery(sql)) {
+            while (resultado.next()) {
+                linhas.add(resultado.getString(1));
+            }
+        }
+        return linhas;
+    }
+
+    private static String lerRecurso(String caminho) throws IOException {
+        try (InputStream entrada = MigracaoBaselineTest.class.getResourceAsStream(caminho)) {
+            if (entrada == null) {
+                throw new IOException("Recurso não encontrado: " + caminho);
+            }
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
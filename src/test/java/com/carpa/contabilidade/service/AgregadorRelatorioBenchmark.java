@@ -0,0 +1,46 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.Benchmark;
+import com.carpa.contabilidade.model.ItemRelatorio;
+import com.carpa.contabilidade.model.Relatorio;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara o AgregadorRelatorio com o cálculo anterior (métricas com BigDecimal e análises
+ * em Map&lt;String, Object&gt; no controller, com ordenação completa para o top 10) sobre
+ * 1 milhão de itens já carregados em memória.
+ */
+@Tag(Benchmark.TAG)
+class AgregadorRelatorioBenchmark {
+
+    private static final int ITENS = 1_000_000;
+
+    @Test
+    void agregar() {
+        List<ItemRelatorio> itens = AgregadorRelatorioTest.gerarItens(ITENS, 7L);
+
+        long anterior = Benchmark.medir("Cálculo anterior (" + ITENS + " itens)", 5, () -> {
+            AnaliseRelatorioLegada.calcularMetricas(new Relatorio(), itens);
+            return List.of(
+                AnaliseRelatorioLegada.analisarPorCategoria(itens),
+                AnaliseRelatorioLegada.analisarPorCentroCusto(itens),
+                AnaliseRelatorioLegada.analisarPorFormaPagamento(itens),
+                AnaliseRelatorioLegada.obterTop10Receitas(itens),
+                AnaliseRelatorioLegada.obterTop10Despesas(itens));
+        });
+        long atual = Benchmark.medir("AgregadorRelatorio (" + ITENS + " itens)", 5, () -> {
+            AgregadorRelatorio agregador = new AgregadorRelatorio();
+            itens.forEach(agregador::adicionar);
+            agregador.aplicarMetricas(new Relatorio());
+            return agregador.gerarAnalises();
+        });
+
+        System.out.printf("AgregadorRelatorio: %.1fx mais rápido%n", (double) anterior / atual);
+        assertThat(atual).isPositive();
+    }
+}
@@ -0,0 +1,135 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.AnalisesRelatorio;
+import com.carpa.contabilidade.model.ItemRelatorio;
+import com.carpa.contabilidade.model.Relatorio;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgregadorRelatorioTest {
+
+    @Test
+    void metricasEAnalisesEquivalemAoCalculoAnterior() {
+        List<ItemRelatorio> itens = gerarItens(50_000, 42L);
+
+        AgregadorRelatorio agregador = new AgregadorRelatorio();
+        itens.forEach(agregador::adicionar);
+        Relatorio relatorio = new Relatorio();
+        agregador.aplicarMetricas(relatorio);
+        AnalisesRelatorio analises = agregador.gerarAnalises();
+
+        Relatorio esperado = new Relatorio();
+        AnaliseRelatorioLegada.calcularMetricas(esperado, itens);
+
+        assertThat(relatorio.getReceitaTotal()).isEqualByComparingTo(esperado.getReceitaTotal());
+        assertThat(relatorio.getDespesaTotal()).isEqualByComparingTo(esperado.getDespesaTotal());
+        assertThat(relatorio.getSaldo()).isEqualByComparingTo(esperado.getSaldo());
+        assertThat(relatorio.getMargemLucro()).isEqualByComparingTo(esperado.getMargemLucro());
+        assertThat(relatorio.getTotalTransacoes()).isEqualTo(esperado.getTotalTransacoes());
+        assertThat(relatorio.getTotalReceitas()).isEqualTo(esperado.getTotalReceitas());
+        assertThat(relatorio.getTotalDespesas()).isEqualTo(esperado.getTotalDespesas());
+
+        // Cada categoria gerada tem um único tipo, então o agrupamento anterior (só por categoria) é comparável
+        assertThat(analises.getPorCategoria().stream().collect(Collectors.toMap(
+                AnalisesRelatorio.TotalCategoria::categoria, c -> List.of(c.total(), c.quantidade()))))
+            .isEqualTo(AnaliseRelatorioLegada.analisarPorCategoria(itens).stream().collect(Collectors.toMap(
+                c -> (String) c.get("categoria"),
+                c -> List.of((BigDecimal) c.get("total"), ((Integer) c.get("quantidade")).longValue()))));
+
+        assertThat(analises.getPorCentroCusto().stream().collect(Collectors.toMap(
+                AnalisesRelatorio.TotalCentroCusto::centroCusto, c -> List.of(c.receitas(), c.despesas(), c.resultado()))))
+            .isEqualTo(porChave(AnaliseRelatorioLegada.analisarPorCentroCusto(itens),
+                                "centroCusto", "receitas", "despesas", "resultado"));
+
+        assertThat(analises.getPorFormaPagamento().stream().collect(Collectors.toMap(
+                AnalisesRelatorio.TotalFormaPagamento::formaPagamento,
+                f -> List.of(f.receitas(), f.despesas(), f.totalMovimentado()))))
+            .isEqualTo(porChave(AnaliseRelatorioLegada.analisarPorFormaPagamento(itens),
+                                "formaPagamento", "receitas", "despesas", "totalMovimentado"));
+
+        assertThat(analises.getTop10Receitas())
+            .isEqualTo(destaques(AnaliseRelatorioLegada.obterTop10Receitas(itens)));
+        assertThat(analises.getTop10Despesas())
+            .isEqualTo(destaques(AnaliseRelatorioLegada.obterTop10Despesas(itens)));
+    }
+
+    @Test
+    void empatesNoTop10MantemOItemMaisAntigo() {
+        List<ItemRelatorio> itens = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            itens.add(item("Empate " + i, "Vendas", ItemRelatorio.TipoTransacao.RECEITA, "100.00", null, null));
+        }
+
+        AgregadorRelatorio agregador = new AgregadorRelatorio();
+        itens.forEach(agregador::adicionar);
+
+        assertThat(agregador.gerarAnalises().getTop10Receitas())
+            .extracting(AnalisesRelatorio.Destaque::descricao)
+            .containsExactly("Empate 0", "Empate 1", "Empate 2", "Empate 3", "Empate 4",
+                             "Empate 5", "Empate 6", "Empate 7", "Empate 8", "Empate 9");
+    }
+
+    @Test
+    void valoresComMaisCasasSaoArredondados() {
+        assertThat(AgregadorRelatorio.centavos(new BigDecimal("10.005"))).isEqualTo(1001);
+        assertThat(AgregadorRelatorio.centavos(new BigDecimal("-10.005"))).isEqualTo(-1001);
+        assertThat(AgregadorRelatorio.centavos(new BigDecimal("7"))).isEqualTo(700);
+    }
+
+    /**
+     * Gera itens com valores de duas casas, alguns repetidos, e centro de custo e forma
+     * de pagamento às vezes ausentes.
+     */
+    static List<ItemRelatorio> gerarItens(int quantidade, long semente) {
+        Random aleatorio = new Random(semente);
+        String[] centros = {"Administrativo", "Comercial", "Produção", null};
+        String[] formas = {"PIX", "Boleto", "Cartão", "Dinheiro", null};
+
+        List<ItemRelatorio> itens = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            boolean receita = aleatorio.nextInt(3) == 0;
+            ItemRelatorio.TipoTransacao tipo = receita
+                ? ItemRelatorio.TipoTransacao.RECEITA : ItemRelatorio.TipoTransacao.DESPESA;
+            String categoria = (receita ? "Receita " : "Despesa ") + aleatorio.nextInt(20);
+            String valor = BigDecimal.valueOf(aleatorio.nextInt(5_000_000), 2).toPlainString();
+
+            itens.add(item("Item " + i, categoria, tipo, valor,
+                           centros[aleatorio.nextInt(centros.length)], formas[aleatorio.nextInt(formas.length)]));
+        }
+        return itens;
+    }
+
+    private static ItemRelatorio item(String descricao, String categoria, ItemRelatorio.TipoTransacao tipo,
+                                      String valor, String centroCusto, String formaPagamento) {
+        ItemRelatorio item = new ItemRelatorio();
+        item.setData(LocalDate.of(2024, 5, 1));
+        item.setDescricao(descricao);
+        item.setCategoria(categoria);
+        item.setTipo(tipo);
+        item.setValor(new BigDecimal(valor));
+        item.setCentroCusto(centroCusto);
+        item.setFormaPagamento(formaPagamento);
+        return item;
+    }
+
+    private static Map<String, List<BigDecimal>> porChave(List<Map<String, Object>> linhas, String chave,
+                                                          String... valores) {
+        return linhas.stream().collect(Collectors.toMap(
+            linha -> (String) linha.get(chave),
+            linha -> Arrays.stream(valores).map(v -> (BigDecimal) linha.get(v)).toList()));
+    }
+
+    private static List<AnalisesRelatorio.Destaque> destaques(List<ItemRelatorio> itens) {
+        return itens.stream().map(AnalisesRelatorio.Destaque::de).toList();
+    }
+}
@@ -0,0 +1,150 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.ItemRelatorio;
+import com.carpa.contabilidade.model.Relatorio;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cálculo anterior das métricas (RelatorioService.calcularMetricas) e das análises do dashboard
+ * (RelatorioController), mantido nos testes como referência de resultado e de desempenho
+ * para o AgregadorRelatorio.
+ */
+final class AnaliseRelatorioLegada {
+
+    private AnaliseRelatorioLegada() {
+    }
+
+    static void calcularMetricas(Relatorio relatorio, List<ItemRelatorio> itens) {
+        BigDecimal receitaTotal = BigDecimal.ZERO;
+        BigDecimal despesaTotal = BigDecimal.ZERO;
+        int totalReceitas = 0;
+        int totalDespesas = 0;
+
+        for (ItemRelatorio item : itens) {
+            if (item.getTipo() == ItemRelatorio.TipoTransacao.RECEITA) {
+                receitaTotal = receitaTotal.add(item.getValor());
+                totalReceitas++;
+            } else {
+                despesaTotal = despesaTotal.add(item.getValor());
+                totalDespesas++;
+            }
+        }
+
+        BigDecimal saldo = receitaTotal.subtract(despesaTotal);
+
+        BigDecimal margemLucro = BigDecimal.ZERO;
+        if (receitaTotal.compareTo(BigDecimal.ZERO) > 0) {
+            margemLucro = saldo
+                .multiply(BigDecimal.valueOf(100))
+                .divide(receitaTotal, 2, RoundingMode.HALF_UP);
+        }
+
+        relatorio.setReceitaTotal(receitaTotal);
+        relatorio.setDespesaTotal(despesaTotal);
+        relatorio.setSaldo(saldo);
+        relatorio.setMargemLucro(margemLucro);
+        relatorio.setTotalTransacoes(itens.size());
+        relatorio.setTotalReceitas(totalReceitas);
+        relatorio.setTotalDespesas(totalDespesas);
+    }
+
+    static List<Map<String, Object>> analisarPorCategoria(List<ItemRelatorio> itens) {
+        Map<String, Map<String, Object>> categorias = new HashMap<>();
+
+        for (ItemRelatorio item : itens) {
+            String categoria = item.getCategoria();
+            categorias.putIfAbsent(categoria, new HashMap<>());
+
+            Map<String, Object> dados = categorias.get(categoria);
+            BigDecimal totalAtual = (BigDecimal) dados.getOrDefault("total", BigDecimal.ZERO);
+            Integer qtdAtual = (Integer) dados.getOrDefault("quantidade", 0);
+
+            dados.put("categoria", categoria);
+            dados.put("total", totalAtual.add(item.getValor()));
+            dados.put("quantidade", qtdAtual + 1);
+            dados.put("tipo", item.getTipo().toString());
+        }
+
+        return new ArrayList<>(categorias.values());
+    }
+
+    static List<Map<String, Object>> analisarPorCentroCusto(List<ItemRelatorio> itens) {
+        Map<String, Map<String, Object>> centros = new HashMap<>();
+
+        for (ItemRelatorio item : itens) {
+            String centro = item.getCentroCusto() != null ? item.getCentroCusto() : "Não informado";
+            centros.putIfAbsent(centro, new HashMap<>());
+
+            Map<String, Object> dados = centros.get(centro);
+            BigDecimal receitaAtual = (BigDecimal) dados.getOrDefault("receitas", BigDecimal.ZERO);
+            BigDecimal despesaAtual = (BigDecimal) dados.getOrDefault("despesas", BigDecimal.ZERO);
+
+            dados.put("centroCusto", centro);
+
+            if (item.getTipo() == ItemRelatorio.TipoTransacao.RECEITA) {
+                dados.put("receitas", receitaAtual.add(item.getValor()));
+                dados.put("despesas", despesaAtual);
+            } else {
+                dados.put("receitas", receitaAtual);
+                dados.put("despesas", despesaAtual.add(item.getValor()));
+            }
+
+            BigDecimal receita = (BigDecimal) dados.get("receitas");
+            BigDecimal despesa = (BigDecimal) dados.get("despesas");
+            dados.put("resultado", receita.subtract(despesa));
+        }
+
+        return new ArrayList<>(centros.values());
+    }
+
+    static List<Map<String, Object>> analisarPorFormaPagamento(List<ItemRelatorio> itens) {
+        Map<String, Map<String, Object>> formas = new HashMap<>();
+
+        for (ItemRelatorio item : itens) {
+            String forma = item.getFormaPagamento() != null ? item.getFormaPagamento() : "Não informado";
+            formas.putIfAbsent(forma, new HashMap<>());
+
+            Map<String, Object> dados = formas.get(forma);
+            BigDecimal receitaAtual = (BigDecimal) dados.getOrDefault("receitas", BigDecimal.ZERO);
+            BigDecimal despesaAtual = (BigDecimal) dados.getOrDefault("despesas", BigDecimal.ZERO);
+
+            dados.put("formaPagamento", forma);
+
+            if (item.getTipo() == ItemRelatorio.TipoTransacao.RECEITA) {
+                dados.put("receitas", receitaAtual.add(item.getValor()));
+                dados.put("despesas", despesaAtual);
+            } else {
+                dados.put("receitas", receitaAtual);
+                dados.put("despesas", despesaAtual.add(item.getValor()));
+            }
+
+            BigDecimal total = ((BigDecimal) dados.get("receitas")).add((BigDecimal) dados.get("despesas"));
+            dados.put("totalMovimentado", total);
+        }
+
+        return new ArrayList<>(formas.values());
+    }
+
+    static List<ItemRelatorio> obterTop10Receitas(List<ItemRelatorio> itens) {
+        return itens.stream()
+            .filter(item -> item.getTipo() == ItemRelatorio.TipoTransacao.RECEITA)
+            .sorted((a, b) -> b.getValor().compareTo(a.getValor()))
+            .limit(10)
+            .collect(Collectors.toList());
+    }
+
+    static List<ItemRelatorio> obterTop10Despesas(List<ItemRelatorio> itens) {
+        return itens.stream()
+            .filter(item -> item.getTipo() == ItemRelatorio.TipoTransacao.DESPESA)
+            .sorted((a, b) -> b.getValor().compareTo(a.getValor()))
+            .limit(10)
+            .collect(Collectors.toList());
+    }
+}
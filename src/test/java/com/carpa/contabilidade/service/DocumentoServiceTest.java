@@ -0,0 +1,98 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.model.Usuario;
+import com.carpa.contabilidade.repository.DocumentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DocumentoServiceTest {
+
+    private static final String SHA256 = "ab".repeat(32);
+
+    private final DocumentoRepository documentoRepository = mock(DocumentoRepository.class);
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final Usuario usuario = new Usuario();
+    private DocumentoService servico;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        servico = new DocumentoService(documentoRepository, fileStorageService,
+            mock(ProcessamentoDocumentoService.class), mock(RelatorioService.class), mock(JdbcTemplate.class));
+        ReflectionTestUtils.setField(servico, "maxFileSizeMb", 10L);
+        ReflectionTestUtils.setField(servico, "armazenamentoPorConteudo", true);
+        usuario.setId(1L);
+
+        when(fileStorageService.salvarArquivo(any(InputStream.class), anyString(), anyLong(), anyInt(), anyInt(), anyLong()))
+            .thenReturn(new FileStorageService.ArquivoGravado("cliente_1/2024/05/novo.csv", 120, SHA256));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Documento.StatusProcessamento.class, names = {"PENDENTE", "PROCESSANDO", "PROCESSADO"})
+    void arquivoIdenticoDevolveODocumentoDoPeriodo(Documento.StatusProcessamento status) throws IOException {
+        Documento existente = existente(status);
+
+        Documento documento = enviar();
+
+        assertThat(documento).isSameAs(existente);
+        verify(fileStorageService).deletarArquivo("cliente_1/2024/05/novo.csv");
+        verify(documentoRepository, never()).save(any());
+    }
+
+    @Test
+    void arquivoIdenticoADocumentoComErroEhRecusado() throws IOException {
+        existente(Documento.StatusProcessamento.ERRO);
+
+        assertThatThrownBy(this::enviar)
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Já existe um documento para 5/2024");
+        verify(fileStorageService).deletarArquivo("cliente_1/2024/05/novo.csv");
+        verify(documentoRepository, never()).save(any());
+    }
+
+    @Test
+    void uploadRetomavelUsaOProprioTamanhoMaximo() {
+        long megabytes = 1024 * 1024;
+
+        assertThatThrownBy(() -> servico.validarNovoUpload("extrato.csv", 50 * megabytes, usuario, 5, 2024))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Arquivo muito grande. Tamanho máximo: 10MB");
+        servico.validarNovoUpload("extrato.csv", 50 * megabytes, 200, usuario, 5, 2024);
+        assertThatThrownBy(() -> servico.validarNovoUpload("extrato.csv", 201 * megabytes, 200, usuario, 5, 2024))
+            .hasMessage("Arquivo muito grande. Tamanho máximo: 200MB");
+    }
+
+    private Documento existente(Documento.StatusProcessamento status) {
+        Documento existente = new Documento();
+        existente.setId(7L);
+        existente.setSha256(SHA256.toUpperCase());
+        existente.setStatus(status);
+        when(documentoRepository.findFirstByUsuarioAndMesReferenciaAndAnoReferencia(usuario, 5, 2024))
+            .thenReturn(Optional.of(existente));
+        return existente;
+    }
+
+    private Documento enviar() throws IOException {
+        return servico.uploadDocumento("novo.csv", new ByteArrayInputStream(new byte[120]), usuario, 5, 2024);
+    }
+}
@@ -0,0 +1,108 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.storage.ArmazenamentoLocal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileStorageServiceTest {
+
+    @TempDir
+    Path raiz;
+
+    private FileStorageService fileStorageService;
+    private final Posicao posicao = new Posicao();
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        fileStorageService = new FileStorageService(new ArmazenamentoLocal(raiz));
+        ReflectionTestUtils.setField(fileStorageService, "uploadDir", raiz.toString());
+        fileStorageService.init();
+    }
+
+    @Test
+    void partesSaoGravadasEmSequenciaEAvancamAPosicao() throws IOException {
+        gravar(0, "01234");
+        gravar(5, "56789");
+
+        assertThat(posicao.valor).isEqualTo(10);
+        assertThat(parcial()).hasContent("0123456789");
+    }
+
+    @Test
+    void parteRepetidaDescartaOsBytesAlemDaPosicao() throws IOException {
+        gravar(0, "01234");
+        Files.writeString(parcial(), "01234xx");
+
+        gravar(5, "56789");
+
+        assertThat(parcial()).hasContent("0123456789");
+    }
+
+    @Test
+    void arquivoAusenteNaoRecebePartesDepoisDoInicio() {
+        posicao.valor = 5;
+
+        assertThatThrownBy(() -> gravar(5, "56789"))
+            .isInstanceOf(FileStorageService.ArquivoParcialPerdidoException.class);
+        assertThat(posicao.valor).isEqualTo(5);
+    }
+
+    @Test
+    void arquivoMenorQueAPosicaoConfirmadaNaoRecebeAParte() throws IOException {
+        gravar(0, "01234");
+        Files.writeString(parcial(), "012");
+
+        assertThatThrownBy(() -> gravar(5, "56789"))
+            .isInstanceOf(FileStorageService.ArquivoParcialPerdidoException.class);
+        assertThat(parcial()).hasContent("012");
+    }
+
+    @Test
+    void parteForaDaPosicaoConfirmadaEhRecusada() throws IOException {
+        gravar(0, "01234");
+
+        assertThatThrownBy(() -> gravar(0, "01234"))
+            .isInstanceOf(IllegalStateException.class)
+            .isNotInstanceOf(FileStorageService.ArquivoParcialPerdidoException.class)
+            .hasMessageContaining("posição 5");
+    }
+
+    private void gravar(long inicio, String conteudo) throws IOException {
+        byte[] bytes = conteudo.getBytes(StandardCharsets.UTF_8);
+        fileStorageService.gravarParte("upload-1", inicio, new ByteArrayInputStream(bytes), bytes.length,
+                                       null, posicao);
+    }
+
+    private Path parcial() {
+        return raiz.resolve(".parciais").resolve("upload-1.part");
+    }
+
+    /**
+     * Posição confirmada em memória, no lugar da coluna recebido de uploads_retomaveis.
+     */
+    private static class Posicao implements FileStorageService.PosicaoConfirmada {
+
+        private long valor;
+
+        @Override
+        public long atual() {
+            return valor;
+        }
+
+        @Override
+        public void avancar(long novaPosicao) {
+            valor = novaPosicao;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.Benchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara o ParserData com o parseData anterior (um SimpleDateFormat por formato tentado,
+ * com exceção a cada formato que falha) em dois arquivos: um em DD/MM/AAAA, o primeiro
+ * formato tentado, e um em AAAA-MM-DD, que antes só era aceito na segunda tentativa.
+ */
+@Tag(Benchmark.TAG)
+class ParserDataBenchmark {
+
+    private static final int LINHAS = 20_000;
+
+    private final ParserData parser = new ParserData();
+
+    @Test
+    void diaMesAno() {
+        comparar("DD/MM/AAAA", datas(0));
+    }
+
+    @Test
+    void anoMesDia() {
+        comparar("AAAA-MM-DD", datas(1));
+    }
+
+    private void comparar(String nome, String[] datas) {
+        long anterior = Benchmark.medir("parseData anterior, " + nome + " (" + LINHAS + " datas)", 10, () -> {
+            long soma = 0;
+            for (String data : datas) {
+                soma += ParserDataLegado.parseData(data).toEpochDay();
+            }
+            return soma;
+        });
+        long atual = Benchmark.medir("ParserData.Leitura, " + nome + " (" + LINHAS + " datas)", 10, () -> {
+            ParserData.Leitura leitura = parser.novaLeitura();
+            long soma = 0;
+            for (String data : datas) {
+                soma += leitura.parse(data).toEpochDay();
+            }
+            return soma;
+        });
+
+        System.out.printf("ParserData, %s: %.1fx mais rápido%n", nome, (double) anterior / atual);
+        assertThat(atual).isPositive();
+    }
+
+    private static String[] datas(int formato) {
+        Random aleatorio = new Random(formato);
+        LocalDate inicio = LocalDate.of(2020, 1, 1);
+        String[] datas = new String[LINHAS];
+        for (int i = 0; i < LINHAS; i++) {
+            datas[i] = ParserDataTest.formatar(inicio.plusDays(aleatorio.nextInt(365 * 5)), formato, true);
+        }
+        return datas;
+    }
+}
@@ -0,0 +1,36 @@
+package com.carpa.contabilidade.service;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Implementação anterior de parseData (CsvProcessadorService), mantida nos testes
+ * como referência de comportamento e de desempenho para o ParserData.
+ */
+final class ParserDataLegado {
+
+    private static final String[] FORMATOS_DATA = {
+        "dd/MM/yyyy", "yyyy-MM-dd", "dd-MM-yyyy", "MM/dd/yyyy"
+    };
+
+    private ParserDataLegado() {
+    }
+
+    static LocalDate parseData(String dataStr) {
+        for (String formato : FORMATOS_DATA) {
+            try {
+                SimpleDateFormat sdf = new SimpleDateFormat(formato);
+                sdf.setLenient(false);
+                Date date = sdf.parse(dataStr);
+                return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+            } catch (ParseException e) {
+                // Tentar próximo formato
+            }
+        }
+        throw new IllegalArgumentException("Formato de data inválido: " + dataStr +
+            ". Use DD/MM/AAAA ou AAAA-MM-DD");
+    }
+}
@@ -0,0 +1,104 @@
+package com.carpa.contabilidade.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParserDataTest {
+
+    private final ParserData parser = new ParserData();
+
+    @ParameterizedTest
+    @CsvSource({
+        "15/03/2024, 2024-03-15",
+        "2024-03-15, 2024-03-15",
+        "15-03-2024, 2024-03-15",
+        "03/15/2024, 2024-03-15",
+        "05/06/2024, 2024-06-05",
+        "5/6/2024, 2024-06-05",
+        "29/02/2024, 2024-02-29",
+        "15/03/2024 10:30, 2024-03-15"
+    })
+    void converteFormatosAceitos(String texto, LocalDate esperada) {
+        assertThat(parser.parse(texto)).isEqualTo(esperada);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "abc", "15/03", "15/03-2024", "32/01/2024", "29/02/2023", "13/13/2024",
+                            "15/03/20245", "2024/03/15x", "00/01/2024"})
+    void rejeitaDatasInvalidas(String texto) {
+        assertThatThrownBy(() -> parser.parse(texto))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Formato de data inválido");
+    }
+
+    @Test
+    void leituraTentaPrimeiroOUltimoFormatoReconhecido() {
+        ParserData.Leitura leitura = parser.novaLeitura();
+
+        assertThat(leitura.parse("12/31/2024")).isEqualTo(LocalDate.of(2024, 12, 31));
+        assertThat(leitura.getFormatoAtual()).isEqualTo(ParserData.FormatoData.MES_DIA_ANO_BARRA);
+
+        // Ambígua: no arquivo em MM/DD/AAAA continua sendo lida como mês/dia
+        assertThat(leitura.parse("05/06/2024")).isEqualTo(LocalDate.of(2024, 5, 6));
+
+        assertThat(leitura.parse("2024-01-02")).isEqualTo(LocalDate.of(2024, 1, 2));
+        assertThat(leitura.getFormatoAtual()).isEqualTo(ParserData.FormatoData.ANO_MES_DIA_HIFEN);
+    }
+
+    @Test
+    void dataAmbiguaSegueOFormatoMemorizadoAteOutraLinhaMudarOFormato() {
+        ParserData.Leitura leitura = parser.novaLeitura();
+
+        // Sem formato memorizado vale a ordem padrão: DD/MM/AAAA
+        assertThat(parser.parse("05/06/2024")).isEqualTo(LocalDate.of(2024, 6, 5));
+
+        assertThat(leitura.parse("05/13/2024")).isEqualTo(LocalDate.of(2024, 5, 13));
+        assertThat(leitura.parse("05/06/2024")).isEqualTo(LocalDate.of(2024, 5, 6));
+
+        assertThat(leitura.parse("13/05/2024")).isEqualTo(LocalDate.of(2024, 5, 13));
+        assertThat(leitura.getFormatoAtual()).isEqualTo(ParserData.FormatoData.DIA_MES_ANO_BARRA);
+        assertThat(leitura.parse("05/06/2024")).isEqualTo(LocalDate.of(2024, 6, 5));
+    }
+
+    /**
+     * Gera datas aleatórias nos quatro formatos e compara com o parser anterior. Anos antes
+     * de 1600 ficam de fora: a conversão Date/ZoneId do parser anterior passava pelo
+     * calendário juliano e deslocava os dias.
+     */
+    @Test
+    void equivaleAoParserAnterior() {
+        Random aleatorio = new Random(20240315L);
+        LocalDate inicio = LocalDate.of(1900, 1, 1);
+
+        for (int i = 0; i < 20_000; i++) {
+            LocalDate data = inicio.plusDays(aleatorio.nextInt(365 * 200));
+            String texto = formatar(data, aleatorio.nextInt(4), aleatorio.nextBoolean());
+
+            assertThat(parser.parse(texto)).as(texto).isEqualTo(ParserDataLegado.parseData(texto));
+        }
+    }
+
+    /**
+     * Formata a data em um dos quatro formatos, com ou sem zeros à esquerda no dia e no mês.
+     */
+    static String formatar(LocalDate data, int formato, boolean zeros) {
+        String dia = zeros ? String.format("%02d", data.getDayOfMonth()) : Integer.toString(data.getDayOfMonth());
+        String mes = zeros ? String.format("%02d", data.getMonthValue()) : Integer.toString(data.getMonthValue());
+        String ano = Integer.toString(data.getYear());
+
+        return switch (formato) {
+            case 0 -> dia + "/" + mes + "/" + ano;
+            case 1 -> ano + "-" + mes + "-" + dia;
+            case 2 -> dia + "-" + mes + "-" + ano;
+            default -> mes + "/" + dia + "/" + ano;
+        };
+    }
+}
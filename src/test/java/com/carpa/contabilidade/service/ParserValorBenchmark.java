@@ -0,0 +1,53 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.Benchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara o ParserValor com o parseValor anterior (DecimalFormat criado a cada chamada,
+ * String.replace e fallback por exceção) sobre valores no formato brasileiro, aceito pelos dois.
+ */
+@Tag(Benchmark.TAG)
+class ParserValorBenchmark {
+
+    private static final String[] VALORES = {
+        "1.234,56", "-45,90", "R$ 10.000,00", "0,99", "123456,78", "-2.500,00", "1234,5", "7"
+    };
+    private static final int LINHAS = 200_000;
+
+    private final ParserValor parser = new ParserValor();
+
+    @Test
+    void parseValor() {
+        long anterior = Benchmark.medir("parseValor anterior (" + LINHAS + " valores)", 10, () -> {
+            BigDecimal soma = BigDecimal.ZERO;
+            for (int i = 0; i < LINHAS; i++) {
+                soma = soma.add(ParserValorLegado.parseValor(VALORES[i % VALORES.length]));
+            }
+            return soma;
+        });
+        long atual = Benchmark.medir("ParserValor.parse (" + LINHAS + " valores)", 10, () -> {
+            BigDecimal soma = BigDecimal.ZERO;
+            for (int i = 0; i < LINHAS; i++) {
+                soma = soma.add(parser.parse(VALORES[i % VALORES.length]));
+            }
+            return soma;
+        });
+        long centavos = Benchmark.medir("ParserValor.parseCentavos (" + LINHAS + " valores)", 10, () -> {
+            long soma = 0;
+            for (int i = 0; i < LINHAS; i++) {
+                soma += parser.parseCentavos(VALORES[i % VALORES.length]);
+            }
+            return soma;
+        });
+
+        System.out.printf("ParserValor.parse: %.1fx mais rápido; parseCentavos: %.1fx%n",
+                          (double) anterior / atual, (double) anterior / centavos);
+        assertThat(atual).isPositive();
+    }
+}
@@ -0,0 +1,43 @@
+package com.carpa.contabilidade.service;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParseException;
+
+/**
+ * Implementação anterior de parseValor (CsvProcessadorService), mantida nos testes
+ * como referência de comportamento e de desempenho para o ParserValor.
+ */
+final class ParserValorLegado {
+
+    private ParserValorLegado() {
+    }
+
+    static BigDecimal parseValor(String valorStr) {
+        try {
+            // Aceitar tanto vírgula quanto ponto como separador decimal
+            DecimalFormatSymbols symbols = new DecimalFormatSymbols();
+            symbols.setDecimalSeparator(',');
+            symbols.setGroupingSeparator('.');
+
+            DecimalFormat format = new DecimalFormat("#,##0.00", symbols);
+            format.setParseBigDecimal(true);
+
+            // Remover espaços e símbolo de moeda se houver
+            String cleanValue = valorStr.trim()
+                .replace("R$", "")
+                .replace(" ", "");
+
+            // Tentar parse com vírgula
+            try {
+                return (BigDecimal) format.parse(cleanValue);
+            } catch (ParseException e) {
+                // Tentar com ponto
+                return new BigDecimal(cleanValue.replace(',', '.'));
+            }
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Valor inválido: " + valorStr);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.carpa.contabilidade.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParserValorTest {
+
+    private final ParserValor parser = new ParserValor();
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "1.234,56       | 1234.56",
+        "1234,56        | 1234.56",
+        "1,234.56       | 1234.56",
+        "1234.56        | 1234.56",
+        "1.234          | 1234.00",
+        "1.234.567      | 1234567.00",
+        "1,5            | 1.50",
+        "-1.234,56      | -1234.56",
+        "1.234,56-      | -1234.56",
+        "(1.234,56)     | -1234.56",
+        "R$ 1.234,56    | 1234.56",
+        "R$ -10,00      | -10.00",
+        "+10,00         | 10.00",
+        "0,00           | 0.00",
+        "0              | 0.00",
+        "0,005          | 0.01",
+        "0,004          | 0.00",
+        "10,125         | 10.13",
+        "00012,30       | 12.30"
+    })
+    void converteFormatosAceitos(String texto, BigDecimal esperado) {
+        assertThat(parser.parse(texto)).isEqualTo(esperado);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "abc", "1,2,3.4.5", "--1", "(1", "1)", "(-1)", "1-2", "R1", "1 $ x"})
+    void rejeitaTextoInvalido(String texto) {
+        assertThatThrownBy(() -> parser.parse(texto)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejeitaNulo() {
+        assertThatThrownBy(() -> parser.parse(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejeitaValorQueEstouraOLongAoAjustarAEscala() {
+        // 17 dígitos cabem no long, mas não depois de multiplicados por 100
+        assertThatThrownBy(() -> parser.parseCentavos("99999999999999999"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> parser.parseCentavos("92233720368547759"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> parser.parseCentavos("-99.999.999.999.999.999"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> parser.parseCentavos("999999999999999999,99"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void aceitaOMaiorValorQueCabeNoLong() {
+        assertThat(parser.parseCentavos("92233720368547758")).isEqualTo(9223372036854775800L);
+        assertThat(parser.parseCentavos("999.999.999.999.999,99")).isEqualTo(99999999999999999L);
+        assertThat(parser.parseCentavos("-9999999999999999,9")).isEqualTo(-999999999999999990L);
+    }
+
+    /**
+     * Gera valores aleatórios no formato brasileiro (o que o parser anterior aceitava
+     * corretamente) e compara o resultado das duas implementações.
+     */
+    @Test
+    void equivaleAoParserAnteriorNoFormatoBrasileiro() {
+        Random aleatorio = new Random(20240501L);
+
+        for (int i = 0; i < 50_000; i++) {
+            // Até 13 dígitos inteiros, como em numeric(15,2)
+            long inteiro = (long) (aleatorio.nextDouble() * Math.pow(10, aleatorio.nextInt(14)));
+            int casas = aleatorio.nextInt(3);
+            int fracao = casas == 0 ? 0 : aleatorio.nextInt(casas == 1 ? 10 : 100);
+            String texto = formatar(inteiro, casas, fracao, aleatorio.nextBoolean(),
+                                    aleatorio.nextInt(4) == 0, aleatorio.nextInt(4) == 0);
+
+            BigDecimal esperado = ParserValorLegado.parseValor(texto).setScale(ParserValor.ESCALA, RoundingMode.HALF_UP);
+            assertThat(parser.parse(texto)).as(texto).isEqualTo(esperado);
+        }
+    }
+
+    private static String formatar(long inteiro, int casas, int fracao, boolean milhar,
+                                   boolean negativo, boolean moeda) {
+        StringBuilder texto = new StringBuilder(Long.toString(inteiro));
+        if (milhar) {
+            for (int i = texto.length() - 3; i > 0; i -= 3) {
+                texto.insert(i, '.');
+            }
+        }
+        if (casas > 0) {
+            texto.append(',').append(String.format("%0" + casas + "d", fracao));
+        }
+        if (negativo) {
+            texto.insert(0, '-');
+        }
+        if (moeda) {
+            texto.insert(0, "R$ ");
+        }
+        return texto.toString();
+    }
+}
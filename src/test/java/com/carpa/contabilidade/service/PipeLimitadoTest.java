@@ -0,0 +1,170 @@
+package com.carpa.contabilidade.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class PipeLimitadoTest {
+
+    private static final Duration LIMITE = Duration.ofSeconds(5);
+
+    @Test
+    void conteudoEscritoEhLidoAteOFim() throws Exception {
+        PipeLimitado pipe = new PipeLimitado(32 * 1024);
+        byte[] conteudo = aleatorio(200 * 1024);
+
+        CompletableFuture<Void> escrita = CompletableFuture.runAsync(() -> escrever(pipe, conteudo));
+
+        assertTimeoutPreemptively(LIMITE, () -> {
+            assertThat(pipe.entrada().readAllBytes()).isEqualTo(conteudo);
+            assertThat(pipe.entrada().read()).isEqualTo(-1);
+        });
+        escrita.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void falharTerminaALeituraComErroEDescartaOsBytesPendentes() throws IOException {
+        PipeLimitado pipe = new PipeLimitado(64 * 1024);
+        pipe.saida().write(aleatorio(1024));
+
+        pipe.falhar(new IOException("cliente desconectou"));
+
+        assertThatThrownBy(() -> pipe.entrada().read())
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("cliente desconectou");
+    }
+
+    @Test
+    void falharDepoisDeParteDaLeituraNaoTerminaComoFimNormal() throws Exception {
+        PipeLimitado pipe = new PipeLimitado(64 * 1024);
+        pipe.saida().write(aleatorio(1024));
+        InputStream entrada = pipe.entrada();
+        assertThat(entrada.readNBytes(1024)).hasSize(1024);
+
+        CompletableFuture<Void> falha = CompletableFuture.runAsync(() -> {
+            dormir(100);
+            pipe.falhar(new IOException("gravação falhou"));
+        });
+
+        // A leitura aguardando o próximo bloco recebe o erro, nunca o fim do arquivo
+        assertTimeoutPreemptively(LIMITE, () ->
+            assertThatThrownBy(entrada::read).hasMessageContaining("gravação falhou"));
+        falha.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void fecharSinalizaOFimSomenteDepoisDosBytesPendentes() throws IOException {
+        PipeLimitado pipe = new PipeLimitado(64 * 1024);
+        byte[] conteudo = aleatorio(40 * 1024);
+        pipe.saida().write(conteudo);
+
+        pipe.fechar();
+
+        assertThat(pipe.entrada().readAllBytes()).isEqualTo(conteudo);
+    }
+
+    @Test
+    void leituraFechadaDescartaAEscritaSemBloquear() throws IOException {
+        PipeLimitado pipe = new PipeLimitado(16 * 1024);
+        pipe.entrada().close();
+
+        assertTimeoutPreemptively(LIMITE, () -> escrever(pipe, aleatorio(1024 * 1024)));
+    }
+
+    @Test
+    void escritaAguardaALeituraComOBufferCheio() throws Exception {
+        int capacidade = 64 * 1024;
+        int bloco = 16 * 1024;
+        PipeLimitado pipe = new PipeLimitado(capacidade);
+        AtomicLong escritos = new AtomicLong();
+
+        CompletableFuture<Void> escrita = CompletableFuture.runAsync(() -> {
+            try {
+                for (int i = 0; i < 64; i++) {
+                    pipe.saida().write(new byte[bloco]);
+                    escritos.addAndGet(bloco);
+                }
+                pipe.fechar();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        dormir(300);
+        // Sem leitura, a memória ocupada pelo pipe não passa da capacidade
+        assertThat(escrita).isNotDone();
+        assertThat(escritos.get()).isLessThanOrEqualTo(capacidade);
+
+        assertTimeoutPreemptively(LIMITE, () ->
+            assertThat(pipe.entrada().readAllBytes()).hasSize(64 * bloco));
+        escrita.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void vazaoAbaixoDaMinimaAbandonaALeitura() throws IOException {
+        PipeLimitado pipe = new PipeLimitado(64 * 1024, 1024 * 1024, Duration.ofMillis(200));
+        pipe.saida().write(aleatorio(10));
+        InputStream entrada = pipe.entrada();
+
+        assertTimeoutPreemptively(LIMITE, () -> {
+            assertThat(entrada.readNBytes(10)).hasSize(10);
+            assertThatThrownBy(entrada::read).isInstanceOf(PipeLimitado.UploadLentoException.class);
+        });
+        assertThat(pipe.abandonado()).isTrue();
+
+        // O restante do upload é descartado sem esperar pela leitura
+        assertTimeoutPreemptively(LIMITE, () -> escrever(pipe, aleatorio(1024 * 1024)));
+    }
+
+    @Test
+    void vazaoAcimaDaMinimaNaoAbandonaALeitura() throws Exception {
+        PipeLimitado pipe = new PipeLimitado(32 * 1024, 1024, Duration.ZERO);
+        byte[] conteudo = aleatorio(200 * 1024);
+
+        CompletableFuture<Void> escrita = CompletableFuture.runAsync(() -> escrever(pipe, conteudo));
+
+        assertTimeoutPreemptively(LIMITE, () -> assertThat(pipe.entrada().readAllBytes()).isEqualTo(conteudo));
+        assertThat(pipe.abandonado()).isFalse();
+        escrita.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Escreve o conteúdo em blocos, como o TeeInputStream do upload, e sinaliza o fim.
+     */
+    private static void escrever(PipeLimitado pipe, byte[] conteudo) {
+        OutputStream saida = pipe.saida();
+        try {
+            for (int inicio = 0; inicio < conteudo.length; inicio += 8192) {
+                saida.write(conteudo, inicio, Math.min(8192, conteudo.length - inicio));
+            }
+            pipe.fechar();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] aleatorio(int tamanho) {
+        byte[] bytes = new byte[tamanho];
+        new Random(tamanho).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.repository.DocumentoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessamentoDocumentoServiceTest {
+
+    private final DocumentoRepository documentoRepository = mock(DocumentoRepository.class);
+    private final RelatorioService relatorioService = mock(RelatorioService.class);
+    private ProcessamentoDocumentoService servico;
+
+    @BeforeEach
+    void iniciar() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        servico = new ProcessamentoDocumentoService(documentoRepository, relatorioService,
+            mock(ParticionamentoItensService.class), transactionManager);
+        ReflectionTestUtils.setField(servico, "workers", 1);
+        ReflectionTestUtils.setField(servico, "conexoesPool", 10);
+        ReflectionTestUtils.setField(servico, "leaseMinutos", 10L);
+        ReflectionTestUtils.setField(servico, "maxTentativas", 5);
+        ReflectionTestUtils.setField(servico, "backoffInicialSegundos", 30L);
+        servico.init();
+
+        when(documentoRepository.bloquearComLeaseExpirado(any(), anyInt())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void encerrar() throws InterruptedException {
+        servico.encerrar();
+    }
+
+    @Test
+    void documentoReservadoComWorkerLivreEhProcessado() {
+        when(documentoRepository.bloquearDisponiveisParaProcessamento(any(), anyInt())).thenReturn(List.of(10L));
+
+        servico.varrerPendentes();
+
+        verify(documentoRepository, timeout(5000)).buscarComBloqueio(10L);
+        verify(documentoRepository, never()).devolverParaFila(anyList(), any(), anyString());
+    }
+
+    @Test
+    void varreduraNaoEsperaWorkerOcupadoDepoisDaContagem() {
+        // Um upload em pipeline ocupa o único worker entre a contagem de vagas e a reserva
+        when(documentoRepository.bloquearDisponiveisParaProcessamento(any(), anyInt())).thenAnswer(chamada -> {
+            assertThat(servico.ocuparWorker()).isTrue();
+            return List.of(10L);
+        });
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), servico::varrerPendentes);
+
+        verify(documentoRepository).devolverParaFila(eq(List.of(10L)), eq(Documento.StatusProcessamento.PENDENTE),
+                                                     anyString());
+        verify(documentoRepository, never()).buscarComBloqueio(any());
+        servico.liberarWorker();
+    }
+
+    @Test
+    void leituraAbandonadaPorUploadLentoNaoContaComoFalha() throws Exception {
+        Documento documento = new Documento();
+        documento.setId(10L);
+        servico.reservarParaEsteNo(documento);
+        when(documentoRepository.buscarComBloqueio(10L)).thenReturn(Optional.of(documento));
+        when(relatorioService.gerarRelatorio(eq(documento), any(InputStream.class))).thenAnswer(chamada -> {
+            chamada.getArgument(1, InputStream.class).readAllBytes();
+            return null;
+        });
+
+        // Nenhum byte chega depois da carência: a leitura é abandonada
+        PipeLimitado pipe = new PipeLimitado(64 * 1024, 1024 * 1024, Duration.ofMillis(100));
+        assertThat(servico.ocuparWorker()).isTrue();
+        servico.processarConteudo(10L, pipe).get(5, TimeUnit.SECONDS);
+
+        assertThat(pipe.abandonado()).isTrue();
+        assertThat(documento.getStatus()).isEqualTo(Documento.StatusProcessamento.PROCESSANDO);
+        assertThat(documento.getTentativas()).isEqualTo(1);
+        verify(documentoRepository, never()).save(any());
+    }
+}
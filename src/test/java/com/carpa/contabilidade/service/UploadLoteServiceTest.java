@@ -0,0 +1,128 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.Documento;
+import com.carpa.contabilidade.model.ResultadoUploadLote;
+import com.carpa.contabilidade.model.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UploadLoteServiceTest {
+
+    private final DocumentoService documentoService = mock(DocumentoService.class);
+    private final Usuario usuario = new Usuario();
+    private UploadLoteService servico;
+
+    @BeforeEach
+    void iniciar() {
+        servico = new UploadLoteService(documentoService);
+        ReflectionTestUtils.setField(servico, "maxArquivos", 24);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "extrato_2024-05.csv, 5, 2024",
+        "extrato_2024_05.xlsx, 5, 2024",
+        "extrato 2024.05.csv, 5, 2024",
+        "202405.csv, 5, 2024",
+        "extrato-05-2024.csv, 5, 2024",
+        "extrato_5_2024.csv, 5, 2024",
+        "12_2023 banco.csv, 12, 2023",
+        "2024/extrato_2024-11.csv, 11, 2024",
+        "cliente_2023-01_revisado.csv, 1, 2023"
+    })
+    void inferePeriodoDoNomeDoArquivo(String nome, int mes, int ano) {
+        assertThat(UploadLoteService.inferirPeriodo(nome)).containsExactly(mes, ano);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"extrato.csv", "extrato_2024.csv", "extrato_2024-13.csv", "extrato_13-2024.csv",
+                            "conta_12345-2024.csv", "extrato_2024-5.csv", "extrato_1999-05.csv", "202405123.csv"})
+    void nomeSemPeriodoNaoInfereNada(String nome) {
+        assertThat(UploadLoteService.inferirPeriodo(nome)).isNull();
+    }
+
+    @Test
+    void nomeNuloNaoInfereNada() {
+        assertThat(UploadLoteService.inferirPeriodo(null)).isNull();
+    }
+
+    @Test
+    void erroEmUmaEntradaDoZipNaoInterrompeAsSeguintes() throws IOException {
+        when(documentoService.uploadDocumento(eq("janeiro_2024-01.csv"), any(InputStream.class), eq(usuario), anyInt(), anyInt()))
+            .thenReturn(documento(1L, "janeiro_2024-01.csv", 1));
+        when(documentoService.uploadDocumento(eq("fevereiro_2024-02.csv"), any(InputStream.class), eq(usuario), anyInt(), anyInt()))
+            .thenThrow(new IOException("disco cheio"));
+        when(documentoService.uploadDocumento(eq("marco_2024-03.csv"), any(InputStream.class), eq(usuario), anyInt(), anyInt()))
+            .thenThrow(new IllegalStateException("falha inesperada"));
+        when(documentoService.uploadDocumento(eq("abril_2024-04.csv"), any(InputStream.class), eq(usuario), anyInt(), anyInt()))
+            .thenReturn(documento(4L, "abril_2024-04.csv", 4));
+
+        List<ResultadoUploadLote> resultados = servico.uploadLote(List.of(zip(
+            "janeiro_2024-01.csv", "fevereiro_2024-02.csv", "marco_2024-03.csv", "abril_2024-04.csv")),
+            null, null, usuario);
+
+        assertThat(resultados).extracting(ResultadoUploadLote::nomeArquivo, ResultadoUploadLote::situacao)
+            .containsExactly(
+                tuple("janeiro_2024-01.csv", ResultadoUploadLote.Situacao.ACEITO),
+                tuple("fevereiro_2024-02.csv", ResultadoUploadLote.Situacao.REJEITADO),
+                tuple("marco_2024-03.csv", ResultadoUploadLote.Situacao.REJEITADO),
+                tuple("abril_2024-04.csv", ResultadoUploadLote.Situacao.ACEITO));
+        assertThat(resultados.get(1).mensagem()).isEqualTo("Erro ao salvar arquivo");
+        assertThat(resultados.get(1).mesReferencia()).isEqualTo(2);
+    }
+
+    @Test
+    void arquivoQueNaoEhZipEhRecusado() {
+        MockMultipartFile corrompido = new MockMultipartFile("arquivos", "extratos.zip", "application/zip",
+            "PK\u0003\u0004 isto não é um zip".getBytes(StandardCharsets.ISO_8859_1));
+
+        List<ResultadoUploadLote> resultados = servico.uploadLote(List.of(corrompido), null, null, usuario);
+
+        assertThat(resultados).singleElement().satisfies(resultado -> {
+            assertThat(resultado.nomeArquivo()).isEqualTo("extratos.zip");
+            assertThat(resultado.mensagem()).isEqualTo("Arquivo ZIP vazio ou inválido");
+        });
+    }
+
+    private static MockMultipartFile zip(String... nomes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (String nome : nomes) {
+                zip.putNextEntry(new ZipEntry(nome));
+                zip.write("Data;Descrição;Valor\n".getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return new MockMultipartFile("arquivos", "extratos.zip", "application/zip", bytes.toByteArray());
+    }
+
+    private static Documento documento(Long id, String nome, int mes) {
+        Documento documento = new Documento();
+        documento.setId(id);
+        documento.setNomeArquivo(nome);
+        documento.setMesReferencia(mes);
+        documento.setAnoReferencia(2024);
+        return documento;
+    }
+}
@@ -0,0 +1,80 @@
+package com.carpa.contabilidade.service;
+
+import com.carpa.contabilidade.model.UploadRetomavel;
+import com.carpa.contabilidade.model.Usuario;
+import com.carpa.contabilidade.repository.UploadRetomavelRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class UploadRetomavelServiceTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "'bytes 0-1048575/5242880', 0, 1048576, 5242880",
+        "'bytes 1048576-2097151/5242880', 1048576, 1048576, 5242880",
+        "'bytes 5242879-5242879/5242880', 5242879, 1, 5242880",
+        "' bytes 0-9/10 ', 0, 10, 10"
+    })
+    void interpretaIntervalo(String contentRange, long inicio, long tamanho, long total) {
+        assertThat(UploadRetomavelService.interpretarContentRange(contentRange, 0))
+            .isEqualTo(new UploadRetomavelService.Intervalo(inicio, tamanho, total));
+    }
+
+    @Test
+    void formaSemIntervaloUsaAPosicaoAtualSemDados() {
+        assertThat(UploadRetomavelService.interpretarContentRange("bytes */5242880", 1048576))
+            .isEqualTo(new UploadRetomavelService.Intervalo(1048576, 0, 5242880));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bytes 10-9/100", "bytes 0-100/100", "bytes 100-199/100"})
+    void recusaIntervaloForaDoArquivo(String contentRange) {
+        assertThatThrownBy(() -> UploadRetomavelService.interpretarContentRange(contentRange, 0))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Content-Range inválido: intervalo fora do arquivo");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "0-99/100", "bytes 0-99", "bytes 0-99/*", "bytes=0-99/100", "bytes -99/100",
+                            "items 0-99/100", "bytes */*"})
+    void recusaFormatoInvalido(String contentRange) {
+        assertThatThrownBy(() -> UploadRetomavelService.interpretarContentRange(contentRange, 0))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Content-Range inválido. Use: bytes inicio-fim/total");
+    }
+
+    @Test
+    void recusaCabecalhoAusente() {
+        assertThatThrownBy(() -> UploadRetomavelService.interpretarContentRange(null, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bytes 0-99/200", "bytes */200"})
+    void recusaTotalDiferenteDoInformadoAoIniciar(String contentRange) {
+        FileStorageService fileStorageService = mock(FileStorageService.class);
+        UploadRetomavelService servico = new UploadRetomavelService(mock(UploadRetomavelRepository.class),
+            mock(DocumentoService.class), fileStorageService, mock(PlatformTransactionManager.class));
+
+        UploadRetomavel upload = new UploadRetomavel();
+        upload.setId("upload-1");
+        upload.setTamanho(100L);
+        upload.setRecebido(0L);
+
+        assertThatThrownBy(() -> servico.receberParte(upload, new Usuario(), contentRange, null,
+                                                      new ByteArrayInputStream(new byte[100])))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Tamanho total diferente do informado ao iniciar o upload (100 bytes)");
+        verifyNoInteractions(fileStorageService);
+    }
+}
@@ -0,0 +1,70 @@
+package com.carpa.contabilidade.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArmazenamentoLocalTest {
+
+    @TempDir
+    Path raiz;
+
+    @Test
+    void gravaLeAPartirDeUmaPosicaoEMove() throws IOException {
+        ArmazenamentoLocal armazenamento = new ArmazenamentoLocal(raiz);
+
+        armazenamento.gravar("cliente_1/2024/05/a.csv", texto("0123456789"));
+        try (InputStream entrada = armazenamento.abrir("cliente_1/2024/05/a.csv", 4)) {
+            assertThat(entrada.readAllBytes()).asString(StandardCharsets.UTF_8).isEqualTo("456789");
+        }
+
+        armazenamento.mover("cliente_1/2024/05/a.csv", "conteudo/ab/abcd");
+        assertThat(armazenamento.existe("cliente_1/2024/05/a.csv")).isFalse();
+        assertThat(armazenamento.ler("conteudo/ab/abcd")).asString(StandardCharsets.UTF_8).isEqualTo("0123456789");
+
+        armazenamento.remover("conteudo/ab/abcd");
+        armazenamento.remover("conteudo/ab/abcd");
+        assertThat(armazenamento.existe("conteudo/ab/abcd")).isFalse();
+    }
+
+    @Test
+    void falhaNaGravacaoNaoDeixaArquivo() throws IOException {
+        ArmazenamentoLocal armazenamento = new ArmazenamentoLocal(raiz);
+        InputStream interrompido = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("cliente desconectou");
+            }
+        };
+
+        assertThatThrownBy(() -> armazenamento.gravar("a.csv", interrompido)).isInstanceOf(IOException.class);
+
+        try (Stream<Path> arquivos = Files.walk(raiz)) {
+            assertThat(arquivos.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    @Test
+    void chavesForaDoDiretorioSaoRecusadas() throws IOException {
+        ArmazenamentoLocal armazenamento = new ArmazenamentoLocal(raiz.resolve("uploads"));
+
+        assertThatThrownBy(() -> armazenamento.gravar("../fora.csv", texto("x")))
+            .isInstanceOf(SecurityException.class);
+        assertThatThrownBy(() -> armazenamento.remover("a/../../fora.csv")).isInstanceOf(SecurityException.class);
+        assertThatThrownBy(() -> armazenamento.existe(".")).isInstanceOf(SecurityException.class);
+    }
+
+    private static InputStream texto(String texto) {
+        return new ByteArrayInputStream(texto.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,214 @@
+package com.carpa.contabilidade.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArmazenamentoS3Test {
+
+    private static final int MB = 1024 * 1024;
+    private static final String CHAVE = "cliente_1/2024/05/extrato maio.csv";
+
+    private S3Falso s3;
+    private ArmazenamentoS3 armazenamento;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        s3 = new S3Falso();
+        armazenamento = s3.armazenamento(5);
+    }
+
+    @AfterEach
+    void encerrar() {
+        s3.close();
+    }
+
+    @Test
+    void arquivoMenorQueUmaParteEhGravadoComUmPut() throws IOException {
+        byte[] conteudo = "data;descricao;valor\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(armazenamento.gravar(CHAVE, new ByteArrayInputStream(conteudo))).isEqualTo(conteudo.length);
+
+        assertThat(s3.partesRecebidas).hasValue(0);
+        assertThat(s3.objetos.get(CHAVE)).isEqualTo(conteudo);
+        assertThat(armazenamento.existe(CHAVE)).isTrue();
+        assertThat(armazenamento.existe("cliente_1/outro.csv")).isFalse();
+        assertThat(armazenamento.ler(CHAVE)).isEqualTo(conteudo);
+    }
+
+    @Test
+    void arquivoGrandeEhGravadoComMultipartELidoEmIntervalos() throws IOException {
+        byte[] conteudo = aleatorio(12 * MB + 123);
+
+        assertThat(armazenamento.gravar(CHAVE, new ByteArrayInputStream(conteudo))).isEqualTo(conteudo.length);
+        assertThat(s3.partesRecebidas).hasValue(3);
+        assertThat(s3.multiparts).isEmpty();
+
+        s3.leituras.set(0);
+        assertThat(armazenamento.ler(CHAVE)).isEqualTo(conteudo);
+        assertThat(s3.leituras).hasValue(3);
+
+        try (InputStream entrada = armazenamento.abrir(CHAVE, 6_000_000)) {
+            assertThat(entrada.readAllBytes()).isEqualTo(Arrays.copyOfRange(conteudo, 6_000_000, conteudo.length));
+        }
+    }
+
+    @Test
+    void falhaNoEnvioAbortaOMultipart() {
+        InputStream interrompido = new SequenceInputStream(new ByteArrayInputStream(aleatorio(7 * MB)),
+            new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("cliente desconectou");
+                }
+            });
+
+        assertThatThrownBy(() -> armazenamento.gravar(CHAVE, interrompido)).isInstanceOf(IOException.class);
+
+        assertThat(s3.objetos).doesNotContainKey(CHAVE);
+        assertThat(s3.multiparts).isEmpty();
+    }
+
+    @Test
+    void quedaNaLeituraContinuaDaPosicaoEmQueParou() throws IOException {
+        byte[] conteudo = aleatorio(11 * MB);
+        s3.objetos.put(CHAVE, conteudo);
+        s3.quedasNaLeitura.set(2);
+
+        assertThat(armazenamento.ler(CHAVE)).isEqualTo(conteudo);
+        assertThat(s3.quedasNaLeitura).hasValue(0);
+    }
+
+    @Test
+    void quedasSemProgressoAlemDoLimiteFalhamALeitura() throws IOException {
+        s3.objetos.put(CHAVE, aleatorio(MB));
+        s3.quedasNaLeitura.set(10);
+        s3.progressoAntesDaQueda = false;
+
+        try (InputStream entrada = armazenamento.abrir(CHAVE)) {
+            assertThatThrownBy(entrada::readAllBytes).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void servidorQueIgnoraRangeEnviaOArquivoInteiro() throws IOException {
+        byte[] conteudo = aleatorio(7 * MB);
+        s3.objetos.put(CHAVE, conteudo);
+        s3.modoLeitura = S3Falso.ModoLeitura.INTEIRO;
+
+        assertThat(armazenamento.ler(CHAVE)).isEqualTo(conteudo);
+        try (InputStream entrada = armazenamento.abrir(CHAVE, 6 * MB)) {
+            assertThat(entrada.readAllBytes()).isEqualTo(Arrays.copyOfRange(conteudo, 6 * MB, conteudo.length));
+        }
+        try (InputStream entrada = armazenamento.abrir(CHAVE, conteudo.length)) {
+            assertThat(entrada.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void servidorQueIgnoraRangeSemContentLengthTerminaNoFimDoCorpo() throws IOException {
+        byte[] conteudo = aleatorio(7 * MB);
+        s3.objetos.put(CHAVE, conteudo);
+        s3.modoLeitura = S3Falso.ModoLeitura.INTEIRO_SEM_TAMANHO;
+
+        s3.leituras.set(0);
+        assertThat(armazenamento.ler(CHAVE)).isEqualTo(conteudo);
+        assertThat(s3.leituras).hasValue(1);
+
+        try (InputStream entrada = armazenamento.abrir(CHAVE, 6 * MB)) {
+            assertThat(entrada.readAllBytes()).isEqualTo(Arrays.copyOfRange(conteudo, 6 * MB, conteudo.length));
+        }
+        try (InputStream entrada = armazenamento.abrir(CHAVE, conteudo.length + 10L)) {
+            assertThat(entrada.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void rangeForaDoArquivoEhFimDaLeitura() throws IOException {
+        // O S3 responde 416 ao Range de um objeto vazio ou de uma posição além do fim
+        armazenamento.gravar("vazio.csv", new ByteArrayInputStream(new byte[0]));
+        assertThat(armazenamento.ler("vazio.csv")).isEmpty();
+
+        s3.objetos.put(CHAVE, "abc".getBytes(StandardCharsets.UTF_8));
+        try (InputStream entrada = armazenamento.abrir(CHAVE, 3)) {
+            assertThat(entrada.read()).isEqualTo(-1);
+        }
+        try (InputStream entrada = armazenamento.abrir(CHAVE, 100)) {
+            assertThat(entrada.readAllBytes()).isEmpty();
+        }
+    }
+
+    @Test
+    void arquivoInexistente() {
+        assertThatThrownBy(() -> armazenamento.abrir("nao/existe.csv")).isInstanceOf(NoSuchFileException.class);
+        assertThatThrownBy(() -> armazenamento.mover("nao/existe.csv", "destino.csv"))
+            .isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void moverCopiaNoServidorERemoveAOrigem() throws IOException {
+        armazenamento.gravar("temporario.csv", new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)));
+
+        armazenamento.mover("temporario.csv", "conteudo/ba/ba7816bf");
+
+        assertThat(armazenamento.existe("temporario.csv")).isFalse();
+        assertThat(armazenamento.ler("conteudo/ba/ba7816bf")).isEqualTo("abc".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void removerObjetoInexistenteNaoFalha() throws IOException {
+        s3.objetos.put(CHAVE, new byte[1]);
+
+        armazenamento.remover(CHAVE);
+        armazenamento.remover(CHAVE);
+
+        assertThat(armazenamento.existe(CHAVE)).isFalse();
+    }
+
+    @Test
+    void transferirEnviaERemoveOArquivoLocal(@TempDir Path diretorio) throws IOException {
+        byte[] conteudo = aleatorio(6 * MB);
+        Path arquivo = Files.write(diretorio.resolve("parcial.tmp"), conteudo);
+
+        armazenamento.transferir(arquivo, CHAVE);
+
+        assertThat(arquivo).doesNotExist();
+        assertThat(s3.objetos.get(CHAVE)).isEqualTo(conteudo);
+    }
+
+    @Test
+    void credenciaisErradasSaoRecusadas() {
+        ArmazenamentoS3 outro = new ArmazenamentoS3(s3.endpoint(), S3Falso.BUCKET, "us-east-1",
+            S3Falso.CHAVE_ACESSO, "outra", 5);
+
+        assertThatThrownBy(() -> outro.gravar(CHAVE, new ByteArrayInputStream(new byte[1])))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("403");
+    }
+
+    @Test
+    void parteMenorQue5MbEhRecusada() {
+        assertThatThrownBy(() -> s3.armazenamento(4)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] aleatorio(int tamanho) {
+        byte[] bytes = new byte[tamanho];
+        new Random(tamanho).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,241 @@
+package com.carpa.contabilidade.storage;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Servidor S3 em memória para os testes do ArmazenamentoS3, com um único bucket.
+ * Atende PUT (simples, parte e cópia), multipart, GET com Range, HEAD e DELETE, e confere
+ * a assinatura V4 de cada requisição (região us-east-1, chaves "ak"/"sk").
+ */
+class S3Falso implements AutoCloseable {
+
+    static final String BUCKET = "bkt";
+    static final String CHAVE_ACESSO = "ak";
+    static final String CHAVE_SECRETA = "sk";
+
+    /**
+     * Como o GET responde ao cabeçalho Range.
+     */
+    enum ModoLeitura {
+        // 206 com o intervalo pedido (comportamento do S3)
+        INTERVALO,
+        // 200 com o objeto inteiro e Content-Length (servidor que ignora Range)
+        INTEIRO,
+        // 200 com o objeto inteiro em chunked, sem Content-Length
+        INTEIRO_SEM_TAMANHO
+    }
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final Pattern CABECALHOS_ASSINADOS = Pattern.compile("SignedHeaders=([^,]+)");
+
+    final Map<String, byte[]> objetos = new ConcurrentHashMap<>();
+    final Map<String, SortedMap<Integer, byte[]>> multiparts = new ConcurrentHashMap<>();
+    final AtomicInteger partesRecebidas = new AtomicInteger();
+    final AtomicInteger leituras = new AtomicInteger();
+    // Quantas das próximas leituras enviam só parte do intervalo e derrubam a conexão
+    final AtomicInteger quedasNaLeitura = new AtomicInteger();
+    // Nas quedas, envia metade do intervalo (true) ou nenhum byte (false)
+    volatile boolean progressoAntesDaQueda = true;
+    volatile ModoLeitura modoLeitura = ModoLeitura.INTERVALO;
+
+    private final AssinaturaS3 assinatura = new AssinaturaS3("us-east-1", CHAVE_ACESSO, CHAVE_SECRETA);
+    private final HttpServer servidor;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    S3Falso() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/", troca -> {
+            try {
+                atender(troca);
+            } finally {
+                troca.close();
+            }
+        });
+        servidor.setExecutor(executor);
+        servidor.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + servidor.getAddress().getPort();
+    }
+
+    ArmazenamentoS3 armazenamento(int tamanhoParteMb) {
+        return new ArmazenamentoS3(endpoint(), BUCKET, "us-east-1", CHAVE_ACESSO, CHAVE_SECRETA, tamanhoParteMb);
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void atender(HttpExchange troca) throws IOException {
+        String caminho = troca.getRequestURI().getRawPath();
+        String chave = URLDecoder.decode(caminho.substring(("/" + BUCKET + "/").length()), StandardCharsets.UTF_8);
+        SortedMap<String, String> parametros = parametros(troca.getRequestURI().getRawQuery());
+        byte[] corpo = troca.getRequestBody().readAllBytes();
+
+        if (!assinaturaValida(troca, caminho, parametros, corpo)) {
+            responder(troca, 403, "<Error><Code>SignatureDoesNotMatch</Code></Error>");
+            return;
+        }
+
+        String metodo = troca.getRequestMethod();
+        String copiaDe = troca.getRequestHeaders().getFirst("x-amz-copy-source");
+
+        if (metodo.equals("POST") && parametros.containsKey("uploads")) {
+            String uploadId = UUID.randomUUID().toString();
+            multiparts.put(uploadId, new TreeMap<>());
+            responder(troca, 200, "<InitiateMultipartUploadResult><UploadId>" + uploadId +
+                                  "</UploadId></InitiateMultipartUploadResult>");
+        } else if (metodo.equals("PUT") && parametros.containsKey("partNumber")) {
+            int numero = Integer.parseInt(parametros.get("partNumber"));
+            multiparts.get(parametros.get("uploadId")).put(numero, corpo);
+            partesRecebidas.incrementAndGet();
+            troca.getResponseHeaders().add("ETag", "\"etag-" + numero + "\"");
+            responder(troca, 200, null);
+        } else if (metodo.equals("POST") && parametros.containsKey("uploadId")) {
+            SortedMap<Integer, byte[]> partes = multiparts.remove(parametros.get("uploadId"));
+            ByteArrayOutputStream objeto = new ByteArrayOutputStream();
+            for (Map.Entry<Integer, byte[]> parte : partes.entrySet()) {
+                String esperado = "<PartNumber>" + parte.getKey() + "</PartNumber><ETag>\"etag-" + parte.getKey() + "\"</ETag>";
+                if (!new String(corpo, StandardCharsets.UTF_8).contains(esperado)) {
+                    responder(troca, 200, "<Error><Code>InvalidPart</Code></Error>");
+                    return;
+                }
+                objeto.write(parte.getValue());
+            }
+            objetos.put(chave, objeto.toByteArray());
+            responder(troca, 200, "<CompleteMultipartUploadResult/>");
+        } else if (metodo.equals("DELETE") && parametros.containsKey("uploadId")) {
+            multiparts.remove(parametros.get("uploadId"));
+            responder(troca, 204, null);
+        } else if (metodo.equals("PUT") && copiaDe != null) {
+            byte[] origem = objetos.get(URLDecoder.decode(copiaDe.substring(("/" + BUCKET + "/").length()),
+                                                          StandardCharsets.UTF_8));
+            if (origem == null) {
+                responder(troca, 404, "<Error><Code>NoSuchKey</Code></Error>");
+                return;
+            }
+            objetos.put(chave, origem);
+            responder(troca, 200, "<CopyObjectResult/>");
+        } else if (metodo.equals("PUT")) {
+            objetos.put(chave, corpo);
+            responder(troca, 200, null);
+        } else if (metodo.equals("HEAD")) {
+            troca.sendResponseHeaders(objetos.containsKey(chave) ? 200 : 404, -1);
+        } else if (metodo.equals("DELETE")) {
+            objetos.remove(chave);
+            responder(troca, 204, null);
+        } else if (metodo.equals("GET")) {
+            ler(troca, chave);
+        } else {
+            responder(troca, 405, null);
+        }
+    }
+
+    private void ler(HttpExchange troca, String chave) throws IOException {
+        leituras.incrementAndGet();
+        byte[] objeto = objetos.get(chave);
+        if (objeto == null) {
+            responder(troca, 404, "<Error><Code>NoSuchKey</Code></Error>");
+            return;
+        }
+
+        if (modoLeitura != ModoLeitura.INTERVALO) {
+            troca.sendResponseHeaders(200, modoLeitura == ModoLeitura.INTEIRO ? objeto.length : 0);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(objeto);
+            }
+            return;
+        }
+
+        Matcher intervalo = RANGE.matcher(troca.getRequestHeaders().getFirst("Range"));
+        if (!intervalo.matches()) {
+            responder(troca, 400, "<Error><Code>InvalidArgument</Code></Error>");
+            return;
+        }
+        int inicio = Integer.parseInt(intervalo.group(1));
+        int fim = (int) Math.min(Long.parseLong(intervalo.group(2)), objeto.length - 1L);
+        if (inicio >= objeto.length) {
+            responder(troca, 416, "<Error><Code>InvalidRange</Code></Error>");
+            return;
+        }
+
+        int tamanho = fim - inicio + 1;
+        troca.getResponseHeaders().add("Content-Range", "bytes " + inicio + "-" + fim + "/" + objeto.length);
+        troca.sendResponseHeaders(206, tamanho);
+        OutputStream saida = troca.getResponseBody();
+        if (quedasNaLeitura.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+            // Envia parte do intervalo e fecha a conexão sem concluir a resposta
+            saida.write(objeto, inicio, progressoAntesDaQueda ? tamanho / 2 : 0);
+            saida.flush();
+            return;
+        }
+        saida.write(objeto, inicio, tamanho);
+        saida.close();
+    }
+
+    /**
+     * Recalcula a assinatura com os cabeçalhos recebidos e compara com a enviada.
+     */
+    private boolean assinaturaValida(HttpExchange troca, String caminho, SortedMap<String, String> parametros,
+                                     byte[] corpo) {
+        Headers recebidos = troca.getRequestHeaders();
+        String autorizacao = recebidos.getFirst("Authorization");
+        if (autorizacao == null || !AssinaturaS3.sha256Hex(corpo).equals(recebidos.getFirst("x-amz-content-sha256"))) {
+            return false;
+        }
+        Matcher assinados = CABECALHOS_ASSINADOS.matcher(autorizacao);
+        if (!assinados.find()) {
+            return false;
+        }
+
+        SortedMap<String, String> cabecalhos = new TreeMap<>();
+        for (String nome : assinados.group(1).split(";")) {
+            cabecalhos.put(nome, recebidos.getFirst(nome));
+        }
+        String esperada = assinatura.autorizacao(troca.getRequestMethod(), caminho,
+            AssinaturaS3.consultaCanonica(parametros), cabecalhos, recebidos.getFirst("x-amz-content-sha256"));
+        return esperada.equals(autorizacao);
+    }
+
+    private static SortedMap<String, String> parametros(String consulta) {
+        SortedMap<String, String> parametros = new TreeMap<>();
+        if (consulta != null) {
+            for (String parametro : consulta.split("&")) {
+                String[] nomeValor = parametro.split("=", 2);
+                parametros.put(URLDecoder.decode(nomeValor[0], StandardCharsets.UTF_8),
+                               nomeValor.length > 1 ? URLDecoder.decode(nomeValor[1], StandardCharsets.UTF_8) : "");
+            }
+        }
+        return parametros;
+    }
+
+    private static void responder(HttpExchange troca, int status, String corpo) throws IOException {
+        byte[] bytes = corpo != null ? corpo.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        troca.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            troca.getResponseBody().write(bytes);
+        }
+    }
+}
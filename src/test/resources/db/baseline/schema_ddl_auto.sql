@@ -0,0 +1,82 @@
+-- Schema que o Hibernate 6 criava com ddl-auto=update a partir das entidades
+-- anteriores ao Flyway (usuarios, documentos, relatorios e itens_relatorio).
+-- Usado por MigracaoBaselineTest para simular a atualização de um banco existente.
+
+create table usuarios (
+    ativo boolean not null,
+    data_criacao timestamp(6) not null,
+    id bigint generated by default as identity,
+    email varchar(255) not null unique,
+    nome varchar(255) not null,
+    senha varchar(255) not null,
+    tipo_usuario varchar(255) not null check (tipo_usuario in ('ADMIN','CLIENTE')),
+    primary key (id)
+);
+
+create table documentos (
+    ano_referencia integer not null,
+    mes_referencia integer not null,
+    data_processamento timestamp(6),
+    data_upload timestamp(6) not null,
+    id bigint generated by default as identity,
+    tamanho bigint not null,
+    usuario_id bigint not null,
+    caminho_storage varchar(500) not null,
+    mensagem_erro varchar(1000),
+    nome_arquivo varchar(255) not null,
+    status varchar(255) not null check (status in ('PENDENTE','PROCESSANDO','PROCESSADO','ERRO')),
+    tipo_arquivo varchar(255) not null,
+    primary key (id)
+);
+
+create table relatorios (
+    ano_referencia integer not null,
+    despesa_total numeric(15,2) not null,
+    margem_lucro numeric(5,2) not null,
+    mes_referencia integer not null,
+    receita_total numeric(15,2) not null,
+    saldo numeric(15,2) not null,
+    total_despesas integer not null,
+    total_receitas integer not null,
+    total_transacoes integer not null,
+    data_geracao timestamp(6) not null,
+    documento_id bigint not null unique,
+    id bigint generated by default as identity,
+    usuario_id bigint not null,
+    primary key (id)
+);
+
+create table itens_relatorio (
+    data date not null,
+    valor numeric(15,2) not null,
+    id bigint generated by default as identity,
+    relatorio_id bigint not null,
+    forma_pagamento varchar(100),
+    centro_custo varchar(100),
+    descricao varchar(500) not null,
+    observacoes varchar(1000),
+    categoria varchar(255) not null,
+    tipo varchar(255) not null check (tipo in ('RECEITA','DESPESA')),
+    primary key (id)
+);
+
+alter table if exists documentos add constraint fk_documentos_usuario foreign key (usuario_id) references usuarios;
+alter table if exists relatorios add constraint fk_relatorios_documento foreign key (documento_id) references documentos;
+alter table if exists relatorios add constraint fk_relatorios_usuario foreign key (usuario_id) references usuarios;
+alter table if exists itens_relatorio add constraint fk_itens_relatorio_relatorio foreign key (relatorio_id) references relatorios;
+
+-- Dados de um relatório processado, que precisam sobreviver às migrações
+insert into usuarios (ativo, data_criacao, email, nome, senha, tipo_usuario)
+values (true, '2024-05-01 08:00', 'cliente@carpa.com', 'Cliente', 'x', 'CLIENTE');
+
+insert into documentos (ano_referencia, mes_referencia, data_processamento, data_upload, tamanho, usuario_id,
+                        caminho_storage, nome_arquivo, status, tipo_arquivo)
+values (2024, 5, '2024-05-02 10:00', '2024-05-02 09:00', 120, 1, 'uploads/1/maio.csv', 'maio.csv', 'PROCESSADO', 'CSV');
+
+insert into relatorios (ano_referencia, despesa_total, margem_lucro, mes_referencia, receita_total, saldo,
+                        total_despesas, total_receitas, total_transacoes, data_geracao, documento_id, usuario_id)
+values (2024, 300.00, 70.00, 5, 1000.00, 700.00, 1, 1, 2, '2024-05-02 10:00', 1, 1);
+
+insert into itens_relatorio (data, valor, relatorio_id, descricao, categoria, tipo)
+values ('2024-05-03', 1000.00, 1, 'Venda', 'Vendas', 'RECEITA'),
+       ('2024-05-10', 300.00, 1, 'Aluguel', 'Aluguel', 'DESPESA');